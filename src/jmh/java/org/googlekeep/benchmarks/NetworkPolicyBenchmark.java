@@ -0,0 +1,126 @@
+package org.googlekeep.benchmarks;
+
+import org.googlekeep.locators.ElementHandleCache;
+import org.googlekeep.network.NetworkPolicy;
+import org.googlekeep.network.PageLoadMetrics;
+import org.googlekeep.pages.NotesPage;
+import org.googlekeep.standin.KeepStandInServer;
+import org.googlekeep.standin.NoteStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page-load time of the local Keep stand-in in headless Chrome under each
+ * {@link NetworkPolicy}, with the stand-in's assets served without and with CDN-like
+ * latency. The bytes and requests per load are printed when each trial ends.
+ *
+ * <p>Every trial first drives the page objects through a create, lookup and search
+ * under its policy and fails if they cannot find their elements, so a policy that
+ * breaks the app never reports a speed-up.
+ *
+ * <p>Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=NetworkPolicyBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class NetworkPolicyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Page {
+        @Param({"none", "no-tracking", "lean", "text-only"})
+        public String policy;
+
+        @Param({"0", "100"})
+        public int assetLatencyMs;
+
+        WebDriver driver;
+        WebDriverWait wait;
+        String url;
+        long loads;
+        long bytes;
+        long requests;
+
+        @Setup(Level.Trial)
+        public void startBrowser() {
+            System.setProperty(KeepStandInServer.ASSET_LATENCY_PROPERTY, Integer.toString(assetLatencyMs));
+            KeepStandInServer server = KeepStandInServer.shared();
+            NoteStore store = server.getStore(0);
+            store.clear();
+            NotesPageBenchmark.seed(store, 10);
+            url = server.getAppUrl(0);
+            ChromeOptions options = new ChromeOptions();
+            options.addArguments("--headless=new", "--window-size=1280,1024", "--disable-extensions");
+            ChromeDriver chrome = new ChromeDriver(options);
+            NetworkPolicy.parse(policy).applyTo(chrome);
+            driver = chrome;
+            driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(5));
+            driver.manage().timeouts().scriptTimeout(Duration.ofSeconds(30));
+            wait = new WebDriverWait(driver, Duration.ofSeconds(60));
+            load();
+            checkPageObjects();
+        }
+
+        /**
+         * Fails the trial if the page objects cannot work with the page under this policy.
+         */
+        private void checkPageObjects() {
+            NotesPage page = new NotesPage(driver);
+            String title = "Policy check " + policy;
+            page.createNote(title);
+            if (page.getNoteByTitle(title) == null || page.getNoteByTitle(NotesPageBenchmark.title(5)) == null) {
+                throw new IllegalStateException("Page objects cannot find the notes under network policy " + policy);
+            }
+            page.searchNoteByTitle(title);
+            if (!page.isNotePresent(title)) {
+                throw new IllegalStateException("Search does not work under network policy " + policy);
+            }
+            page.clearSearch();
+        }
+
+        void load() {
+            driver.get(url);
+            ElementHandleCache.forDriver(driver).invalidate();
+            wait.until(ExpectedConditions.jsReturnsValue("return document.readyState === 'complete'"));
+        }
+
+        @TearDown(Level.Trial)
+        public void quitBrowser() {
+            if (loads > 0) {
+                System.out.printf("%nNetwork policy %s, asset latency %d ms: %.1f KB over %.1f requests per load%n",
+                        policy, assetLatencyMs, bytes / 1024.0 / loads, (double) requests / loads);
+            }
+            driver.quit();
+        }
+    }
+
+    @Benchmark
+    public long loadBoard(Page page) {
+        page.load();
+        long[] transfer = PageLoadMetrics.transfer(page.driver);
+        page.loads++;
+        page.bytes += transfer[0];
+        page.requests += transfer[1];
+        return transfer[0];
+    }
+}
@@ -0,0 +1,95 @@
+package org.googlekeep.benchmarks;
+
+import org.googlekeep.locators.NoteCardLocator;
+import org.googlekeep.standin.KeepStandInServer;
+import org.googlekeep.standin.NoteStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link NoteCardLocator} strategies on a static board of growing size.
+ * Each benchmark is one script round trip, so the difference between strategies is
+ * the time the browser spends finding the card.
+ *
+ * <p>Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=NoteCardLookupBenchmark}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NoteCardLookupBenchmark {
+    @Param({"10", "1000", "10000"})
+    public int boardSize;
+
+    @Param({"XPATH", "CSS", "TITLE_INDEX"})
+    public NoteCardLocator.Strategy strategy;
+
+    private WebDriver driver;
+    private NoteCardLocator locator;
+    /** The last card in document order, the worst case for a scan. */
+    private String lastTitle;
+    /** A prefix of a seeded title: the index has no exact entry, so it falls back to scanning. */
+    private String partialTitle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        KeepStandInServer server = KeepStandInServer.shared();
+        NoteStore store = server.getStore(0);
+        store.clear();
+        NotesPageBenchmark.seed(store, boardSize);
+        lastTitle = NotesPageBenchmark.title(boardSize - 1);
+        partialTitle = lastTitle.substring(0, lastTitle.length() - 1);
+
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("--headless=new", "--window-size=1280,1024", "--disable-extensions");
+        driver = new ChromeDriver(options);
+        driver.get(server.getAppUrl(0));
+        new WebDriverWait(driver, Duration.ofSeconds(60))
+                .until(ExpectedConditions.jsReturnsValue("return document.readyState === 'complete'"));
+        locator = new NoteCardLocator(strategy);
+        // Builds the title index outside the measurement
+        locator.find(driver, lastTitle);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        driver.quit();
+    }
+
+    @Benchmark
+    public WebElement exactTitle() {
+        return locator.find(driver, lastTitle);
+    }
+
+    @Benchmark
+    public WebElement partialTitle() {
+        return locator.find(driver, partialTitle);
+    }
+
+    @Benchmark
+    public WebElement missingTitle() {
+        return locator.find(driver, "No such note");
+    }
+}
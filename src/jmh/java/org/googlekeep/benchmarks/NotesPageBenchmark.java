@@ -0,0 +1,200 @@
+package org.googlekeep.benchmarks;
+
+import org.googlekeep.components.NoteCardComponent;
+import org.googlekeep.model.NoteBoardSnapshot;
+import org.googlekeep.model.NoteSpec;
+import org.googlekeep.locators.ElementHandleCache;
+import org.googlekeep.pages.NotesPage;
+import org.googlekeep.standin.KeepStandInServer;
+import org.googlekeep.standin.NoteStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the {@link NotesPage} operations against the local Keep stand-in in
+ * headless Chrome, for boards of 10, 1k and 10k notes.
+ *
+ * <p>The board is reseeded through the stand-in's store and the page reloaded before
+ * every iteration, so operations that add notes do not skew later iterations.
+ * Results are sampled, so the JSON report carries p50/p90/p99 next to the mean.
+ *
+ * <p>Run with {@code mvn -Pbenchmarks test-compile exec:exec}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class NotesPageBenchmark {
+    static final String[] CHECKLIST_ITEMS = {"Item 1", "Item 2", "Item 3"};
+    static final int BULK_BATCH = 50;
+    // Every tenth seeded note is a checklist
+    private static final int CHECKLIST_EVERY = 10;
+
+    @State(Scope.Benchmark)
+    public static class Board {
+        @Param({"10", "1000", "10000"})
+        public int boardSize;
+
+        WebDriver driver;
+        NotesPage page;
+        NoteStore store;
+        String url;
+        /** A seeded note in the middle of the board, so lookups scan half of it. */
+        String targetTitle;
+        /** A seeded checklist note near the middle of the board. */
+        String checklistTitle;
+        int counter;
+
+        @Setup(Level.Trial)
+        public void startBrowser() {
+            KeepStandInServer server = KeepStandInServer.shared();
+            store = server.getStore(0);
+            url = server.getAppUrl(0);
+            ChromeOptions options = new ChromeOptions();
+            options.addArguments("--headless=new", "--window-size=1280,1024", "--disable-extensions");
+            driver = new ChromeDriver(options);
+            driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(5));
+            driver.manage().timeouts().scriptTimeout(Duration.ofSeconds(30));
+        }
+
+        @Setup(Level.Iteration)
+        public void reseed() {
+            store.clear();
+            seed(store, boardSize);
+            targetTitle = title(boardSize / 2);
+            checklistTitle = title(boardSize / 2 / CHECKLIST_EVERY * CHECKLIST_EVERY);
+            driver.get(url);
+            ElementHandleCache.forDriver(driver).invalidate();
+            new WebDriverWait(driver, Duration.ofSeconds(60))
+                    .until(ExpectedConditions.jsReturnsValue("return document.readyState === 'complete'"));
+            page = new NotesPage(driver);
+        }
+
+        @TearDown(Level.Trial)
+        public void quitBrowser() {
+            driver.quit();
+        }
+    }
+
+    /**
+     * Board state that returns to the main view after every search.
+     */
+    @State(Scope.Benchmark)
+    public static class SearchBoard extends Board {
+        @TearDown(Level.Invocation)
+        public void clearSearch() {
+            page.clearSearch();
+        }
+    }
+
+    @Benchmark
+    public String createNote(Board board) {
+        String title = "Created note " + (++board.counter);
+        board.page.createNote(title);
+        return title;
+    }
+
+    /**
+     * Notes per second through {@link NotesPage#createNotes}, one batch of
+     * {@value #BULK_BATCH} plain notes per invocation.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BULK_BATCH)
+    public NoteBoardSnapshot createNotes(Board board) {
+        List<NoteSpec> specs = new ArrayList<>();
+        for (int i = 0; i < BULK_BATCH; i++) {
+            specs.add(NoteSpec.titled("Bulk note " + (++board.counter)));
+        }
+        return board.page.createNotes(specs);
+    }
+
+    @Benchmark
+    public int getCurrentNoteCount(Board board) {
+        return board.page.getCurrentNoteCount();
+    }
+
+    @Benchmark
+    public NoteCardComponent getNoteByTitle(Board board) {
+        return board.page.getNoteByTitle(board.targetTitle);
+    }
+
+    @Benchmark
+    public boolean isChecklistPresent(Board board) {
+        return board.page.isChecklistPresent(board.checklistTitle, CHECKLIST_ITEMS);
+    }
+
+    @Benchmark
+    public void searchNoteByTitle(SearchBoard board) {
+        board.page.searchNoteByTitle(board.targetTitle);
+    }
+
+    @Benchmark
+    public void changeNoteColor(Board board) {
+        board.page.changeNoteColor(board.targetTitle, (++board.counter & 1) == 0 ? "default" : "Coral");
+    }
+
+    /**
+     * Fills the store with {@code size} notes in the shape the stand-in page writes back.
+     */
+    static void seed(NoteStore store, int size) {
+        long order = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> note = new LinkedHashMap<>();
+            boolean checklist = i % CHECKLIST_EVERY == 0;
+            List<Map<String, Object>> items = new ArrayList<>();
+            if (checklist) {
+                for (String text : CHECKLIST_ITEMS) {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("text", text);
+                    item.put("checked", false);
+                    items.add(item);
+                }
+            }
+            note.put("title", title(i));
+            note.put("body", checklist ? "" : "Body of seeded note " + i);
+            note.put("items", items);
+            note.put("labels", i % 3 == 0 ? Arrays.asList("Seeded") : new ArrayList<>());
+            note.put("color", "default");
+            note.put("pinned", false);
+            note.put("archived", false);
+            note.put("trashed", false);
+            note.put("order", order - i);
+            store.put("seed" + i, note);
+        }
+    }
+
+    /**
+     * Zero-padded, so no title is a substring of another and contains() lookups stay exact.
+     */
+    static String title(int index) {
+        return String.format("Seeded note %05d", index);
+    }
+}
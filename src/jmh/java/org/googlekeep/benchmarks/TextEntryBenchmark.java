@@ -0,0 +1,114 @@
+package org.googlekeep.benchmarks;
+
+import org.googlekeep.components.TextEntry;
+import org.googlekeep.standin.KeepStandInServer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text entry throughput into the composer's body in headless Chrome: {@code sendKeys}
+ * against the bulk insertion of {@link TextEntry}, for bodies of 1k, 10k and 50k
+ * characters. Every invocation enters the whole body into an emptied field, and the
+ * {@code chars} counter reports the characters entered per second.
+ *
+ * <p>Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=TextEntryBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextEntryBenchmark {
+    public enum Entry { SEND_KEYS, INSERT }
+
+    @Param({"1000", "10000", "50000"})
+    public int length;
+
+    @Param({"SEND_KEYS", "INSERT"})
+    public Entry entry;
+
+    private WebDriver driver;
+    private WebElement body;
+    private String text;
+
+    /**
+     * Characters entered, reported per second next to the invocation rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public long chars;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            chars = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        KeepStandInServer server = KeepStandInServer.shared();
+        server.getStore(0).clear();
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("--headless=new", "--window-size=1280,1024", "--disable-extensions");
+        driver = new ChromeDriver(options);
+        driver.get(server.getAppUrl(0));
+        new WebDriverWait(driver, Duration.ofSeconds(60))
+                .until(ExpectedConditions.jsReturnsValue("return document.readyState === 'complete'"));
+        driver.findElement(By.className("fmcmS-h1U9Be-LS81yb")).click();
+        body = driver.findElement(By.xpath("//div[@role='textbox'][@aria-label='Take a note…']"));
+        StringBuilder words = new StringBuilder(length + 64);
+        while (words.length() < length) {
+            words.append("The quick brown fox jumps over the lazy dog. ");
+        }
+        text = words.substring(0, length);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyBody() {
+        ((JavascriptExecutor) driver).executeScript("arguments[0].textContent = '';", body);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Object entered = ((JavascriptExecutor) driver).executeScript("return arguments[0].textContent.length;", body);
+        driver.quit();
+        if (((Number) entered).intValue() != length) {
+            throw new IllegalStateException(entry + " entered " + entered + " of " + length + " characters");
+        }
+    }
+
+    @Benchmark
+    public void enterBody(Throughput throughput) {
+        if (entry == Entry.SEND_KEYS) {
+            body.sendKeys(text);
+        } else {
+            TextEntry.insert(driver, body, text);
+        }
+        throughput.chars += length;
+    }
+}
@@ -1,17 +1,109 @@
 package org.googlekeep;
 
-//TIP To <b>Run</b> code, press <shortcut actionId="Run"/> or
-// click the <icon src="AllIcons.Actions.Execute"/> icon in the gutter.
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Entry point of the resident runner daemon and its thin client.
+ *
+ * <p>{@code serve} starts the daemon, which lives with the tests in
+ * {@code org.googlekeep.daemon.RunnerDaemon} and so needs the test class path:
+ * {@code mvn -Pdaemon test-compile exec:exec [-Ddaemon.args="--runners 2"]}.
+ *
+ * <p>The client commands need only the JDK and this class, so they start in a fraction
+ * of a second and the run costs what the tests cost:
+ * <pre>
+ * java -cp target/classes org.googlekeep.Main run NotesTest#testPinNote
+ * java -cp target/classes org.googlekeep.Main run testng.xml
+ * java -cp target/classes org.googlekeep.Main status
+ * java -cp target/classes org.googlekeep.Main stop
+ * </pre>
+ * Results are printed as the daemon streams them; {@code run} exits with status 1 if a
+ * test or its setup failed, and 2 if no daemon is listening. {@code --port} selects a
+ * daemon on another port than 7500.
+ */
 public class Main {
-    public static void main(String[] args) {
-        //TIP Press <shortcut actionId="ShowIntentionActions"/> with your caret at the highlighted text
-        // to see how IntelliJ IDEA suggests fixing it.
-        System.out.printf("Hello and welcome!");
+    private static final String DAEMON_CLASS = "org.googlekeep.daemon.RunnerDaemon";
+    private static final int DEFAULT_PORT = 7500;
+    private static final Pattern DONE = Pattern.compile("DONE passed=(\\d+) failed=(\\d+) skipped=(\\d+) elapsedMs=(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        if ("serve".equals(args[0])) {
+            serve(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        int port = DEFAULT_PORT;
+        StringBuilder command = new StringBuilder(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            if ("--port".equals(args[i]) && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else {
+                command.append(' ').append(args[i]);
+            }
+        }
+        System.exit(send(command.toString(), port));
+    }
 
-        for (int i = 1; i <= 5; i++) {
-            //TIP Press <shortcut actionId="Debug"/> to start debugging your code. We have set one <icon src="AllIcons.Debugger.Db_set_breakpoint"/> breakpoint
-            // for you, but you can always add more by pressing <shortcut actionId="ToggleLineBreakpoint"/>.
-            System.out.println("i = " + i);
+    private static void serve(String[] args) throws Exception {
+        Class<?> daemon;
+        try {
+            daemon = Class.forName(DAEMON_CLASS);
+        } catch (ClassNotFoundException e) {
+            System.out.println("The runner daemon needs the test class path: mvn -Pdaemon test-compile exec:exec");
+            System.exit(2);
+            return;
         }
+        Method main = daemon.getMethod("main", String[].class);
+        main.invoke(null, (Object) args);
+    }
+
+    /**
+     * Sends one command line to the daemon and prints its answer.
+     *
+     * @return The exit status for the command
+     */
+    private static int send(String command, int port) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            out.println(command);
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            int status = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                System.out.println(line);
+                Matcher done = DONE.matcher(line);
+                if (done.matches() && Integer.parseInt(done.group(2)) > 0) {
+                    status = 1;
+                } else if (line.startsWith("ERROR")) {
+                    status = 1;
+                }
+            }
+            return status;
+        } catch (ConnectException e) {
+            System.out.println("No runner daemon on port " + port + "; start one with mvn -Pdaemon test-compile exec:exec");
+            return 2;
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: Main serve [--port 7500] [--runners 1] [--reload org.googlekeep.tests]");
+        System.out.println("       Main run <class | class#method | suite.xml> [--port 7500]");
+        System.out.println("       Main status | stop [--port 7500]");
     }
-}
\ No newline at end of file
+}
@@ -1,58 +1,362 @@
 package org.googlekeep;
 
+import org.googlekeep.artifacts.FailureArtifacts;
+import org.googlekeep.browser.ChromeLifecycle;
+import org.googlekeep.fixtures.NoteFixtures;
+import org.googlekeep.inprocess.InProcessDriver;
+import org.googlekeep.locators.ElementHandleCache;
+import org.googlekeep.locators.LocatorMetrics;
+import org.googlekeep.metrics.ActionPerformance;
+import org.googlekeep.metrics.CommandTimingListener;
+import org.googlekeep.metrics.CommandTimings;
+import org.googlekeep.metrics.PerformanceBudgetListener;
+import org.googlekeep.model.NoteBoardSnapshot;
+import org.googlekeep.model.NoteSpec;
+import org.googlekeep.network.NetworkPolicy;
+import org.googlekeep.network.PageLoadMetrics;
+import org.googlekeep.pages.NotesPage;
+import org.googlekeep.scheduling.LongestFirstListener;
+import org.googlekeep.selection.ChangeImpactListener;
+import org.googlekeep.selection.CoverageListener;
+import org.googlekeep.selection.PageObjectCoverage;
+import org.googlekeep.standin.KeepStandInServer;
+import org.googlekeep.waits.WaitBudget;
+import org.googlekeep.waits.WaitPolicy;
 import org.openqa.selenium.*;
-import org.openqa.selenium.chrome.*;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.events.EventFiringDecorator;
 import org.openqa.selenium.support.ui.*;
+import org.testng.ITestResult;
+import org.testng.SkipException;
 import org.testng.annotations.*;
-import java.io.*;
+import java.lang.reflect.Method;
 import java.time.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Base test class for setting up and tearing down the WebDriver.
+ *
+ * <p>Driver and wait are owned per thread, so test methods can run in parallel
+ * (see the {@code parallel} profile in the pom). Each worker thread gets a stable
+ * worker index, which selects its own account board against the local stand-in.
+ *
+ * <p>Chrome is launched and quit through {@link ChromeLifecycle}: every session runs on
+ * the JVM's one chromedriver with a clone of the logged-in template profile
+ * {@code -Dkeep.chrome.profile}, and a session's browser is reaped when it is quit, so
+ * no test ever kills Chrome processes it did not start.
+ *
+ * <p>With {@code -Dkeep.session.reuse=true} a worker keeps its browser across test
+ * methods. Between tests the session is reset in place (search cleared, back to
+ * the main view, notes created by the previous test deleted) and it is only
+ * replaced when a health check or the reset fails.
+ *
+ * <p>Every driver is wrapped with a {@link CommandTimingListener}, so the latency of
+ * each command is recorded per test and per page-object method and exported to
+ * {@code target/command-timings.json} at the end of the suite, together with how long
+ * each test spent waiting, per {@link WaitBudget}, against acting.
+ *
+ * <p>When run by a grid worker ({@code org.googlekeep.grid}) several JVMs drive
+ * browsers on the same machine, and the worker owns its sessions across the one-method
+ * TestNG runs it is handed.
+ *
+ * <p>The resident runner ({@code org.googlekeep.daemon}) sets {@value #RESIDENT_PROPERTY}: its
+ * runner threads keep their browsers across the TestNG runs clients submit, and the sessions
+ * only end when the daemon stops. The daemon reports and resets the metrics after each run
+ * instead ({@link #reportMetrics()}, {@link #resetMetrics()}).
+ *
+ * <p>When a test fails, its screenshot, DOM and browser log are taken before the session is
+ * released and written in the background ({@link FailureArtifacts}); the suite waits for
+ * them at its end.
+ *
+ * <p>Tests in the {@value #IN_PROCESS_GROUP} group run against the local stand-in on an
+ * {@link InProcessDriver}, which executes the page's DOM and script in this JVM, so they
+ * start in milliseconds and never launch Chrome; every other test, and every test with
+ * {@code -Dkeep.inprocess=false} or against keep.google.com, gets Chrome. A reused Chrome
+ * session is set aside while an in-process test runs and picked up again after it.
+ * {@code mvn test -Dkeep.target=local -Dgroups=in-process} runs only those tests.
+ *
+ * <p>Tests set up their preconditions with {@link #givenNotes(NoteSpec...)}, which puts
+ * the notes straight into the app state, so only the behaviour under test goes through
+ * the page objects.
+ *
+ * <p>Test methods run longest-first by their recorded durations ({@link LongestFirstListener}),
+ * so a test only needs an explicit priority if it really depends on running early.
+ *
+ * <p>The page-object methods each test exercises are recorded as well ({@link PageObjectCoverage}),
+ * so {@code -Dkeep.select.since=<git revision>} runs only the tests affected by the changes
+ * since that revision ({@link ChangeImpactListener}).
+ *
+ * <p>{@code -Dkeep.network.policy} blocks or stubs the images, fonts, media and tracking
+ * requests the tests never look at ({@link NetworkPolicy}); the cost of each page load
+ * under the policy is reported at the end of the suite ({@link PageLoadMetrics}).
+ *
+ * <p>The main note actions are measured in the browser and checked against the budgets in
+ * {@code perf-budgets.properties}; {@code -Dkeep.perf.mode=fail} fails a test whose actions
+ * went over budget ({@link ActionPerformance}).
  */
+@Listeners({LongestFirstListener.class, ChangeImpactListener.class, PerformanceBudgetListener.class})
 public class BaseTest {
-    protected WebDriver driver;
-    protected WebDriverWait wait;
+    private static final ThreadLocal<WebDriver> DRIVER = new ThreadLocal<>();
+    private static final ThreadLocal<WebDriverWait> WAIT = new ThreadLocal<>();
+    private static final ThreadLocal<NotesPage> NOTES_PAGE = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> IN_PROCESS = ThreadLocal.withInitial(() -> false);
+    private static final ThreadLocal<Object[]> PARKED = new ThreadLocal<>();
+    private static final List<WebDriver> SESSIONS = new CopyOnWriteArrayList<>();
+    private static final LongAdder LAUNCH_SETUP_NANOS = new LongAdder();
+    private static final LongAdder LAUNCH_SETUP_COUNT = new LongAdder();
+    private static final LongAdder RESET_SETUP_NANOS = new LongAdder();
+    private static final LongAdder RESET_SETUP_COUNT = new LongAdder();
+    private static final LongAdder IN_PROCESS_SETUP_NANOS = new LongAdder();
+    private static final LongAdder IN_PROCESS_SETUP_COUNT = new LongAdder();
+    private static final AtomicInteger WORKER_COUNTER = new AtomicInteger();
+    private static final ThreadLocal<Integer> WORKER_INDEX = ThreadLocal.withInitial(WORKER_COUNTER::getAndIncrement);
 
-    protected static final Duration IMPLICIT_WAIT = Duration.ofSeconds(5);
-    protected static final Duration EXPLICIT_WAIT = Duration.ofSeconds(20);
+    protected static final Duration IMPLICIT_WAIT = WaitBudget.ELEMENT.getTimeout();
+    protected static final Duration EXPLICIT_WAIT = WaitBudget.PAGE_LOAD.getTimeout();
+    // Upper bound for the in-page DomWait scripts, which never wait longer than their budget
+    protected static final Duration SCRIPT_TIMEOUT = longestWaitBudget().plusSeconds(10);
+    private static final Duration ARTIFACT_FLUSH_TIMEOUT = Duration.ofSeconds(30);
 
-    @BeforeMethod
-    public void setUp() {
-        killChromeProcesses();
+    /**
+     * Selects the app under test: {@code google} (default) for keep.google.com,
+     * {@code local} for the embedded {@link KeepStandInServer}.
+     */
+    protected static final String TARGET = System.getProperty("keep.target", "google");
+    protected static final String GOOGLE_KEEP_URL = "https://keep.google.com/u/0/";
+    protected static final boolean REUSE_SESSION = Boolean.getBoolean("keep.session.reuse");
+    /**
+     * Group of the tests that need no real browser: pure DOM and page-object logic.
+     */
+    public static final String IN_PROCESS_GROUP = "in-process";
+    /**
+     * Group of the tests that only work against the local stand-in, e.g. because they seed
+     * it directly. Against any other target they are skipped before a browser starts.
+     */
+    public static final String STAND_IN_GROUP = "stand-in";
+    protected static final boolean IN_PROCESS_ENABLED = Boolean.parseBoolean(System.getProperty("keep.inprocess", "true"));
+    public static final String GRID_WORKER_PROPERTY = "keep.grid.worker";
+    /**
+     * Name of the grid worker running this JVM, or null outside a grid run.
+     */
+    protected static final String GRID_WORKER = System.getProperty(GRID_WORKER_PROPERTY);
+    public static final String RESIDENT_PROPERTY = "keep.resident";
+    /**
+     * True inside the resident runner daemon, which owns its sessions across suite runs.
+     */
+    protected static final boolean RESIDENT = Boolean.getBoolean(RESIDENT_PROPERTY);
+
+    @BeforeMethod(alwaysRun = true)
+    public void setUp(Method method, ITestResult result) {
+        long start = System.nanoTime();
+        CommandTimings.startTest(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+        PageObjectCoverage.startTest(getClass().getName() + "#" + method.getName());
+        if (!"local".equalsIgnoreCase(TARGET) && inGroup(result, STAND_IN_GROUP)) {
+            throw new SkipException(method.getName() + " needs the local stand-in (-Dkeep.target=local)");
+        }
+        if (runsInProcess(result)) {
+            parkSession();
+            startInProcessSession();
+            IN_PROCESS_SETUP_NANOS.add(System.nanoTime() - start);
+            IN_PROCESS_SETUP_COUNT.increment();
+            return;
+        }
+        boolean reused = REUSE_SESSION && getDriver() != null;
+        if (reused) {
+            if (!isSessionHealthy() || !resetSession()) {
+                recycleSession();
+                reused = false;
+            }
+        } else {
+            startSession();
+        }
+        (reused ? RESET_SETUP_NANOS : LAUNCH_SETUP_NANOS).add(System.nanoTime() - start);
+        (reused ? RESET_SETUP_COUNT : LAUNCH_SETUP_COUNT).increment();
+    }
+
+    private void startSession() {
         ChromeOptions options = configureChromeOptions();
         initializeDriver(options);
         open();
+        NOTES_PAGE.set(new NotesPage(getDriver()));
     }
 
-    protected void open() {
-        driver.get("https://keep.google.com/u/0/");
-        wait.until(ExpectedConditions.jsReturnsValue("return document.readyState === 'complete'"));
+    private static boolean runsInProcess(ITestResult result) {
+        return IN_PROCESS_ENABLED && "local".equalsIgnoreCase(TARGET) && inGroup(result, IN_PROCESS_GROUP);
+    }
+
+    private static boolean inGroup(ITestResult result, String group) {
+        return Arrays.asList(result.getMethod().getGroups()).contains(group);
     }
 
-    private void killChromeProcesses() {
+    private void startInProcessSession() {
+        long start = System.nanoTime();
+        WebDriver inProcess = new InProcessDriver();
+        CommandTimings.record("newSession", "BaseTest.startInProcessSession", System.nanoTime() - start, false);
+        installDriver(inProcess);
+        IN_PROCESS.set(true);
         try {
-            String os = System.getProperty("os.name").toLowerCase();
-            if (os.contains("win")) {
-                Runtime.getRuntime().exec("taskkill /F /IM chrome.exe /T");
-                Runtime.getRuntime().exec("taskkill /F /IM chromedriver.exe /T");
-            } else {
-                Runtime.getRuntime().exec("pkill -f chrome");
-                Runtime.getRuntime().exec("pkill -f chromedriver");
-            }
-            Thread.sleep(2000);
-        } catch (Exception e) {
-            System.out.println("Process cleanup warning: " + e.getMessage());
+            open();
+            NOTES_PAGE.set(new NotesPage(getDriver()));
+        } catch (RuntimeException e) {
+            // tearDown does not run after a failed setUp, so hand the thread back to its Chrome session here
+            quitSession();
+            unparkSession();
+            throw e;
+        }
+    }
+
+    /**
+     * Sets this thread's reused Chrome session aside for the length of an in-process test.
+     */
+    private void parkSession() {
+        if (getDriver() != null) {
+            PARKED.set(new Object[]{DRIVER.get(), WAIT.get(), NOTES_PAGE.get()});
+            DRIVER.remove();
+            WAIT.remove();
+            NOTES_PAGE.remove();
+        }
+    }
+
+    private void unparkSession() {
+        Object[] parked = PARKED.get();
+        if (parked != null) {
+            PARKED.remove();
+            DRIVER.set((WebDriver) parked[0]);
+            WAIT.set((WebDriverWait) parked[1]);
+            NOTES_PAGE.set((NotesPage) parked[2]);
+        }
+    }
+
+    /**
+     * Starts the current thread's browser ahead of its first test, so a runner that keeps
+     * sessions across TestNG runs has it ready when the first test arrives.
+     */
+    public static void prestartSession() {
+        BaseTest base = new BaseTest();
+        if (base.getDriver() == null) {
+            base.startSession();
+        }
+    }
+
+    /**
+     * Checks that the current browser still answers commands and has a loaded page.
+     */
+    private boolean isSessionHealthy() {
+        try {
+            getDriver().getWindowHandle();
+            return Boolean.TRUE.equals(((JavascriptExecutor) getDriver())
+                    .executeScript("return document.readyState === 'complete'"));
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Brings a reused session back to a clean board without relaunching the browser.
+     *
+     * @return false if the reset failed and the session should be replaced
+     */
+    private boolean resetSession() {
+        try {
+            NotesPage notesPage = getNotesPage();
+            notesPage.clearSearch();
+            notesPage.goToMainNotes();
+            notesPage.purgeCreatedNotes();
+            return true;
+        } catch (RuntimeException e) {
+            System.out.println("Session reset failed, recycling browser: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void recycleSession() {
+        quitSession();
+        startSession();
+    }
+
+    private void quitSession() {
+        WebDriver driver = getDriver();
+        if (driver != null) {
+            SESSIONS.remove(driver);
+            ChromeLifecycle.quit(driver);
+        }
+        DRIVER.remove();
+        WAIT.remove();
+        NOTES_PAGE.remove();
+        IN_PROCESS.remove();
+    }
+
+    /**
+     * Returns the WebDriver owned by the current test thread.
+     */
+    protected WebDriver getDriver() {
+        return DRIVER.get();
+    }
+
+    /**
+     * Returns the explicit wait bound to the current thread's driver.
+     */
+    protected WebDriverWait getWait() {
+        return WAIT.get();
+    }
+
+    /**
+     * Returns the notes page bound to the current thread's session. In reuse mode
+     * the same instance spans test methods, so it can clean up what it created.
+     */
+    protected NotesPage getNotesPage() {
+        return NOTES_PAGE.get();
+    }
+
+    /**
+     * Returns the index of the current worker thread, starting at 0.
+     */
+    protected int getWorkerIndex() {
+        return WORKER_INDEX.get();
+    }
+
+    /**
+     * Puts the notes into the current session's app state, already pinned, labelled,
+     * colored or archived as specified, without going through the UI (see
+     * {@link NoteFixtures} for the injection paths).
+     *
+     * @return The board once the notes not archived are on it
+     */
+    protected NoteBoardSnapshot givenNotes(NoteSpec... specs) {
+        String standInUrl = "local".equalsIgnoreCase(TARGET) ? getKeepUrl() : null;
+        return new NoteFixtures(getDriver(), getNotesPage(), standInUrl).inject(Arrays.asList(specs));
+    }
+
+    protected void open() {
+        long start = System.nanoTime();
+        getDriver().get(getKeepUrl());
+        ElementHandleCache.forDriver(getDriver()).invalidate();
+        WaitPolicy.await(WaitBudget.PAGE_LOAD,
+                () -> getWait().until(ExpectedConditions.jsReturnsValue("return document.readyState === 'complete'")));
+        PageLoadMetrics.record(getDriver(), System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the URL of the Keep app for the selected target, starting the
+     * local stand-in on first use when running against localhost. Locally each
+     * worker gets its own account, so parallel tests never share a board.
+     */
+    protected String getKeepUrl() {
+        if ("local".equalsIgnoreCase(TARGET)) {
+            return KeepStandInServer.shared().getAppUrl(getWorkerIndex());
         }
+        return GOOGLE_KEEP_URL;
     }
 
     private ChromeOptions configureChromeOptions() {
         ChromeOptions options = new ChromeOptions();
-        String tempProfile = "C:\\temp\\chrome_profile";
-        new File(tempProfile).mkdirs();
-
         options.addArguments(
-                "user-data-dir=" + tempProfile,
+                "--no-first-run",
+                "--no-default-browser-check",
                 "--remote-allow-origins=*",
                 "--start-maximized",
                 "--disable-extensions",
@@ -62,16 +366,125 @@ public class BaseTest {
     }
 
     private void initializeDriver(ChromeOptions options) {
-        System.setProperty("webdriver.chrome.driver", "C:\\chromedriver-win64\\chromedriver.exe");
-        driver = new ChromeDriver(options);
+        long start = System.nanoTime();
+        WebDriver chrome = ChromeLifecycle.launch(options, true);
+        CommandTimings.record("newSession", "BaseTest.initializeDriver", System.nanoTime() - start, false);
+        // Installed before decorating, so its CDP setup is not timed as test commands
+        NetworkPolicy.fromSystemProperty().applyTo(chrome);
+        installDriver(chrome);
+    }
+
+    /**
+     * Wraps the driver with the timing and coverage listeners and binds it to the current thread.
+     */
+    private void installDriver(WebDriver raw) {
+        WebDriver driver = new EventFiringDecorator<>(new CommandTimingListener(), new CoverageListener()).decorate(raw);
         driver.manage().timeouts().implicitlyWait(IMPLICIT_WAIT);
-        wait = new WebDriverWait(driver, EXPLICIT_WAIT);
+        driver.manage().timeouts().scriptTimeout(SCRIPT_TIMEOUT);
+        DRIVER.set(driver);
+        WAIT.set(new WebDriverWait(driver, EXPLICIT_WAIT));
+        SESSIONS.add(driver);
     }
 
-    @AfterMethod
-    public void tearDown() {
-        if (driver != null) {
-            //driver.quit();
+    @AfterMethod(alwaysRun = true)
+    public void tearDown(ITestResult result) {
+        CommandTimings.endTest();
+        PageObjectCoverage.endTest();
+        WebDriver driver = getDriver();
+        if (result.getStatus() == ITestResult.FAILURE) {
+            FailureArtifacts.capture(driver, result.getTestClass().getRealClass().getSimpleName() + "."
+                    + result.getMethod().getMethodName(), result.getThrowable());
+        }
+        if (IN_PROCESS.get()) {
+            // Cheap to start again, so never kept; the parked Chrome session takes over
+            quitSession();
+            unparkSession();
+            return;
+        }
+        if (driver != null && !REUSE_SESSION) {
+            quitSession();
+        }
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public void tearDownSessions() {
+        if (!FailureArtifacts.flush(ARTIFACT_FLUSH_TIMEOUT)) {
+            System.out.println("Failure artifacts still pending after " + ARTIFACT_FLUSH_TIMEOUT.toSeconds() + " s");
+        }
+        if (GRID_WORKER != null || RESIDENT) {
+            // Every grid test or daemon submission is a suite of its own; the sessions are quit when the worker or daemon stops
+            return;
+        }
+        if (REUSE_SESSION) {
+            quitSessions();
+        }
+        reportMetrics();
+    }
+
+    /**
+     * Prints the suite's metrics and writes the command timing and action performance reports.
+     */
+    public static void reportMetrics() {
+        printSetupTime("new browser", LAUNCH_SETUP_NANOS, LAUNCH_SETUP_COUNT);
+        printSetupTime("reused browser", RESET_SETUP_NANOS, RESET_SETUP_COUNT);
+        printSetupTime("in-process browser", IN_PROCESS_SETUP_NANOS, IN_PROCESS_SETUP_COUNT);
+        System.out.println(LocatorMetrics.summary());
+        System.out.println(PageLoadMetrics.summary());
+        System.out.println(CommandTimings.summary(10));
+        System.out.println(CommandTimings.waitSummary(5));
+        System.out.println("Command timings written to " + CommandTimings.export().toAbsolutePath());
+        System.out.println(ActionPerformance.summary());
+        System.out.println(FailureArtifacts.summary());
+        System.out.println(ChromeLifecycle.summary());
+        System.out.println("Action performance written to " + ActionPerformance.export().toAbsolutePath());
+    }
+
+    /**
+     * Drops the metrics recorded in this JVM so far, so the next report covers only what
+     * runs after this, e.g. the next submission to a resident daemon. The page-object
+     * coverage has been saved by then ({@link ChangeImpactListener}).
+     */
+    public static void resetMetrics() {
+        for (LongAdder adder : new LongAdder[]{LAUNCH_SETUP_NANOS, LAUNCH_SETUP_COUNT, RESET_SETUP_NANOS,
+                RESET_SETUP_COUNT, IN_PROCESS_SETUP_NANOS, IN_PROCESS_SETUP_COUNT}) {
+            adder.reset();
+        }
+        LocatorMetrics.reset();
+        PageLoadMetrics.reset();
+        CommandTimings.reset();
+        ActionPerformance.reset();
+        PageObjectCoverage.reset();
+    }
+
+    /**
+     * Quits every session still open in this JVM.
+     */
+    public static void quitSessions() {
+        for (WebDriver driver : SESSIONS) {
+            ChromeLifecycle.quit(driver);
+        }
+        SESSIONS.clear();
+        DRIVER.remove();
+        WAIT.remove();
+        NOTES_PAGE.remove();
+        IN_PROCESS.remove();
+        PARKED.remove();
+    }
+
+    private static Duration longestWaitBudget() {
+        Duration longest = Duration.ZERO;
+        for (WaitBudget budget : WaitBudget.values()) {
+            if (budget.getTimeout().compareTo(longest) > 0) {
+                longest = budget.getTimeout();
+            }
+        }
+        return longest;
+    }
+
+    private static void printSetupTime(String kind, LongAdder nanos, LongAdder count) {
+        if (count.sum() > 0) {
+            System.out.printf("Per-test setup with %s: %.1f ms average over %d tests%n",
+                    kind, nanos.sum() / 1_000_000.0 / count.sum(), count.sum());
         }
     }
-}
\ No newline at end of file
+}
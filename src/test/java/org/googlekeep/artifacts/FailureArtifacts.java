@@ -0,0 +1,241 @@
+package org.googlekeep.artifacts;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Screenshots, DOM dumps and browser logs of failed tests, written off the test thread.
+ *
+ * <p>{@link #capture} takes the raw bytes on the test thread and hands them to a background
+ * writer, which gzips the DOM and log, names every artifact by its content hash so a state
+ * seen by several failures (a flaky parallel run failing on the same page) is stored once,
+ * and writes a JSON manifest per failure pointing at the artifacts. The queue in between
+ * holds {@value #DEFAULT_QUEUE_CAPACITY} captures (or {@code -Dkeep.artifacts.queue}); when
+ * it is full the failing test waits for room rather than piling up memory, and that wait is
+ * reported. {@link #flush(Duration)} waits for everything queued, and runs at suite end.
+ *
+ * <p>Artifacts go to {@value #DEFAULT_DIR} (or {@code -Dkeep.artifacts.dir}), the shared ones
+ * under {@code blobs/}; {@code -Dkeep.artifacts=false} turns capturing off.
+ */
+public final class FailureArtifacts {
+    public static final String DEFAULT_DIR = "target/failure-artifacts";
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("keep.artifacts", "true"));
+    private static final Path DIR = Paths.get(System.getProperty("keep.artifacts.dir", DEFAULT_DIR));
+    private static final ThreadPoolExecutor WRITER = newWriter(Integer.getInteger("keep.artifacts.queue", DEFAULT_QUEUE_CAPACITY));
+    private static final Set<String> WRITTEN_BLOBS = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    private static final Object PENDING_LOCK = new Object();
+    private static final LongAdder CAPTURES = new LongAdder();
+    private static final LongAdder CAPTURE_NANOS = new LongAdder();
+    private static final LongAdder BACKPRESSURE_NANOS = new LongAdder();
+    private static final LongAdder DEDUPED = new LongAdder();
+    private static final LongAdder BYTES_WRITTEN = new LongAdder();
+    private static final LongAdder WRITE_ERRORS = new LongAdder();
+    private static int pending;
+
+    private FailureArtifacts() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Takes the failed test's browser state and queues it for writing, waiting only if the
+     * queue is full.
+     */
+    public static void capture(WebDriver driver, String testName, Throwable failure) {
+        if (!ENABLED || driver == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        FailureCapture capture = FailureCapture.take(driver, testName, failure);
+        CAPTURE_NANOS.add(System.nanoTime() - start);
+        CAPTURES.increment();
+        synchronized (PENDING_LOCK) {
+            pending++;
+        }
+        try {
+            WRITER.execute(() -> {
+                try {
+                    write(capture);
+                } catch (IOException | RuntimeException e) {
+                    WRITE_ERRORS.increment();
+                    System.out.println("Failure artifact warning (" + capture.testName + "): " + e.getMessage());
+                } finally {
+                    done();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            done();
+            System.out.println("Failure artifact warning (" + testName + "): " + e.getMessage());
+        }
+    }
+
+    private static void done() {
+        synchronized (PENDING_LOCK) {
+            pending--;
+            PENDING_LOCK.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until every queued capture is written, or the timeout is up.
+     *
+     * @return false if captures were still pending at the timeout
+     */
+    public static boolean flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (PENDING_LOCK) {
+            while (pending > 0) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(PENDING_LOCK, left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public static Path getDirectory() {
+        return DIR;
+    }
+
+    public static String summary() {
+        long captures = CAPTURES.sum();
+        if (captures == 0) {
+            return "Failure artifacts: no failures captured";
+        }
+        return String.format("Failure artifacts: %d failures, %.1f ms per capture on the test thread, "
+                        + "%.1f ms waiting for the queue, %d artifacts deduplicated, %.1f KB written, %d write errors",
+                captures, CAPTURE_NANOS.sum() / 1e6 / captures, BACKPRESSURE_NANOS.sum() / 1e6,
+                DEDUPED.sum(), BYTES_WRITTEN.sum() / 1024.0, WRITE_ERRORS.sum());
+    }
+
+    private static void write(FailureCapture capture) throws IOException {
+        Path blobs = DIR.resolve("blobs");
+        Files.createDirectories(blobs);
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("test", capture.testName);
+        manifest.put("failedAt", capture.failedAt.toString());
+        manifest.put("url", capture.url);
+        manifest.put("failure", capture.failure);
+        Map<String, String> artifacts = new LinkedHashMap<>();
+        if (capture.screenshot != null) {
+            // PNG is compressed already
+            artifacts.put("screenshot", writeBlob(blobs, capture.screenshot, ".png", false));
+        }
+        if (capture.dom != null) {
+            artifacts.put("dom", writeBlob(blobs, capture.dom, ".html.gz", true));
+        }
+        if (capture.browserLog != null && capture.browserLog.length > 0) {
+            artifacts.put("browserLog", writeBlob(blobs, capture.browserLog, ".log.gz", true));
+        }
+        manifest.put("artifacts", artifacts);
+        String name = capture.testName.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + SEQUENCE.incrementAndGet() + ".json";
+        byte[] json = new Json().toJson(manifest).getBytes(StandardCharsets.UTF_8);
+        Files.write(DIR.resolve(name), json);
+        BYTES_WRITTEN.add(json.length);
+    }
+
+    /**
+     * Writes the bytes under their content hash unless an identical artifact is already there.
+     *
+     * @return The artifact's path relative to the artifact directory
+     */
+    private static String writeBlob(Path blobs, byte[] content, String extension, boolean gzip) throws IOException {
+        String name = sha256(content) + extension;
+        if (!WRITTEN_BLOBS.add(name)) {
+            DEDUPED.increment();
+            return "blobs/" + name;
+        }
+        byte[] bytes = gzip ? gzip(content) : content;
+        try {
+            Files.write(blobs.resolve(name), bytes, StandardOpenOption.CREATE_NEW);
+            BYTES_WRITTEN.add(bytes.length);
+        } catch (FileAlreadyExistsException e) {
+            // Left by an earlier run with the same content
+            DEDUPED.increment();
+        } catch (IOException e) {
+            WRITTEN_BLOBS.remove(name);
+            throw e;
+        }
+        return "blobs/" + name;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+            zip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder();
+            // 16 bytes of the digest are plenty to tell a suite's artifacts apart
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * One writer thread behind a bounded queue; a full queue makes the submitting test
+     * thread wait for room instead of dropping the capture or running it inline.
+     */
+    private static ThreadPoolExecutor newWriter(int capacity) {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), task -> {
+            Thread thread = new Thread(task, "failure-artifact-writer");
+            thread.setDaemon(true);
+            return thread;
+        }, (task, pool) -> {
+            long start = System.nanoTime();
+            try {
+                pool.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while queuing the capture", e);
+            } finally {
+                BACKPRESSURE_NANOS.add(System.nanoTime() - start);
+            }
+        });
+    }
+}
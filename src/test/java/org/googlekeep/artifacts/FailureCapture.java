@@ -0,0 +1,70 @@
+package org.googlekeep.artifacts;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * The raw bytes of a failed test's browser state: a screenshot, the DOM and the browser
+ * console log, each null if the driver could not provide it. Taking them is all a test
+ * thread does; everything else happens on the {@link FailureArtifacts} writer.
+ */
+final class FailureCapture {
+    final String testName;
+    final Instant failedAt;
+    final String url;
+    final String failure;
+    final byte[] screenshot;
+    final byte[] dom;
+    final byte[] browserLog;
+
+    private FailureCapture(String testName, Instant failedAt, String url, String failure,
+                           byte[] screenshot, byte[] dom, byte[] browserLog) {
+        this.testName = testName;
+        this.failedAt = failedAt;
+        this.url = url;
+        this.failure = failure;
+        this.screenshot = screenshot;
+        this.dom = dom;
+        this.browserLog = browserLog;
+    }
+
+    static FailureCapture take(WebDriver driver, String testName, Throwable failure) {
+        String url = null;
+        byte[] screenshot = null;
+        byte[] dom = null;
+        byte[] browserLog = null;
+        try {
+            url = driver.getCurrentUrl();
+        } catch (WebDriverException e) {
+            // A dead session still gets its failure recorded
+        }
+        try {
+            screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+        } catch (WebDriverException | ClassCastException e) {
+            System.out.println("Failure screenshot warning: " + e.getMessage());
+        }
+        try {
+            dom = driver.getPageSource().getBytes(StandardCharsets.UTF_8);
+        } catch (WebDriverException e) {
+            System.out.println("Failure DOM warning: " + e.getMessage());
+        }
+        try {
+            StringBuilder log = new StringBuilder();
+            for (LogEntry entry : driver.manage().logs().get(LogType.BROWSER)) {
+                log.append(entry).append('\n');
+            }
+            browserLog = log.toString().getBytes(StandardCharsets.UTF_8);
+        } catch (WebDriverException | UnsupportedOperationException e) {
+            // Not every driver keeps a browser log
+        }
+        return new FailureCapture(testName, Instant.now(), url, failure == null ? null : failure.toString(),
+                screenshot, dom, browserLog);
+    }
+}
@@ -0,0 +1,280 @@
+package org.googlekeep.browser;
+
+import org.googlekeep.waits.WaitBudget;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.remote.service.DriverFinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Launches and quits the Chrome browsers of this JVM, and cleans up after them only.
+ *
+ * <p>Every session goes through one chromedriver, started with the first launch and stopped
+ * when the JVM exits, so a launch only pays for the browser. With a profile, a session gets
+ * its own copy of the logged-in template {@code -Dkeep.chrome.profile} ({@link ProfileTemplate}),
+ * cloned under {@code -Dkeep.chrome.profiles}. {@code -Dkeep.chromedriver} points at the
+ * chromedriver binary; when it does not exist, Selenium Manager finds one.
+ *
+ * <p>The browser process each launch starts is recorded. {@link #quit} waits up to
+ * {@link WaitBudget#BROWSER_EXIT} for it to exit after the session is quit and kills it and
+ * its children if it does not, so browsers never pile up; the ones still running when the
+ * JVM exits are reaped the same way. Nothing this JVM did not start is touched, so runs
+ * sharing the machine keep their browsers.
+ */
+public final class ChromeLifecycle {
+    public static final String DEFAULT_TEMPLATE = "C:\\temp\\chrome_profile";
+    public static final String DEFAULT_CHROMEDRIVER = "C:\\chromedriver-win64\\chromedriver.exe";
+
+    private static final File CHROMEDRIVER = new File(System.getProperty("keep.chromedriver", DEFAULT_CHROMEDRIVER));
+    private static final ProfileTemplate PROFILES = new ProfileTemplate(
+            Paths.get(System.getProperty("keep.chrome.profile", DEFAULT_TEMPLATE)),
+            Paths.get(System.getProperty("keep.chrome.profiles",
+                    Paths.get(System.getProperty("java.io.tmpdir"), "keep-chrome-profiles").toString())));
+    private static final Map<WebDriver, Browser> BROWSERS = new ConcurrentHashMap<>();
+    private static final Set<Long> CLAIMED = ConcurrentHashMap.newKeySet();
+    private static final LongAdder LAUNCHES = new LongAdder();
+    private static final LongAdder LAUNCH_NANOS = new LongAdder();
+    private static final LongAdder PROFILE_NANOS = new LongAdder();
+    private static final LongAdder UNTRACKED = new LongAdder();
+    private static final LongAdder KILLED = new LongAdder();
+
+    private static SharedService service;
+    private static volatile ProcessHandle chromedriver;
+    private static String browserBinary;
+
+    /**
+     * A launched browser: its process, when it could be told apart, and its profile clone.
+     */
+    private static final class Browser {
+        final ProcessHandle process;
+        final Path profile;
+
+        Browser(ProcessHandle process, Path profile) {
+            this.process = process;
+            this.profile = profile;
+        }
+    }
+
+    private ChromeLifecycle() {
+    }
+
+    /**
+     * Starts a browser on the shared chromedriver.
+     *
+     * @param withProfile True to run it on a clone of the template profile, false for a
+     *                    throwaway profile of Chrome's own, e.g. for headless load tests
+     */
+    public static ChromeDriver launch(ChromeOptions options, boolean withProfile) {
+        long start = System.nanoTime();
+        Path profile = null;
+        if (withProfile) {
+            profile = PROFILES.take();
+            options.addArguments("--user-data-dir=" + profile);
+            PROFILE_NANOS.add(System.nanoTime() - start);
+        }
+        ChromeDriver driver;
+        Set<Long> running;
+        try {
+            ChromeDriverService shared = service(options);
+            if (browserBinary != null) {
+                options.setBinary(browserBinary);
+            }
+            running = browserProcesses().stream().map(ProcessHandle::pid).collect(Collectors.toSet());
+            driver = new ChromeDriver(shared, options);
+        } catch (RuntimeException e) {
+            if (profile != null) {
+                PROFILES.discard(profile);
+            }
+            throw e;
+        }
+        BROWSERS.put(driver, new Browser(claimBrowser(running, profile), profile));
+        LAUNCH_NANOS.add(System.nanoTime() - start);
+        LAUNCHES.increment();
+        return driver;
+    }
+
+    /**
+     * Quits the session, decorated or not, and makes sure its browser is gone. Drivers not
+     * launched here are only quit.
+     */
+    public static void quit(WebDriver driver) {
+        Browser browser = BROWSERS.remove(Drivers.unwrap(driver));
+        List<ProcessHandle> children = browser != null && browser.process != null
+                ? browser.process.descendants().collect(Collectors.toList()) : List.of();
+        try {
+            driver.quit();
+        } catch (WebDriverException e) {
+            System.out.println("Session quit warning: " + e.getMessage());
+        }
+        if (browser != null) {
+            reap(browser, children);
+        }
+    }
+
+    /**
+     * Quits the sessions still open, reaps their browsers and stops the shared chromedriver.
+     * Runs when the JVM exits.
+     */
+    public static synchronized void shutdown() {
+        for (WebDriver driver : BROWSERS.keySet()) {
+            quit(driver);
+        }
+        if (service != null) {
+            List<ProcessHandle> left = chromedriver != null
+                    ? chromedriver.descendants().collect(Collectors.toList()) : List.of();
+            service.shutdown();
+            for (ProcessHandle process : left) {
+                if (process.destroyForcibly()) {
+                    KILLED.increment();
+                }
+            }
+            service = null;
+            chromedriver = null;
+        }
+        PROFILES.close();
+    }
+
+    public static String summary() {
+        long launches = LAUNCHES.sum();
+        if (launches == 0) {
+            return "Chrome: no browsers launched";
+        }
+        return String.format("Chrome: %d browsers launched, %.1f ms per launch (%.1f ms for the profile), "
+                        + "%d not tracked by process, %d processes killed after outliving their session",
+                launches, LAUNCH_NANOS.sum() / 1e6 / launches, PROFILE_NANOS.sum() / 1e6 / launches,
+                UNTRACKED.sum(), KILLED.sum());
+    }
+
+    private static synchronized ChromeDriverService service(ChromeOptions options) {
+        if (service == null) {
+            SharedService started = (SharedService) new SharedService.Builder().usingAnyFreePort().build();
+            if (CHROMEDRIVER.isFile()) {
+                started.setExecutable(CHROMEDRIVER.getAbsolutePath());
+            } else {
+                DriverFinder finder = new DriverFinder(started, options);
+                started.setExecutable(finder.getDriverPath());
+                browserBinary = finder.hasBrowserPath() ? finder.getBrowserPath() : null;
+            }
+            Set<Long> children = ProcessHandle.current().children().map(ProcessHandle::pid).collect(Collectors.toSet());
+            try {
+                started.start();
+            } catch (IOException e) {
+                throw new WebDriverException("Could not start chromedriver", e);
+            }
+            chromedriver = ProcessHandle.current().children()
+                    .filter(process -> !children.contains(process.pid()))
+                    .filter(process -> process.info().command()
+                            .map(command -> command.toLowerCase(Locale.ROOT).contains("chromedriver")).orElse(false))
+                    .findFirst().orElse(null);
+            service = started;
+            Runtime.getRuntime().addShutdownHook(new Thread(ChromeLifecycle::shutdown, "chrome-lifecycle-shutdown"));
+        }
+        return service;
+    }
+
+    private static List<ProcessHandle> browserProcesses() {
+        return chromedriver != null ? chromedriver.children().collect(Collectors.toList()) : List.of();
+    }
+
+    /**
+     * Picks the browser a launch started out of the chromedriver's new children: the one
+     * named by the profile directory on its command line, or the only one nobody claimed.
+     * Launches running side by side without command lines to tell them apart stay
+     * untracked rather than risk reaping another session's browser.
+     */
+    private static synchronized ProcessHandle claimBrowser(Set<Long> running, Path profile) {
+        List<ProcessHandle> started = browserProcesses().stream()
+                .filter(process -> !running.contains(process.pid()) && !CLAIMED.contains(process.pid()))
+                .collect(Collectors.toList());
+        ProcessHandle browser = null;
+        if (profile != null) {
+            String dir = profile.toString();
+            browser = started.stream()
+                    .filter(process -> process.info().commandLine().map(line -> line.contains(dir)).orElse(false))
+                    .findFirst().orElse(null);
+        }
+        if (browser == null && started.size() == 1) {
+            browser = started.get(0);
+        }
+        if (browser != null) {
+            CLAIMED.add(browser.pid());
+        } else {
+            UNTRACKED.increment();
+        }
+        return browser;
+    }
+
+    private static void reap(Browser browser, List<ProcessHandle> children) {
+        if (browser.process != null) {
+            try {
+                browser.process.onExit().get(WaitBudget.BROWSER_EXIT.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                browser.process.destroyForcibly();
+                KILLED.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // onExit never fails; the process is gone either way
+            }
+            for (ProcessHandle child : children) {
+                if (child.isAlive() && child.destroyForcibly()) {
+                    KILLED.increment();
+                }
+            }
+            CLAIMED.remove(browser.process.pid());
+        }
+        if (browser.profile != null) {
+            PROFILES.discard(browser.profile);
+        }
+    }
+
+    /**
+     * A chromedriver that outlives the sessions it serves: the driver stops its service when
+     * a session quits, which would end every other session on it.
+     */
+    private static final class SharedService extends ChromeDriverService {
+        SharedService(File executable, int port, Duration timeout, List<String> args,
+                      Map<String, String> environment) throws IOException {
+            super(executable, port, timeout, args, environment);
+        }
+
+        @Override
+        public void stop() {
+            // Stopped by shutdown() when the JVM exits
+        }
+
+        void shutdown() {
+            super.stop();
+        }
+
+        static final class Builder extends ChromeDriverService.Builder {
+            @Override
+            protected ChromeDriverService createDriverService(File executable, int port, Duration timeout,
+                                                              List<String> args, Map<String, String> environment) {
+                try {
+                    return new SharedService(executable, port, timeout, args, environment);
+                } catch (IOException e) {
+                    throw new WebDriverException(e);
+                }
+            }
+        }
+    }
+}
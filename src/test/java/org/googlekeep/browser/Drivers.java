@@ -0,0 +1,24 @@
+package org.googlekeep.browser;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WrapsDriver;
+
+/**
+ * Helpers for the drivers the tests hand around, which are often decorated.
+ */
+public final class Drivers {
+    private Drivers() {
+    }
+
+    /**
+     * Returns the driver under every decorator, e.g. the ChromeDriver under the command
+     * timings, to reach the interfaces a decorator does not pass on, such as {@code HasCdp}.
+     */
+    public static WebDriver unwrap(WebDriver driver) {
+        WebDriver current = driver;
+        while (current instanceof WrapsDriver) {
+            current = ((WrapsDriver) current).getWrappedDriver();
+        }
+        return current;
+    }
+}
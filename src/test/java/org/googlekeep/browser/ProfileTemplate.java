@@ -0,0 +1,176 @@
+package org.googlekeep.browser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Chrome user data directories cloned from a template profile, one per session.
+ *
+ * <p>The template is a profile that is already logged in. It is copied once into a snapshot,
+ * without its caches and lock files, and every session gets a fresh copy of the snapshot,
+ * so sessions never share a directory Chrome has locked nor inherit another session's state.
+ * One clone is kept ready in the background, so a launch usually only takes it, and a
+ * session's clone is deleted in the background once its browser is gone.
+ */
+final class ProfileTemplate {
+    // Rebuilt by Chrome on demand, or only valid for the browser that wrote them
+    private static final Set<String> SKIPPED = Set.of(
+            "SingletonLock", "SingletonCookie", "SingletonSocket", "lockfile",
+            "Cache", "Code Cache", "GPUCache", "GrShaderCache", "ShaderCache", "DawnCache",
+            "DawnGraphiteCache", "DawnWebGPUCache", "CacheStorage", "Crashpad", "BrowserMetrics",
+            "component_crx_cache", "optimization_guide_model_store");
+
+    private static final String ROOT_PREFIX = "jvm-";
+
+    private final Path template;
+    private final Path base;
+    private final Path root;
+    private final ExecutorService background = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "chrome-profile-cloner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger sequence = new AtomicInteger();
+    private Path snapshot;
+    private CompletableFuture<Path> spare;
+
+    /**
+     * @param template The logged-in profile to clone
+     * @param base     Directory for the clones; every JVM uses a directory of its own under it
+     */
+    ProfileTemplate(Path template, Path base) {
+        this.template = template;
+        this.base = base;
+        this.root = base.resolve(ROOT_PREFIX + ProcessHandle.current().pid());
+    }
+
+    /**
+     * Returns a new profile directory for one session, and starts preparing the next.
+     */
+    synchronized Path take() {
+        if (snapshot == null) {
+            snapshot = root.resolve("snapshot");
+            deleteAbandoned();
+            copy(template, snapshot);
+            if (!Files.isDirectory(template)) {
+                System.out.println("Chrome profile template " + template + " not found, sessions start logged out");
+            }
+        }
+        Path profile = spare != null ? spare.join() : cloneSnapshot();
+        spare = CompletableFuture.supplyAsync(this::cloneSnapshot, background);
+        return profile;
+    }
+
+    /**
+     * Deletes a session's profile directory in the background.
+     */
+    void discard(Path profile) {
+        background.execute(() -> delete(profile));
+    }
+
+    /**
+     * Deletes the snapshot and every clone still on disk.
+     */
+    synchronized void close() {
+        background.shutdownNow();
+        delete(root);
+    }
+
+    /**
+     * Deletes the clones of JVMs that are gone, and leaves the ones of JVMs still running.
+     */
+    private void deleteAbandoned() {
+        if (!Files.isDirectory(base)) {
+            return;
+        }
+        try (Stream<Path> roots = Files.list(base)) {
+            roots.filter(dir -> {
+                String name = dir.getFileName().toString();
+                if (!name.startsWith(ROOT_PREFIX)) {
+                    return false;
+                }
+                try {
+                    return ProcessHandle.of(Long.parseLong(name.substring(ROOT_PREFIX.length()))).isEmpty();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }).forEach(ProfileTemplate::delete);
+        } catch (IOException e) {
+            System.out.println("Profile cleanup warning: " + e.getMessage());
+        }
+    }
+
+    private Path cloneSnapshot() {
+        Path profile = root.resolve("session-" + sequence.incrementAndGet());
+        copy(snapshot, profile);
+        return profile;
+    }
+
+    private static void copy(Path from, Path to) {
+        try {
+            Files.createDirectories(to);
+            if (!Files.isDirectory(from)) {
+                return;
+            }
+            Files.walkFileTree(from, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(from) && SKIPPED.contains(dir.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    Files.createDirectories(to.resolve(from.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && !SKIPPED.contains(file.getFileName().toString())) {
+                        try {
+                            Files.copy(file, to.resolve(from.relativize(file).toString()), StandardCopyOption.COPY_ATTRIBUTES);
+                        } catch (IOException e) {
+                            // A file the template's own browser holds open; the clone does without it
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not clone Chrome profile " + from + " to " + to, e);
+        }
+    }
+
+    private static void delete(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    // Left behind, and deleted by the first run after this JVM is gone
+                }
+            });
+        } catch (NoSuchFileException e) {
+            // Nothing to delete
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Profile cleanup warning: " + e.getMessage());
+        }
+    }
+}
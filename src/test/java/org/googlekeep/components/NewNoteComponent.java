@@ -1,7 +1,12 @@
 package org.googlekeep.components;
 
+import org.googlekeep.locators.CachingFieldDecorator;
+import org.googlekeep.locators.ElementHandleCache;
+import org.googlekeep.model.NoteSpec;
+import org.openqa.selenium.Keys;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.FindBy;
 import org.openqa.selenium.support.PageFactory;
 
@@ -20,9 +25,15 @@ public class NewNoteComponent {
     @FindBy(xpath = "//div[@role='button' and text()='Close']")
     private WebElement closeNoteBtn;
 
+    @FindBy(xpath = "//div[@aria-label='New list']")
+    private WebElement newListBtn;
+
+    @FindBy(xpath = "//div[@role='textbox'][@aria-label='List item']")
+    private WebElement listItemField;
+
     public NewNoteComponent(WebDriver driver) {
         this.driver = driver;
-        PageFactory.initElements(driver, this);
+        PageFactory.initElements(new CachingFieldDecorator(driver, ElementHandleCache.forDriver(driver)), this);
     }
 
     public void clickNewNote() {
@@ -30,11 +41,14 @@ public class NewNoteComponent {
     }
 
     public void setTitle(String title) {
-        titleField.sendKeys(title);
+        TextEntry.enter(driver, titleField, title);
     }
 
+    /**
+     * Enters the body, inserting long runs of text in bulk ({@link TextEntry}).
+     */
     public void setBody(String body) {
-        bodyField.sendKeys(body);
+        TextEntry.enter(driver, bodyField, body);
     }
 
     public void close() {
@@ -51,4 +65,56 @@ public class NewNoteComponent {
         setTitle(title);
         close();
     }
-}
\ No newline at end of file
+
+    public void createNote(String title, String body) {
+        clickNewNote();
+        setTitle(title);
+        setBody(body);
+        close();
+    }
+
+    /**
+     * Appends the clicks and keystrokes that create the note to the chain, without
+     * performing it. A whole note then costs one actions round trip instead of a
+     * command per click and per field. The chain types every character, so a note with
+     * long text is better off with {@link #typeNote(NoteSpec)}.
+     *
+     * @param actions The chain to extend
+     * @param spec    The note to create; labels and color are not part of the composer
+     * @return The same chain
+     */
+    public Actions queueNote(Actions actions, NoteSpec spec) {
+        actions.click(spec.isChecklist() ? newListBtn : newNoteInput)
+                .click(titleField)
+                .sendKeys(spec.getTitle());
+        if (spec.isChecklist()) {
+            actions.click(listItemField);
+            for (String item : spec.getChecklistItems()) {
+                actions.sendKeys(item).sendKeys(Keys.ENTER);
+            }
+        } else if (!spec.getBody().isEmpty()) {
+            actions.click(bodyField).sendKeys(spec.getBody());
+        }
+        return actions.click(closeNoteBtn);
+    }
+
+    /**
+     * Creates the note with one command per click and field, for drivers whose
+     * keyboard actions don't reach a focused contenteditable (HtmlUnit, for one), and for
+     * notes whose long text {@link TextEntry} inserts in bulk.
+     *
+     * @param spec The note to create; labels and color are not part of the composer
+     */
+    public void typeNote(NoteSpec spec) {
+        (spec.isChecklist() ? newListBtn : newNoteInput).click();
+        setTitle(spec.getTitle());
+        if (spec.isChecklist()) {
+            for (String item : spec.getChecklistItems()) {
+                TextEntry.enter(driver, listItemField, item, Keys.ENTER);
+            }
+        } else if (!spec.getBody().isEmpty()) {
+            setBody(spec.getBody());
+        }
+        close();
+    }
+}
@@ -1,9 +1,12 @@
 package org.googlekeep.components;
 
+import org.googlekeep.locators.LocatorRegistry;
+import org.googlekeep.model.NoteSpec;
 import org.openqa.selenium.By;
 import org.openqa.selenium.Keys;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
@@ -13,33 +16,49 @@ import java.time.Duration;
  * Component representing a single note card in Google Keep.
  */
 public class NoteCardComponent extends BaseComponent {
+    // Scoped to the card root, so the browser only matches within this card's subtree
+    private static final By PIN_BUTTON = By.cssSelector("div[role='button'][aria-label*='Pin note']");
+    private static final By PIN_TOGGLE = By.cssSelector(
+            "div[role='button'][aria-label*='Pin note'], div[role='button'][aria-label*='Unpin note']");
+    private static final By ARCHIVE_BUTTON = By.cssSelector("div[role='button'][aria-label='Archive']");
+    private static final By MORE_BUTTON = By.cssSelector("div[role='button'][aria-label='More']");
+    // Matches on the item's own text, which CSS can't express
+    private static final By DELETE_MENU_ITEM = By.xpath("//div[@role='menu']//div[text()='Delete note']");
+    private static final By ADD_LABEL_MENU_ITEM = By.xpath("//div[@role='menuitem'][.//div[contains(text(),'Add label')]]");
+    private static final By LABEL_INPUT = By.cssSelector("input[aria-label='Enter label name']");
+    private static final By TEXTBOX = By.xpath("//div[@role='textbox']");
+    private static final By BACKGROUND_OPTIONS = By.cssSelector("div[aria-label='Background options']");
+    private static final String COLOR_OPTION = "div[aria-label='%s']";
 
     public NoteCardComponent(WebDriver driver, WebElement root) {
         super(driver, root);
     }
 
-    public static By byNoteCardTitle(String titleText) {
-        return By.xpath(String.format("//div[contains(@class,'IZ65Hb-n0tgWb')][.//div[@role='textbox' and contains(.,'%s')]]", titleText));
-    }
-
     public void clickPin() {
-        root.findElement(By.xpath(".//div[@role='button'][contains(@aria-label,'Pin note')]"))
+        root.findElement(PIN_BUTTON)
                 .click();
     }
 
+    /**
+     * Returns the pin toggle, whether the note is currently pinned or not.
+     */
+    public WebElement getPinButton() {
+        return root.findElement(PIN_TOGGLE);
+    }
+
     public void clickArchive() {
-        root.findElement(By.xpath(".//div[@role='button'][@aria-label='Archive']"))
+        root.findElement(ARCHIVE_BUTTON)
                 .click();
     }
 
     public void openMoreMenu() {
-        root.findElement(By.xpath(".//div[@role='button'][@aria-label='More']"))
+        root.findElement(MORE_BUTTON)
                 .click();
     }
 
     public void deleteFromMenu() {
         openMoreMenu();
-        root.findElement(By.xpath("//div[@role='menu']//div[text()='Delete note']"))
+        root.findElement(DELETE_MENU_ITEM)
                 .click();
     }
     
@@ -48,7 +67,7 @@ public class NoteCardComponent extends BaseComponent {
     }
 
     public void updateTitle(String newTitle) {
-        root.findElement(By.xpath("//div[@role='textbox']")).sendKeys(newTitle);
+        root.findElement(TEXTBOX).sendKeys(newTitle);
     }
 
     public void open(){
@@ -57,12 +76,53 @@ public class NoteCardComponent extends BaseComponent {
 
     public void changeColorTo(String colorName) {
         // Click the background options button
-        WebElement colorBtn = root.findElement(By.xpath(".//div[@aria-label='Background options']"));
+        WebElement colorBtn = root.findElement(BACKGROUND_OPTIONS);
         colorBtn.click();
 
         // Select the color (using a simple color mapping)
-        String colorLabel = colorName.equals("default") ? "Default color" : colorName.substring(0, 1).toUpperCase() + colorName.substring(1);
-        WebElement colorOption = root.findElement(By.xpath(String.format(".//div[@aria-label='%s']", colorLabel)));
-        colorOption.click();
+        getColorOption(colorName).click();
+    }
+
+    /**
+     * Returns the palette swatch of the color, which is in the DOM while the palette is closed.
+     */
+    public WebElement getColorOption(String colorName) {
+        return root.findElement(LocatorRegistry.css(COLOR_OPTION, colorLabel(colorName)));
+    }
+
+    /**
+     * Appends the clicks and keystrokes that apply the spec's labels, color, pin and
+     * archive state to this card, without performing them. The menu item, label input and palette swatch are
+     * resolved up front, so they must already be in the DOM (hidden is fine).
+     *
+     * @param actions The chain to extend
+     * @param spec    The note whose labels and color to apply
+     * @return The same chain
+     */
+    public Actions queueChanges(Actions actions, NoteSpec spec) {
+        if (!spec.getLabels().isEmpty()) {
+            actions.click(root.findElement(MORE_BUTTON))
+                    .click(driver.findElement(ADD_LABEL_MENU_ITEM))
+                    .click(driver.findElement(LABEL_INPUT));
+            for (String label : spec.getLabels()) {
+                actions.sendKeys(label).sendKeys(Keys.ENTER);
+            }
+            actions.sendKeys(Keys.ESCAPE);
+        }
+        if (spec.getColor() != null) {
+            actions.click(root.findElement(BACKGROUND_OPTIONS))
+                    .click(root.findElement(LocatorRegistry.css(COLOR_OPTION, colorLabel(spec.getColor()))));
+        }
+        if (spec.isPinned()) {
+            actions.click(root.findElement(PIN_BUTTON));
+        }
+        if (spec.isArchived()) {
+            actions.click(root.findElement(ARCHIVE_BUTTON));
+        }
+        return actions;
+    }
+
+    private static String colorLabel(String colorName) {
+        return colorName.equals("default") ? "Default color" : colorName.substring(0, 1).toUpperCase() + colorName.substring(1);
     }
 }
\ No newline at end of file
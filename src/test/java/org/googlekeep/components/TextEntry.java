@@ -0,0 +1,149 @@
+package org.googlekeep.components;
+
+import org.googlekeep.browser.Drivers;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.Keys;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Enters text into a field like {@code sendKeys}, but inserts long text in one step.
+ *
+ * <p>{@code sendKeys} types a string one key event at a time, so a long note body costs
+ * seconds to minutes. Runs of plain text of {@value #DEFAULT_BULK_THRESHOLD} characters or
+ * more (or {@code -Dkeep.input.bulk-threshold}) are inserted the way an IME commit or a
+ * paste delivers them instead: on Chrome with the DevTools {@code Input.insertText}
+ * command, elsewhere with the page's {@code insertText} editing command, or failing that
+ * by appending the text and dispatching {@code beforeinput} and {@code input} events
+ * ({@link #INSERT_SCRIPT}). Either way the field gets the input events the app saves
+ * content on. A line break is still an Enter key press, and shorter text and {@link Keys}
+ * still go through {@code sendKeys}, batched into as few calls as possible.
+ *
+ * <p>{@code -Dkeep.input.mode=keys} types everything, {@code bulk} inserts any plain text.
+ */
+public final class TextEntry {
+    public static final String MODE_PROPERTY = "keep.input.mode";
+    public static final int DEFAULT_BULK_THRESHOLD = 64;
+
+    private static final String MODE = System.getProperty(MODE_PROPERTY, "auto").toLowerCase(Locale.ROOT);
+    private static final int BULK_THRESHOLD = "bulk".equals(MODE) ? 1
+            : "keys".equals(MODE) ? Integer.MAX_VALUE
+            : Integer.getInteger("keep.input.bulk-threshold", DEFAULT_BULK_THRESHOLD);
+
+    /**
+     * Focuses the field and puts the caret at the end of its content, where the
+     * inserted text goes.
+     */
+    private static final String FOCUS_SCRIPT =
+            "var el = arguments[0];" +
+            "el.focus();" +
+            "if (typeof el.setSelectionRange === 'function' && typeof el.value === 'string') {" +
+            "  el.setSelectionRange(el.value.length, el.value.length);" +
+            "} else {" +
+            "  var range = document.createRange(), selection = window.getSelection();" +
+            "  range.selectNodeContents(el); range.collapse(false);" +
+            "  selection.removeAllRanges(); selection.addRange(range);" +
+            "}";
+
+    /**
+     * Inserts the text at the end of the field with the browser's own editing command,
+     * or appends it and fires the input events the command would have.
+     */
+    private static final String INSERT_SCRIPT = FOCUS_SCRIPT +
+            "var text = arguments[1];" +
+            "try {" +
+            "  if (document.queryCommandSupported('insertText') && document.execCommand('insertText', false, text)) { return; }" +
+            "} catch (e) {}" +
+            "function fire(type) {" +
+            "  var event;" +
+            "  try { event = new InputEvent(type, {bubbles: true, inputType: 'insertText', data: text}); }" +
+            "  catch (e) { event = document.createEvent('Event'); event.initEvent(type, true, false); }" +
+            "  el.dispatchEvent(event);" +
+            "}" +
+            "fire('beforeinput');" +
+            "if (typeof el.value === 'string') { el.value += text; } else { el.appendChild(document.createTextNode(text)); }" +
+            "fire('input');";
+
+    private TextEntry() {
+    }
+
+    /**
+     * Enters the keys into the field, as {@code field.sendKeys(keysToSend)} would.
+     */
+    public static void enter(WebDriver driver, WebElement field, CharSequence... keysToSend) {
+        StringBuilder typed = new StringBuilder();
+        for (CharSequence keys : keysToSend) {
+            if (keys instanceof Keys || hasKeys(keys)) {
+                typed.append(keys);
+                continue;
+            }
+            String[] lines = keys.toString().split("\n", -1);
+            for (int i = 0; i < lines.length; i++) {
+                if (i > 0) {
+                    typed.append(Keys.ENTER);
+                }
+                if (lines[i].length() < BULK_THRESHOLD) {
+                    typed.append(lines[i]);
+                } else {
+                    flush(field, typed);
+                    insert(driver, field, lines[i]);
+                }
+            }
+        }
+        flush(field, typed);
+    }
+
+    /**
+     * Returns true if some of the text would be inserted in bulk rather than typed.
+     */
+    public static boolean isBulk(CharSequence text) {
+        if (text.length() < BULK_THRESHOLD || hasKeys(text)) {
+            return false;
+        }
+        for (String line : text.toString().split("\n")) {
+            if (line.length() >= BULK_THRESHOLD) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void flush(WebElement field, StringBuilder typed) {
+        if (typed.length() > 0) {
+            field.sendKeys(typed);
+            typed.setLength(0);
+        }
+    }
+
+    /**
+     * Inserts the text at the end of the field in one step, whatever its length. The text
+     * should be a single line without {@link Keys}; {@link #enter} splits it up that way.
+     */
+    public static void insert(WebDriver driver, WebElement field, String text) {
+        WebDriver undecorated = Drivers.unwrap(driver);
+        if (undecorated instanceof HasCdp) {
+            ((JavascriptExecutor) driver).executeScript(FOCUS_SCRIPT, field);
+            ((HasCdp) undecorated).executeCdpCommand("Input.insertText", Map.of("text", text));
+        } else {
+            ((JavascriptExecutor) driver).executeScript(INSERT_SCRIPT, field, text);
+        }
+    }
+
+    /**
+     * Returns true if the text holds a {@link Keys} code point, which only {@code sendKeys}
+     * can press.
+     */
+    private static boolean hasKeys(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '\uE000' && c <= '\uF8FF') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+package org.googlekeep.daemon;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+/**
+ * Loads the classes under the given package prefixes afresh from the test output directory,
+ * and everything else from the daemon's own class path. A new loader per run makes a
+ * recompiled test visible without restarting the daemon, while {@code BaseTest}, the page
+ * objects and the sessions they hold stay loaded once.
+ */
+final class ReloadingClassLoader extends URLClassLoader {
+    private final List<String> prefixes;
+
+    ReloadingClassLoader(URL testClasses, List<String> prefixes, ClassLoader parent) {
+        super(new URL[]{testClasses}, parent);
+        this.prefixes = prefixes;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!reloads(name)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                try {
+                    loaded = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    loaded = super.loadClass(name, false);
+                }
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+
+    private boolean reloads(String name) {
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
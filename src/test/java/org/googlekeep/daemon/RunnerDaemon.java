@@ -0,0 +1,395 @@
+package org.googlekeep.daemon;
+
+import org.googlekeep.BaseTest;
+import org.googlekeep.metrics.ActionPerformance;
+import org.googlekeep.metrics.CommandTimings;
+import org.testng.IAlterSuiteListener;
+import org.testng.IConfigurationListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.TestNG;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resident test runner: a JVM that stays up with its classes loaded, its JIT warm and a
+ * browser started per runner thread, and runs the TestNG suites and methods that thin
+ * clients ({@code org.googlekeep.Main run}) submit. A single {@code NotesTest} method then
+ * costs the test itself plus a session reset, instead of Maven, JVM startup and a Chrome
+ * launch.
+ *
+ * <p>Every runner thread owns one browser for the daemon's lifetime: the daemon turns on
+ * session reuse unless {@code -Dkeep.session.reuse} says otherwise, and sets
+ * {@value BaseTest#RESIDENT_PROPERTY} so {@link BaseTest} leaves the sessions open at
+ * the end of each suite. Submissions queue up and each runs on the next free runner. The
+ * classes under the reloaded packages (default {@code org.googlekeep.tests}) are loaded
+ * afresh from the test output directory for every submission, so a recompiled test runs
+ * without a restart; changes to {@code BaseTest}, page objects or components need one.
+ *
+ * <p>The metrics are reported and reset per submission rather than piling up for the
+ * daemon's lifetime: when a run finishes and no other is in progress, the command timing
+ * and action performance reports are written and every metric starts over. Runs that
+ * overlap on several runners share one report, written when the last of them finishes.
+ *
+ * <p>Clients connect on the loopback interface and send one command line:
+ * <ul>
+ *     <li>{@code run <target>} - a test class ({@code NotesTest} is looked up in
+ *     {@code org.googlekeep.tests}), a method ({@code NotesTest#testPinNote}) or a
+ *     TestNG suite file ({@code testng.xml}), which runs without parallelism;</li>
+ *     <li>{@code status} and {@code stop}, the latter after the runs already queued.</li>
+ * </ul>
+ * The daemon answers with plain text lines, one per finished test as it finishes, and
+ * ends a run with {@code REPORT <path>} lines for the reports written and
+ * {@code DONE passed=<n> failed=<n> skipped=<n> elapsedMs=<n>}, so the
+ * client needs nothing beyond the JDK.
+ *
+ * <p>Options: {@code --port} (default {@value #DEFAULT_PORT}), {@code --runners}, the number
+ * of runner threads and browsers (default 1), and {@code --reload}, comma-separated package
+ * prefixes to reload per submission.
+ */
+public final class RunnerDaemon {
+    public static final int DEFAULT_PORT = 7500;
+    private static final String TEST_PACKAGE = "org.googlekeep.tests.";
+    private static final int MAX_STACK_LINES = 15;
+
+    /**
+     * One client command waiting for, or being run by, a runner.
+     */
+    private static final class Submission {
+        final String target;
+        final PrintWriter out;
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Submission(String target, PrintWriter out) {
+            this.target = target;
+            this.out = out;
+        }
+
+        void send(String line) {
+            synchronized (out) {
+                out.println(line);
+                out.flush();
+            }
+        }
+    }
+
+    private static final Submission STOP = new Submission(null, null);
+
+    private final URL testClasses;
+    private final List<String> reloadPrefixes;
+    private final int runners;
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> runnerThreads = new ArrayList<>();
+    private final AtomicInteger completedRuns = new AtomicInteger();
+    private int activeRuns;
+    private final Instant startedAt = Instant.now();
+    private ServerSocket server;
+    private volatile boolean stopping;
+
+    private RunnerDaemon(URL testClasses, List<String> reloadPrefixes, int runners) {
+        this.testClasses = testClasses;
+        this.reloadPrefixes = reloadPrefixes;
+        this.runners = runners;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int port = Integer.parseInt(options.getOrDefault("port", String.valueOf(DEFAULT_PORT)));
+        int runners = Integer.parseInt(options.getOrDefault("runners", "1"));
+        List<String> reload = new ArrayList<>();
+        for (String prefix : options.getOrDefault("reload", TEST_PACKAGE).split(",")) {
+            reload.add(prefix.trim().endsWith(".") ? prefix.trim() : prefix.trim() + ".");
+        }
+        // Read by BaseTest's static initializer, so they must be set before any test class loads
+        System.setProperty(BaseTest.RESIDENT_PROPERTY, "true");
+        if (System.getProperty("keep.session.reuse") == null) {
+            System.setProperty("keep.session.reuse", "true");
+        }
+
+        URL testClasses = RunnerDaemon.class.getProtectionDomain().getCodeSource().getLocation();
+        RunnerDaemon daemon = new RunnerDaemon(testClasses, reload, runners);
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            daemon.server = server;
+            daemon.startRunners();
+            System.out.printf("Runner daemon on port %d with %d runner(s), reloading %s from %s%n",
+                    port, runners, reload, testClasses);
+            daemon.serve();
+            daemon.awaitRunners();
+        } finally {
+            BaseTest.quitSessions();
+        }
+        System.out.println("Runner daemon stopped after " + daemon.completedRuns.get() + " runs");
+        System.exit(0);
+    }
+
+    private void startRunners() {
+        for (int index = 0; index < runners; index++) {
+            Thread thread = new Thread(this::runRunner, "runner-" + index);
+            thread.setDaemon(true);
+            runnerThreads.add(thread);
+            thread.start();
+        }
+    }
+
+    private void serve() throws IOException {
+        while (!stopping) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketException e) {
+                // Closed by a stop command
+                break;
+            }
+            Thread handler = new Thread(() -> handle(socket), "daemon-client");
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    private void awaitRunners() throws InterruptedException {
+        for (int i = 0; i < runners; i++) {
+            queue.put(STOP);
+        }
+        for (Thread thread : runnerThreads) {
+            thread.join();
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            String line = in.readLine();
+            String[] command = line == null ? new String[]{""} : line.trim().split("\\s+", 2);
+            switch (command[0]) {
+                case "run":
+                    if (command.length < 2 || stopping) {
+                        out.println(stopping ? "ERROR the daemon is stopping" : "ERROR run needs a class, class#method or suite file");
+                        out.println("DONE passed=0 failed=1 skipped=0 elapsedMs=0");
+                        break;
+                    }
+                    Submission submission = new Submission(command[1].trim(), out);
+                    if (!queue.isEmpty()) {
+                        submission.send("QUEUED behind " + queue.size() + " run(s)");
+                    }
+                    queue.put(submission);
+                    submission.done.await();
+                    break;
+                case "status":
+                    out.printf("UP since %s, %d runner(s), %d run(s) queued, %d completed, reloading %s%n",
+                            startedAt, runners, queue.size(), completedRuns.get(), reloadPrefixes);
+                    break;
+                case "stop":
+                    out.println("STOPPING after " + queue.size() + " queued run(s)");
+                    stopping = true;
+                    server.close();
+                    break;
+                default:
+                    out.println("ERROR unknown command '" + line + "': expected run <target>, status or stop");
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Daemon client warning: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runRunner() {
+        if (Boolean.getBoolean("keep.session.reuse")) {
+            try {
+                BaseTest.prestartSession();
+            } catch (RuntimeException e) {
+                System.out.println(Thread.currentThread().getName() + " could not start its browser ahead: " + e.getMessage());
+            }
+        }
+        try {
+            Submission submission;
+            while ((submission = queue.take()) != STOP) {
+                try {
+                    execute(submission);
+                } finally {
+                    completedRuns.incrementAndGet();
+                    submission.done.countDown();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(Submission submission) {
+        long start = System.currentTimeMillis();
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        StreamingListener listener = new StreamingListener(submission);
+        submission.send("RUNNING " + submission.target + " on " + thread.getName());
+        synchronized (this) {
+            activeRuns++;
+        }
+        try (ReloadingClassLoader loader = new ReloadingClassLoader(testClasses, reloadPrefixes, RunnerDaemon.class.getClassLoader())) {
+            thread.setContextClassLoader(loader);
+            TestNG testng = new TestNG(false);
+            if (submission.target.endsWith(".xml")) {
+                testng.setTestSuites(List.of(submission.target));
+            } else {
+                testng.setXmlSuites(List.of(toSuite(submission.target, loader)));
+            }
+            testng.setVerbose(0);
+            testng.addListener(listener);
+            testng.run();
+            if (listener.passed.get() + listener.failed.get() + listener.skipped.get() == 0) {
+                listener.failed.incrementAndGet();
+                submission.send("ERROR no test matched " + submission.target);
+            }
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            listener.failed.incrementAndGet();
+            submission.send("ERROR " + e);
+        } finally {
+            thread.setContextClassLoader(previous);
+            reportMetrics(submission);
+        }
+        submission.send(String.format("DONE passed=%d failed=%d skipped=%d elapsedMs=%d", listener.passed.get(),
+                listener.failed.get(), listener.skipped.get(), System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Writes the reports and resets the metrics once no other run is in progress; the
+     * sessions stay open for the next submission.
+     */
+    private synchronized void reportMetrics(Submission submission) {
+        if (--activeRuns > 0) {
+            submission.send("REPORT pending until the " + activeRuns + " overlapping run(s) finish");
+            return;
+        }
+        try {
+            BaseTest.reportMetrics();
+            submission.send("REPORT " + CommandTimings.getReportPath().toAbsolutePath());
+            submission.send("REPORT " + ActionPerformance.getReportPath().toAbsolutePath());
+        } catch (RuntimeException e) {
+            submission.send("ERROR writing the reports: " + e);
+        } finally {
+            BaseTest.resetMetrics();
+        }
+    }
+
+    private static XmlSuite toSuite(String target, ClassLoader loader) throws ClassNotFoundException {
+        String[] parts = target.split("#", 2);
+        String className = parts[0].contains(".") ? parts[0] : TEST_PACKAGE + parts[0];
+        XmlSuite suite = new XmlSuite();
+        suite.setName("daemon");
+        XmlTest test = new XmlTest(suite);
+        test.setName(className.substring(className.lastIndexOf('.') + 1));
+        XmlClass xmlClass = new XmlClass(Class.forName(className, true, loader));
+        if (parts.length > 1) {
+            xmlClass.getIncludedMethods().add(new XmlInclude(parts[1]));
+        }
+        test.getXmlClasses().add(xmlClass);
+        return suite;
+    }
+
+    /**
+     * Streams every test outcome and configuration failure to the client as it happens,
+     * and keeps the runner to one thread by turning off the parallelism a suite file asks for.
+     */
+    private static final class StreamingListener implements ITestListener, IConfigurationListener, IAlterSuiteListener {
+        private final Submission submission;
+        final AtomicInteger passed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+
+        StreamingListener(Submission submission) {
+            this.submission = submission;
+        }
+
+        @Override
+        public void alter(List<XmlSuite> suites) {
+            for (XmlSuite suite : suites) {
+                suite.setParallel(XmlSuite.ParallelMode.NONE);
+                for (XmlTest test : suite.getTests()) {
+                    test.setParallel(XmlSuite.ParallelMode.NONE);
+                }
+            }
+        }
+
+        @Override
+        public void onTestSuccess(ITestResult result) {
+            passed.incrementAndGet();
+            send("PASS", result);
+        }
+
+        @Override
+        public void onTestFailure(ITestResult result) {
+            failed.incrementAndGet();
+            send("FAIL", result);
+        }
+
+        @Override
+        public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+            onTestFailure(result);
+        }
+
+        @Override
+        public void onTestSkipped(ITestResult result) {
+            skipped.incrementAndGet();
+            send("SKIP", result);
+        }
+
+        @Override
+        public void onConfigurationFailure(ITestResult result) {
+            // A broken setup fails the run instead of hiding as skipped tests
+            failed.incrementAndGet();
+            send("CONFIG FAIL", result);
+        }
+
+        private void send(String status, ITestResult result) {
+            submission.send(String.format("%s %s.%s %d ms", status, result.getTestClass().getRealClass().getSimpleName(),
+                    result.getMethod().getMethodName(), result.getEndMillis() - result.getStartMillis()));
+            Throwable throwable = result.getThrowable();
+            if (throwable != null && !"SKIP".equals(status)) {
+                StringWriter trace = new StringWriter();
+                throwable.printStackTrace(new PrintWriter(trace));
+                String[] lines = trace.toString().split("\\R");
+                for (String line : Arrays.copyOf(lines, Math.min(lines.length, MAX_STACK_LINES))) {
+                    submission.send("    " + line);
+                }
+            }
+        }
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs but got " + String.join(" ", args));
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,215 @@
+package org.googlekeep.fixtures;
+
+import org.googlekeep.locators.ElementHandleCache;
+import org.googlekeep.model.NoteBoardSnapshot;
+import org.googlekeep.model.NoteSpec;
+import org.googlekeep.pages.NotesPage;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Puts notes straight into the app state as test preconditions, so only the
+ * behaviour under test goes through the page objects.
+ *
+ * <p>The injection path is selected with {@code -Dkeep.fixtures}:
+ * <ul>
+ *     <li>{@code rest} - posts the notes to the local stand-in's seed endpoint and
+ *     reloads the page, which renders them from the server state;</li>
+ *     <li>{@code script} - hands the notes to the page's {@code window.__keepFixtures}
+ *     hook, which renders and saves them without a reload;</li>
+ *     <li>{@code ui} - types the notes with {@link NotesPage#createNotes(List)};</li>
+ *     <li>{@code auto} (default) - {@code script} if the page has the hook, since it
+ *     saves a reload; otherwise {@code rest} against the stand-in and {@code ui}
+ *     elsewhere. Keep itself has no such hook, so there the notes are still typed,
+ *     in one pipelined pass. Batches of more than {@value #BULK_THRESHOLD} notes go
+ *     through {@code rest} whenever the stand-in is there, as the hook saves every
+ *     note with a request of its own.</li>
+ * </ul>
+ *
+ * <p>{@link #scaleBoard(String, int)} builds the specs of a large board for scale tests,
+ * and {@link #clearStandIn()} empties the account again in one request.
+ *
+ * <p>Injected notes are handed to the {@link NotesPage}, which purges them between
+ * tests like the notes it created itself.
+ */
+public class NoteFixtures {
+    public static final String MODE_PROPERTY = "keep.fixtures";
+    public static final int BULK_THRESHOLD = 200;
+
+    public enum Mode {
+        AUTO, REST, SCRIPT, UI;
+
+        public static Mode parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final Mode CONFIGURED = Mode.parse(System.getProperty(MODE_PROPERTY, "auto"));
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+    private static final Json JSON = new Json();
+    private static final String UPSERT_SCRIPT =
+            "return window.__keepFixtures ? window.__keepFixtures.upsert(arguments[0]) : -1;";
+
+    private final WebDriver driver;
+    private final NotesPage notesPage;
+    private final String standInUrl;
+    private final Mode mode;
+
+    /**
+     * @param driver     The driver of the session to inject into
+     * @param notesPage  The page object of that session
+     * @param standInUrl The app URL of the session's stand-in account, or null when
+     *                   the session is not running against the stand-in
+     */
+    public NoteFixtures(WebDriver driver, NotesPage notesPage, String standInUrl) {
+        this(driver, notesPage, standInUrl, CONFIGURED);
+    }
+
+    public NoteFixtures(WebDriver driver, NotesPage notesPage, String standInUrl, Mode mode) {
+        this.driver = driver;
+        this.notesPage = notesPage;
+        this.standInUrl = standInUrl;
+        this.mode = mode;
+    }
+
+    /**
+     * Injects the notes and waits until those not archived are on the board.
+     *
+     * @return The board once the notes are on it
+     * @throws IllegalStateException If the selected path is not available or the app rejects the notes
+     */
+    public NoteBoardSnapshot inject(List<NoteSpec> specs) {
+        switch (resolveMode()) {
+            case REST:
+                postToStandIn(toNotes(specs));
+                driver.navigate().refresh();
+                ElementHandleCache.forDriver(driver).invalidate();
+                return notesPage.adoptNotes(specs);
+            case SCRIPT:
+                if (!upsertInPage(toNotes(specs))) {
+                    throw new IllegalStateException("The page has no window.__keepFixtures hook");
+                }
+                return notesPage.adoptNotes(specs);
+            case UI:
+                return notesPage.createNotes(specs);
+            default:
+                if (standInUrl != null && specs.size() > BULK_THRESHOLD) {
+                    return inject(specs, Mode.REST);
+                }
+                if (upsertInPage(toNotes(specs))) {
+                    return notesPage.adoptNotes(specs);
+                }
+                return standInUrl != null
+                        ? inject(specs, Mode.REST)
+                        : notesPage.createNotes(specs);
+        }
+    }
+
+    /**
+     * Returns the specs of {@code count} plain notes titled {@code <prefix> 00001} onwards,
+     * the last one newest and so at the top of the board.
+     */
+    public static List<NoteSpec> scaleBoard(String prefix, int count) {
+        List<NoteSpec> specs = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            specs.add(NoteSpec.titled(String.format("%s %05d", prefix, i)));
+        }
+        return specs;
+    }
+
+    /**
+     * Deletes every note of the stand-in account and reloads the page, so a board that
+     * is too large to purge card by card is gone before the next test.
+     */
+    public void clearStandIn() {
+        resolveStandIn();
+        send(HttpRequest.newBuilder(URI.create(standInUrl + "api/notes")).DELETE().build(), "Clearing notes");
+        driver.navigate().refresh();
+        ElementHandleCache.forDriver(driver).invalidate();
+    }
+
+    private NoteBoardSnapshot inject(List<NoteSpec> specs, Mode fallback) {
+        return new NoteFixtures(driver, notesPage, standInUrl, fallback).inject(specs);
+    }
+
+    private Mode resolveMode() {
+        if (mode == Mode.REST) {
+            resolveStandIn();
+        }
+        return mode;
+    }
+
+    private void resolveStandIn() {
+        if (standInUrl == null) {
+            throw new IllegalStateException("REST fixtures need -Dkeep.target=local");
+        }
+    }
+
+    private boolean upsertInPage(List<Map<String, Object>> notes) {
+        Object injected = ((JavascriptExecutor) driver).executeScript(UPSERT_SCRIPT, notes);
+        return injected instanceof Number && ((Number) injected).intValue() >= 0;
+    }
+
+    private void postToStandIn(List<Map<String, Object>> notes) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(standInUrl + "api/notes"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(JSON.toJson(notes)))
+                .build();
+        send(request, "Seeding notes");
+    }
+
+    private static void send(HttpRequest request, String what) {
+        try {
+            HttpResponse<String> response = HTTP.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 204) {
+                throw new IllegalStateException(what + " failed with HTTP " + response.statusCode()
+                        + ": " + response.body());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted: " + what, e);
+        }
+    }
+
+    /**
+     * Converts the specs to the stand-in's note shape, newest last like notes typed in order.
+     */
+    private static List<Map<String, Object>> toNotes(List<NoteSpec> specs) {
+        long order = System.currentTimeMillis();
+        List<Map<String, Object>> notes = new ArrayList<>();
+        for (NoteSpec spec : specs) {
+            Map<String, Object> note = new LinkedHashMap<>();
+            note.put("id", "fixture-" + UUID.randomUUID());
+            note.put("title", spec.getTitle());
+            note.put("body", spec.getBody());
+            note.put("items", spec.getChecklistItems().stream()
+                    .map(text -> Map.of("text", text, "checked", false))
+                    .collect(Collectors.toList()));
+            note.put("labels", spec.getLabels());
+            note.put("color", spec.getColor() == null ? "default" : spec.getColor().toLowerCase(Locale.ROOT));
+            note.put("pinned", spec.isPinned());
+            note.put("archived", spec.isArchived());
+            note.put("trashed", false);
+            note.put("order", order++);
+            notes.add(note);
+        }
+        return notes;
+    }
+}
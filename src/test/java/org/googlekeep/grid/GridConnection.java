@@ -0,0 +1,69 @@
+package org.googlekeep.grid;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * One coordinator-worker link. Messages are JSON objects, one per line, each with a
+ * {@code type}:
+ * <ul>
+ *     <li>worker to coordinator: {@code hello}, {@code result} (which also asks for the
+ *     next test) and {@code bye} (with the worker's command timings);</li>
+ *     <li>coordinator to worker: {@code run} (a test class and method) and {@code done}.</li>
+ * </ul>
+ */
+final class GridConnection implements Closeable {
+    private static final Json JSON = new Json();
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final BufferedWriter out;
+
+    GridConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    synchronized void send(Map<String, ?> message) throws IOException {
+        StringBuilder line = new StringBuilder();
+        JSON.newOutput(line).setPrettyPrint(false).write(message);
+        out.write(line.toString());
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Returns the next message, or null once the other side has closed the link.
+     */
+    Map<String, Object> receive() throws IOException {
+        String line = in.readLine();
+        return line == null ? null : JSON.toType(line, Json.MAP_TYPE);
+    }
+
+    /**
+     * Makes {@link #receive()} throw a {@link java.net.SocketTimeoutException} when nothing
+     * arrives within the timeout; 0 waits forever.
+     */
+    void setReceiveTimeout(long timeoutMs) throws IOException {
+        socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, timeoutMs));
+    }
+
+    String getRemoteAddress() {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,378 @@
+package org.googlekeep.grid;
+
+import org.googlekeep.scheduling.DurationHistory;
+import org.googlekeep.scheduling.LongestFirstSchedule;
+import org.googlekeep.selection.ChangeImpact;
+import org.googlekeep.selection.PageObjectCoverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands the test methods of one or more TestNG classes out to worker JVMs over a
+ * socket and merges what they stream back into one report (see {@link GridReport}).
+ *
+ * <p>Each worker ({@link GridWorker}) runs one test method at a time with its own
+ * browser, and asks for the next one when it reports a result, so fast workers
+ * simply take more tests. Workers can be started by the coordinator as local
+ * processes ({@code --workers N}) or on other machines pointed at this one
+ * ({@code GridWorker --coordinator host:port}); both kinds can join the same run.
+ * A test whose worker disconnects, or does not report back within the test timeout, is
+ * handed out once more before it is failed. A local worker that timed out is killed and
+ * started afresh, so one hung browser cannot stall the run; a remote one is dropped.
+ *
+ * <p>Tests are handed out longest-first by their {@link DurationHistory}. The coordinator
+ * updates it with the time from handing out each passing test to receiving its result,
+ * which includes the worker's setup and teardown around the test.
+ *
+ * <p>With {@code -Dkeep.select.since=<git revision>} only the tests affected by the
+ * changes since the revision are handed out (see {@link ChangeImpact}), and the
+ * page-object coverage the workers report is merged into the coverage file.
+ *
+ * <p>Options:
+ * <ul>
+ *     <li>{@code --classes} - comma-separated test classes, default {@code org.googlekeep.tests.NotesTest}</li>
+ *     <li>{@code --workers} - local worker processes to start, default 2</li>
+ *     <li>{@code --port} - port to listen on, default 7400 ({@code 0} picks a free one)</li>
+ *     <li>{@code --report-dir} - where the merged report and worker logs go, default {@code target/grid}</li>
+ *     <li>{@code --idle-timeout} - seconds to wait without any connected worker before
+ *     failing the remaining tests, default 120</li>
+ *     <li>{@code --test-timeout} - seconds a worker gets to report the result of a test,
+ *     setup and teardown included, default 300</li>
+ * </ul>
+ *
+ * <p>{@code keep.*} and {@code webdriver.*} system properties of the coordinator are
+ * passed on to the local workers. The process exits with status 1 if any test failed.
+ */
+public final class GridCoordinator {
+    static final int DEFAULT_PORT = 7400;
+    private static final int MAX_ATTEMPTS = 2;
+    private static final long DISCONNECT_TIMEOUT_MS = 60_000;
+    private static final long KILL_GRACE_MS = 10_000;
+
+    private final Deque<GridTask> queue = new ArrayDeque<>();
+    private final GridReport report = new GridReport();
+    private final int total;
+    private final long testTimeoutMs;
+    private int finished;
+    private int connectedWorkers;
+    private long lastWorkerSeen = System.currentTimeMillis();
+    private long firstDispatch;
+    private long lastResult;
+    private final Map<String, Long> passedMs = new HashMap<>();
+    private final Map<String, List<String>> coverage = new HashMap<>();
+    private final Map<String, Process> localProcesses = new HashMap<>();
+    private int port;
+    private Path reportDir;
+
+    GridCoordinator(List<GridTask> tasks, long testTimeoutMs) {
+        queue.addAll(tasks);
+        total = tasks.size();
+        this.testTimeoutMs = testTimeoutMs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        List<GridTask> tasks = new ArrayList<>();
+        for (String className : options.getOrDefault("classes", "org.googlekeep.tests.NotesTest").split(",")) {
+            tasks.addAll(GridTask.discover(Class.forName(className.trim())));
+        }
+        String since = System.getProperty(ChangeImpact.SINCE_PROPERTY);
+        if (since != null && !since.isBlank()) {
+            ChangeImpact impact = ChangeImpact.since(since, PageObjectCoverage.load());
+            List<GridTask> selected = impact.select(tasks, GridTask::getId);
+            System.out.println(impact.summary(selected.size(), tasks.size()));
+            tasks = selected;
+        }
+        int workers = Integer.parseInt(options.getOrDefault("workers", "2"));
+        int port = Integer.parseInt(options.getOrDefault("port", String.valueOf(DEFAULT_PORT)));
+        Path reportDir = Paths.get(options.getOrDefault("report-dir", "target/grid"));
+        long idleTimeoutMs = Long.parseLong(options.getOrDefault("idle-timeout", "120")) * 1000;
+        long testTimeoutMs = Long.parseLong(options.getOrDefault("test-timeout", "300")) * 1000;
+
+        DurationHistory history = DurationHistory.load();
+        LongestFirstSchedule<GridTask> schedule = new LongestFirstSchedule<>(history, GridTask::getId, task -> task.priority);
+        List<GridTask> ordered = schedule.order(tasks);
+        double predictedMs = schedule.predictMakespanMs(ordered, workers);
+
+        GridCoordinator coordinator = new GridCoordinator(ordered, testTimeoutMs);
+        GridReport report = coordinator.run(port, workers, reportDir, idleTimeoutMs);
+        coordinator.passedMs.forEach(history::record);
+        history.save();
+        if (!coordinator.coverage.isEmpty()) {
+            System.out.println("Page-object coverage written to " + PageObjectCoverage.save(coordinator.coverage));
+        }
+        System.out.println(report.summary());
+        System.out.println(LongestFirstSchedule.report(workers, predictedMs,
+                coordinator.lastResult - coordinator.firstDispatch, schedule.countUnknown(ordered)));
+        System.out.println("Grid report written to " + reportDir.toAbsolutePath());
+        System.exit(report.count(GridResult.FAIL) > 0 ? 1 : 0);
+    }
+
+    GridReport run(int port, int localWorkers, Path reportDir, long idleTimeoutMs) throws IOException, InterruptedException {
+        this.reportDir = reportDir;
+        try (ServerSocket server = new ServerSocket(port)) {
+            this.port = server.getLocalPort();
+            System.out.printf("Grid coordinator on port %d: %d tests for %d local and any remote workers%n",
+                    server.getLocalPort(), total, localWorkers);
+            Thread acceptor = new Thread(() -> accept(server), "grid-acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            for (int i = 0; i < localWorkers; i++) {
+                startLocalWorker("local-" + i);
+            }
+            awaitCompletion(idleTimeoutMs);
+            // Workers send their timings and quit their browsers after "done"
+            awaitDisconnect(DISCONNECT_TIMEOUT_MS);
+        }
+        List<Process> processes;
+        synchronized (this) {
+            processes = new ArrayList<>(localProcesses.values());
+        }
+        for (Process process : processes) {
+            if (!process.waitFor(DISCONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+        report.write(reportDir);
+        return report;
+    }
+
+    private void accept(ServerSocket server) {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> serve(socket), "grid-worker-" + socket.getRemoteSocketAddress());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (SocketException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("Grid accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Talks to one worker until it has been told there is nothing left, or until it drops
+     * or passes the deadline of the test it runs.
+     */
+    private void serve(Socket socket) {
+        String worker = String.valueOf(socket.getRemoteSocketAddress());
+        GridTask current = null;
+        long dispatchedAt = 0;
+        String lostReason = "was lost while running the test";
+        boolean timedOut = false;
+        try (GridConnection connection = new GridConnection(socket)) {
+            workerConnected(true);
+            Map<String, Object> message;
+            while ((message = connection.receive()) != null) {
+                String type = String.valueOf(message.get("type"));
+                if ("hello".equals(type)) {
+                    worker = String.valueOf(message.get("worker"));
+                    System.out.printf("Worker %s joined from %s%n", worker, connection.getRemoteAddress());
+                } else if ("result".equals(type)) {
+                    GridResult result = GridResult.fromMap(message);
+                    System.out.printf("%s %s on %s (%d ms)%n", result.status, current, worker, result.durationMs);
+                    complete(result, current, System.currentTimeMillis() - dispatchedAt);
+                    current = null;
+                } else if ("bye".equals(type)) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> timings = (Map<String, Object>) message.get("timings");
+                    report.addWorkerTimings(worker, timings == null ? Map.of() : timings);
+                    @SuppressWarnings("unchecked")
+                    Map<String, List<String>> workerCoverage = (Map<String, List<String>>) message.get("coverage");
+                    addCoverage(workerCoverage == null ? Map.of() : workerCoverage);
+                    break;
+                } else {
+                    continue;
+                }
+                current = next();
+                dispatchedAt = System.currentTimeMillis();
+                // Timings and coverage after "done" get the same time as a test
+                connection.setReceiveTimeout(testTimeoutMs);
+                connection.send(current == null ? Map.of("type", "done") : runMessage(current));
+            }
+        } catch (SocketTimeoutException e) {
+            lostReason = "did not report back within " + testTimeoutMs / 1000 + " s";
+            timedOut = true;
+            System.out.printf("Worker %s dropped: no result for %s within %d s%n", worker, current, testTimeoutMs / 1000);
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Worker " + worker + " dropped: " + e.getMessage());
+        } finally {
+            if (current != null) {
+                retryOrFail(current, worker, lostReason);
+            }
+            workerConnected(false);
+        }
+        if (timedOut) {
+            restartLocalWorker(worker);
+        }
+    }
+
+    /**
+     * Kills a hung local worker, giving its shutdown hook a moment to quit the browsers,
+     * and starts another one under the same name while tests are left.
+     */
+    private void restartLocalWorker(String worker) {
+        Process process;
+        synchronized (this) {
+            process = localProcesses.get(worker);
+        }
+        if (process == null) {
+            return;
+        }
+        process.destroy();
+        try {
+            if (!process.waitFor(KILL_GRACE_MS, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            return;
+        }
+        synchronized (this) {
+            if (finished < total) {
+                try {
+                    System.out.printf("Restarting worker %s%n", worker);
+                    startLocalWorker(worker);
+                } catch (IOException e) {
+                    System.out.println("Could not restart worker " + worker + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static Map<String, Object> runMessage(GridTask task) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", "run");
+        message.put("className", task.className);
+        message.put("method", task.method);
+        return message;
+    }
+
+    /**
+     * Returns the next test, waiting while other workers may still give one back, or
+     * null once every test has finished.
+     */
+    private synchronized GridTask next() throws InterruptedException {
+        while (queue.isEmpty() && finished < total) {
+            wait();
+        }
+        GridTask task = queue.poll();
+        if (task != null) {
+            task.attempts++;
+            if (firstDispatch == 0) {
+                firstDispatch = System.currentTimeMillis();
+            }
+        }
+        return task;
+    }
+
+    private synchronized void complete(GridResult result, GridTask task, long busyMs) {
+        if (task != null && GridResult.PASS.equals(result.status)) {
+            passedMs.put(task.getId(), busyMs);
+        }
+        complete(result);
+    }
+
+    private synchronized void complete(GridResult result) {
+        report.add(result);
+        lastResult = System.currentTimeMillis();
+        finished++;
+        notifyAll();
+    }
+
+    private synchronized void retryOrFail(GridTask task, String worker, String reason) {
+        if (task.attempts < MAX_ATTEMPTS) {
+            System.out.printf("Re-queueing %s after losing worker %s%n", task, worker);
+            queue.addFirst(task);
+            notifyAll();
+        } else {
+            complete(GridResult.lost(task, worker, "Worker " + worker + " " + reason));
+        }
+    }
+
+    private synchronized void addCoverage(Map<String, List<String>> workerCoverage) {
+        coverage.putAll(workerCoverage);
+    }
+
+    private synchronized void workerConnected(boolean connected) {
+        connectedWorkers += connected ? 1 : -1;
+        lastWorkerSeen = System.currentTimeMillis();
+        notifyAll();
+    }
+
+    private synchronized void awaitCompletion(long idleTimeoutMs) throws InterruptedException {
+        while (finished < total) {
+            if (connectedWorkers == 0 && System.currentTimeMillis() - lastWorkerSeen > idleTimeoutMs) {
+                System.out.printf("No worker connected for %d s, failing the remaining tests%n", idleTimeoutMs / 1000);
+                GridTask task;
+                while ((task = queue.poll()) != null) {
+                    complete(GridResult.lost(task, "none", "No worker was available to run the test"));
+                }
+                break;
+            }
+            wait(1000);
+        }
+    }
+
+    private synchronized void awaitDisconnect(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (connectedWorkers > 0 && System.currentTimeMillis() < deadline) {
+            wait(Math.max(1, deadline - System.currentTimeMillis()));
+        }
+    }
+
+    private synchronized void startLocalWorker(String name) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("keep.") || key.startsWith("webdriver.")) {
+                command.add("-D" + key + "=" + System.getProperty(key));
+            }
+        }
+        command.add(GridWorker.class.getName());
+        command.add("--coordinator");
+        command.add("127.0.0.1:" + port);
+        command.add("--name");
+        command.add(name);
+
+        File log = reportDir.resolve(name + ".log").toFile();
+        log.getParentFile().mkdirs();
+        // A restarted worker keeps the log of the one it replaces
+        ProcessBuilder.Redirect output = localProcesses.containsKey(name)
+                ? ProcessBuilder.Redirect.appendTo(log) : ProcessBuilder.Redirect.to(log);
+        localProcesses.put(name, new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(output)
+                .start());
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs but got " + String.join(" ", args));
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
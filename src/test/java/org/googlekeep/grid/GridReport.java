@@ -0,0 +1,193 @@
+package org.googlekeep.grid;
+
+import org.openqa.selenium.json.Json;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * Merges what the workers streamed back into one report:
+ * <ul>
+ *     <li>{@code testng-results.xml} in TestNG's own format, one {@code <test>} per
+ *     test class, so CI plugins that read TestNG results pick it up unchanged;</li>
+ *     <li>{@code command-timings.json} with each test's command timings and the
+ *     suite-level timings of every worker.</li>
+ * </ul>
+ */
+final class GridReport {
+    private final List<GridResult> results = new ArrayList<>();
+    private final Map<String, Object> workerTimings = new TreeMap<>();
+    private final long startedAt = System.currentTimeMillis();
+
+    synchronized void add(GridResult result) {
+        results.add(result);
+    }
+
+    synchronized void addWorkerTimings(String worker, Map<String, Object> timings) {
+        workerTimings.put(worker, timings);
+    }
+
+    synchronized int count(String status) {
+        int count = 0;
+        for (GridResult result : results) {
+            if (result.status.equals(status)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    synchronized List<GridResult> getResults() {
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Writes both reports into the directory.
+     */
+    synchronized void write(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            try (Writer writer = Files.newBufferedWriter(directory.resolve("testng-results.xml"), StandardCharsets.UTF_8)) {
+                writeTestNgXml(writer);
+            }
+            Map<String, Object> timings = new LinkedHashMap<>();
+            Map<String, Object> tests = new LinkedHashMap<>();
+            for (GridResult result : results) {
+                tests.put(simpleName(result.className) + "." + result.method, result.timings);
+            }
+            timings.put("workers", workerTimings);
+            timings.put("tests", tests);
+            Files.write(directory.resolve("command-timings.json"),
+                    new Json().toJson(timings).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write grid report to " + directory, e);
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Failed to write grid report to " + directory, e);
+        }
+    }
+
+    /**
+     * Returns a line per worker with its share of the tests and test time.
+     */
+    synchronized String summary() {
+        Map<String, long[]> perWorker = new TreeMap<>();
+        for (GridResult result : results) {
+            long[] totals = perWorker.computeIfAbsent(result.worker, key -> new long[2]);
+            totals[0]++;
+            totals[1] += result.durationMs;
+        }
+        StringBuilder out = new StringBuilder(String.format("Grid run: %d tests, %d passed, %d failed, %d skipped in %.1f s",
+                results.size(), count(GridResult.PASS), count(GridResult.FAIL), count(GridResult.SKIP),
+                (System.currentTimeMillis() - startedAt) / 1000.0));
+        for (Map.Entry<String, long[]> entry : perWorker.entrySet()) {
+            out.append(String.format("%n  %-24s %3d tests, %8.1f s of test time", entry.getKey(),
+                    entry.getValue()[0], entry.getValue()[1] / 1000.0));
+        }
+        for (GridResult result : results) {
+            if (!result.status.equals(GridResult.PASS)) {
+                out.append(String.format("%n  %s %s.%s on %s: %s", result.status, simpleName(result.className),
+                        result.method, result.worker, result.message));
+            }
+        }
+        return out.toString();
+    }
+
+    private void writeTestNgXml(Writer writer) throws XMLStreamException {
+        long finishedAt = System.currentTimeMillis();
+        Map<String, List<GridResult>> byClass = new TreeMap<>();
+        for (GridResult result : results) {
+            byClass.computeIfAbsent(result.className, key -> new ArrayList<>()).add(result);
+        }
+
+        XMLStreamWriter xml = XMLOutputFactory.newFactory().createXMLStreamWriter(writer);
+        xml.writeStartDocument("UTF-8", "1.0");
+        xml.writeStartElement("testng-results");
+        xml.writeAttribute("ignored", "0");
+        xml.writeAttribute("total", String.valueOf(results.size()));
+        xml.writeAttribute("passed", String.valueOf(count(GridResult.PASS)));
+        xml.writeAttribute("failed", String.valueOf(count(GridResult.FAIL)));
+        xml.writeAttribute("skipped", String.valueOf(count(GridResult.SKIP)));
+        xml.writeEmptyElement("reporter-output");
+
+        xml.writeStartElement("suite");
+        xml.writeAttribute("name", "Grid");
+        writeTimes(xml, startedAt, finishedAt);
+        xml.writeEmptyElement("groups");
+        for (Map.Entry<String, List<GridResult>> entry : byClass.entrySet()) {
+            List<GridResult> classResults = entry.getValue();
+            long first = classResults.stream().mapToLong(result -> result.startedAt).min().orElse(startedAt);
+            long last = classResults.stream().mapToLong(result -> result.startedAt + result.durationMs).max().orElse(first);
+            xml.writeStartElement("test");
+            xml.writeAttribute("name", simpleName(entry.getKey()));
+            writeTimes(xml, first, last);
+            xml.writeStartElement("class");
+            xml.writeAttribute("name", entry.getKey());
+            for (GridResult result : classResults) {
+                writeMethod(xml, result);
+            }
+            xml.writeEndElement();
+            xml.writeEndElement();
+        }
+        xml.writeEndElement();
+        xml.writeEndElement();
+        xml.writeEndDocument();
+        xml.close();
+    }
+
+    private static void writeMethod(XMLStreamWriter xml, GridResult result) throws XMLStreamException {
+        xml.writeStartElement("test-method");
+        xml.writeAttribute("status", result.status);
+        xml.writeAttribute("signature", result.method + "()");
+        xml.writeAttribute("name", result.method);
+        writeTimes(xml, result.startedAt, result.startedAt + result.durationMs);
+        if (result.exception != null) {
+            xml.writeStartElement("exception");
+            xml.writeAttribute("class", result.exception);
+            xml.writeStartElement("message");
+            writeCData(xml, String.valueOf(result.message));
+            xml.writeEndElement();
+            xml.writeStartElement("full-stacktrace");
+            writeCData(xml, String.valueOf(result.stackTrace));
+            xml.writeEndElement();
+            xml.writeEndElement();
+        }
+        xml.writeStartElement("reporter-output");
+        xml.writeStartElement("line");
+        writeCData(xml, "worker: " + result.worker);
+        xml.writeEndElement();
+        xml.writeEndElement();
+        xml.writeEndElement();
+    }
+
+    private static void writeTimes(XMLStreamWriter xml, long start, long end) throws XMLStreamException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        xml.writeAttribute("started-at", format.format(new Date(start)));
+        xml.writeAttribute("finished-at", format.format(new Date(end)));
+        xml.writeAttribute("duration-ms", String.valueOf(end - start));
+    }
+
+    private static void writeCData(XMLStreamWriter xml, String text) throws XMLStreamException {
+        // A CDATA section can't contain its own terminator, so split it across two sections
+        xml.writeCData(text.replace("]]>", "]]]]><![CDATA[>"));
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,74 @@
+package org.googlekeep.grid;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of one test method on a worker, as streamed back to the coordinator.
+ */
+final class GridResult {
+    static final String PASS = "PASS";
+    static final String FAIL = "FAIL";
+    static final String SKIP = "SKIP";
+
+    final String className;
+    final String method;
+    final String status;
+    final String worker;
+    final long startedAt;
+    final long durationMs;
+    /** Exception class, or null if the test passed. */
+    final String exception;
+    final String message;
+    final String stackTrace;
+    /** Command timings of the test, as in {@code CommandTimings.toMap()}; may be empty. */
+    final Map<String, Object> timings;
+
+    GridResult(String className, String method, String status, String worker, long startedAt, long durationMs,
+               String exception, String message, String stackTrace, Map<String, Object> timings) {
+        this.className = className;
+        this.method = method;
+        this.status = status;
+        this.worker = worker;
+        this.startedAt = startedAt;
+        this.durationMs = durationMs;
+        this.exception = exception;
+        this.message = message;
+        this.stackTrace = stackTrace;
+        this.timings = timings;
+    }
+
+    /**
+     * A failure recorded by the coordinator itself, e.g. when the worker running the test died.
+     */
+    static GridResult lost(GridTask task, String worker, String reason) {
+        return new GridResult(task.className, task.method, FAIL, worker, System.currentTimeMillis(), 0,
+                IllegalStateException.class.getName(), reason, reason, Map.of());
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("type", "result");
+        map.put("className", className);
+        map.put("method", method);
+        map.put("status", status);
+        map.put("worker", worker);
+        map.put("startedAt", startedAt);
+        map.put("durationMs", durationMs);
+        map.put("exception", exception);
+        map.put("message", message);
+        map.put("stackTrace", stackTrace);
+        map.put("timings", timings);
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    static GridResult fromMap(Map<String, Object> map) {
+        Object timings = map.get("timings");
+        return new GridResult((String) map.get("className"), (String) map.get("method"),
+                (String) map.get("status"), (String) map.get("worker"),
+                ((Number) map.get("startedAt")).longValue(), ((Number) map.get("durationMs")).longValue(),
+                (String) map.get("exception"), (String) map.get("message"), (String) map.get("stackTrace"),
+                timings instanceof Map ? (Map<String, Object>) timings : Map.of());
+    }
+}
@@ -0,0 +1,69 @@
+package org.googlekeep.grid;
+
+import org.testng.annotations.Test;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A test method to hand out to a worker.
+ */
+final class GridTask {
+    final String className;
+    final String method;
+    final int priority;
+    int attempts;
+
+    GridTask(String className, String method, int priority) {
+        this.className = className;
+        this.method = method;
+        this.priority = priority;
+    }
+
+    /**
+     * Returns the enabled TestNG test methods of the class, in TestNG's priority order.
+     * Like TestNG, a class-level {@code @Test} makes every public method a test.
+     */
+    static List<GridTask> discover(Class<?> testClass) {
+        Test classLevel = testClass.getAnnotation(Test.class);
+        List<GridTask> tasks = new ArrayList<>();
+        for (Method method : testClass.getMethods()) {
+            if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            Test test = method.getAnnotation(Test.class);
+            if (test == null && (classLevel == null || method.getDeclaringClass() != testClass
+                    || method.getReturnType() != void.class || hasConfigurationAnnotation(method))) {
+                continue;
+            }
+            Test effective = test != null ? test : classLevel;
+            if (effective.enabled()) {
+                tasks.add(new GridTask(testClass.getName(), method.getName(), effective.priority()));
+            }
+        }
+        tasks.sort(Comparator.<GridTask>comparingInt(task -> task.priority).thenComparing(task -> task.method));
+        return tasks;
+    }
+
+    private static boolean hasConfigurationAnnotation(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            if (annotation.annotationType().getPackageName().equals("org.testng.annotations")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    String getId() {
+        return className + "#" + method;
+    }
+
+    @Override
+    public String toString() {
+        return getId();
+    }
+}
@@ -0,0 +1,182 @@
+package org.googlekeep.grid;
+
+import org.googlekeep.BaseTest;
+import org.googlekeep.metrics.CommandTimings;
+import org.googlekeep.selection.PageObjectCoverage;
+import org.testng.IConfigurationListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.TestNG;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs test methods handed out by a {@link GridCoordinator}, one at a time, and
+ * streams each result back together with the test's command timings.
+ *
+ * <p>Every test runs in-process through TestNG on the worker's main thread, so the
+ * worker keeps one browser across tests when started with {@code -Dkeep.session.reuse=true}.
+ * The worker name is exposed to {@link BaseTest} as {@value BaseTest#GRID_WORKER_PROPERTY},
+ * which gives the worker's browsers a Chrome profile of their own and keeps it from
+ * killing the Chrome processes of other workers on the same machine. When the coordinator
+ * says there is nothing left, the worker sends its command timings and the page-object
+ * coverage of its passing tests.
+ *
+ * <p>Options: {@code --coordinator host:port} (default {@code 127.0.0.1:7400}) and
+ * {@code --name} (default {@code hostname-pid}).
+ */
+public final class GridWorker {
+    private final String name;
+
+    private GridWorker(String name) {
+        this.name = name;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = GridCoordinator.parseOptions(args);
+        String name = options.getOrDefault("name",
+                InetAddress.getLocalHost().getHostName() + "-" + ManagementFactory.getRuntimeMXBean().getPid());
+        // Read by BaseTest's static initializer, so it must be set before any test class loads
+        System.setProperty(BaseTest.GRID_WORKER_PROPERTY, name);
+
+        String[] coordinator = options.getOrDefault("coordinator", "127.0.0.1:" + GridCoordinator.DEFAULT_PORT).split(":");
+        try (GridConnection connection = new GridConnection(new Socket(coordinator[0], Integer.parseInt(coordinator[1])))) {
+            new GridWorker(name).serve(connection);
+        } finally {
+            BaseTest.quitSessions();
+        }
+        System.out.println(CommandTimings.summary(10));
+        System.exit(0);
+    }
+
+    private void serve(GridConnection connection) throws IOException {
+        Map<String, Object> hello = new LinkedHashMap<>();
+        hello.put("type", "hello");
+        hello.put("worker", name);
+        connection.send(hello);
+
+        Map<String, Object> message;
+        while ((message = connection.receive()) != null && "run".equals(message.get("type"))) {
+            String className = (String) message.get("className");
+            String method = (String) message.get("method");
+            System.out.printf("Running %s#%s%n", className, method);
+            connection.send(run(className, method).toMap());
+        }
+
+        BaseTest.quitSessions();
+        Map<String, Object> bye = new LinkedHashMap<>();
+        bye.put("type", "bye");
+        bye.put("timings", CommandTimings.toMap());
+        bye.put("coverage", PageObjectCoverage.passedTests());
+        connection.send(bye);
+    }
+
+    private GridResult run(String className, String method) {
+        XmlSuite suite = new XmlSuite();
+        suite.setName("grid-" + name);
+        XmlTest test = new XmlTest(suite);
+        test.setName(className.substring(className.lastIndexOf('.') + 1));
+        XmlClass xmlClass = new XmlClass(className);
+        xmlClass.getIncludedMethods().add(new XmlInclude(method));
+        test.getXmlClasses().add(xmlClass);
+
+        ResultCollector collector = new ResultCollector();
+        TestNG testng = new TestNG(false);
+        testng.setXmlSuites(List.of(suite));
+        testng.setVerbose(0);
+        testng.addListener(collector);
+        long start = System.currentTimeMillis();
+        testng.run();
+        String testName = test.getName() + "." + method;
+        return collector.toResult(className, method, start, CommandTimings.testToMap(testName));
+    }
+
+    /**
+     * Keeps the outcome of the single test method in a run, or the configuration
+     * failure that kept it from running.
+     */
+    private final class ResultCollector implements ITestListener, IConfigurationListener {
+        private ITestResult testResult;
+        private ITestResult configurationFailure;
+
+        @Override
+        public void onTestSuccess(ITestResult result) {
+            testResult = result;
+        }
+
+        @Override
+        public void onTestFailure(ITestResult result) {
+            testResult = result;
+        }
+
+        @Override
+        public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+            testResult = result;
+        }
+
+        @Override
+        public void onTestSkipped(ITestResult result) {
+            testResult = result;
+        }
+
+        @Override
+        public void onConfigurationFailure(ITestResult result) {
+            if (configurationFailure == null) {
+                configurationFailure = result;
+            }
+        }
+
+        GridResult toResult(String className, String method, long start, Map<String, Object> timings) {
+            if (testResult == null && configurationFailure == null) {
+                return failure(className, method, start, timings,
+                        new IllegalStateException("TestNG did not run " + className + "#" + method));
+            }
+            ITestResult result = testResult != null ? testResult : configurationFailure;
+            String status;
+            switch (result.getStatus()) {
+                case ITestResult.SUCCESS:
+                    status = GridResult.PASS;
+                    break;
+                case ITestResult.SKIP:
+                    status = GridResult.SKIP;
+                    break;
+                default:
+                    status = GridResult.FAIL;
+            }
+            // A broken setup fails the test instead of hiding it as a skip
+            if (testResult == null || (status.equals(GridResult.SKIP) && configurationFailure != null)) {
+                return failure(className, method, start, timings, configurationFailure.getThrowable());
+            }
+            Throwable throwable = result.getThrowable();
+            return new GridResult(className, method, status, name, result.getStartMillis(),
+                    result.getEndMillis() - result.getStartMillis(),
+                    throwable == null ? null : throwable.getClass().getName(),
+                    throwable == null ? null : throwable.getMessage(),
+                    throwable == null ? null : stackTrace(throwable), timings);
+        }
+
+        private GridResult failure(String className, String method, long start, Map<String, Object> timings,
+                                   Throwable throwable) {
+            return new GridResult(className, method, GridResult.FAIL, name, start, System.currentTimeMillis() - start,
+                    throwable.getClass().getName(), throwable.getMessage(), stackTrace(throwable), timings);
+        }
+    }
+
+    private static String stackTrace(Throwable throwable) {
+        StringWriter out = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(out));
+        return out.toString();
+    }
+}
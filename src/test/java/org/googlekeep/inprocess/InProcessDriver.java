@@ -0,0 +1,33 @@
+package org.googlekeep.inprocess;
+
+import org.htmlunit.BrowserVersion;
+import org.htmlunit.SilentCssErrorHandler;
+import org.htmlunit.WebClient;
+import org.htmlunit.javascript.SilentJavaScriptErrorListener;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+/**
+ * Browser-less {@code WebDriver} that loads the local Keep stand-in and runs its DOM and
+ * script inside the test JVM (HtmlUnit, emulating Chrome). A session starts in
+ * milliseconds and every command is a method call rather than an HTTP round trip to
+ * chromedriver, so page-object logic that needs no rendering, screenshots or DevTools
+ * can be tested without launching Chrome.
+ *
+ * <p>It cannot sign in to keep.google.com, and has no layout engine, so visibility and
+ * geometry are approximations; tests that depend on them stay on Chrome.
+ */
+public final class InProcessDriver extends HtmlUnitDriver {
+    public InProcessDriver() {
+        super(BrowserVersion.CHROME, true);
+    }
+
+    @Override
+    protected WebClient modifyWebClient(WebClient client) {
+        // The stand-in's stylesheet uses CSS HtmlUnit does not know; the warnings only cost time
+        client.setCssErrorHandler(new SilentCssErrorHandler());
+        client.setJavaScriptErrorListener(new SilentJavaScriptErrorListener());
+        client.getOptions().setThrowExceptionOnScriptError(true);
+        client.getOptions().setDownloadImages(false);
+        return client;
+    }
+}
@@ -0,0 +1,145 @@
+package org.googlekeep.load;
+
+import org.googlekeep.browser.ChromeLifecycle;
+import org.googlekeep.pages.NotesPage;
+import org.googlekeep.standin.KeepStandInServer;
+import org.googlekeep.waits.WaitBudget;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * At most {@code size} headless browsers on the local stand-in, shared by any number of
+ * virtual users. A user holds a browser for one scenario iteration, so the pool size,
+ * not the user count, bounds the memory and CPU the run needs.
+ *
+ * <p>Browsers start on first demand. Each one works on a stand-in account of its own,
+ * emptied when the browser starts, so concurrent browsers never see each other's notes.
+ * A browser whose scenario failed is discarded rather than reused, and a fresh one
+ * takes over its account. The browsers share the JVM's chromedriver ({@link ChromeLifecycle}),
+ * and a discarded one is reaped if it outlives its session.
+ */
+final class BrowserPool implements AutoCloseable {
+    private static final Duration SCRIPT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration LOAD_TIMEOUT = Duration.ofSeconds(60);
+
+    /**
+     * A pooled browser with the notes page on its account's board.
+     */
+    static final class Session {
+        final WebDriver driver;
+        final NotesPage page;
+        final int account;
+
+        private Session(WebDriver driver, NotesPage page, int account) {
+            this.driver = driver;
+            this.page = page;
+            this.account = account;
+        }
+    }
+
+    private final KeepStandInServer server;
+    private final Semaphore permits;
+    private final Queue<Session> idle = new ConcurrentLinkedQueue<>();
+    private final Queue<Integer> freeAccounts = new ConcurrentLinkedQueue<>();
+    private final List<Session> open = new CopyOnWriteArrayList<>();
+    private final AtomicInteger started = new AtomicInteger();
+
+    BrowserPool(KeepStandInServer server, int size) {
+        this.server = server;
+        this.permits = new Semaphore(size, true);
+        for (int account = 0; account < size; account++) {
+            freeAccounts.add(account);
+        }
+    }
+
+    /**
+     * Returns an idle browser, starting one if the pool is not full yet, or waits for one.
+     */
+    Session acquire() throws InterruptedException {
+        permits.acquire();
+        Session session = idle.poll();
+        if (session != null) {
+            return session;
+        }
+        try {
+            return start(freeAccounts.remove());
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void release(Session session) {
+        idle.add(session);
+        permits.release();
+    }
+
+    /**
+     * Quits a browser left in an unknown state and frees its place in the pool.
+     */
+    void discard(Session session) {
+        open.remove(session);
+        quit(session);
+        freeAccounts.add(session.account);
+        permits.release();
+    }
+
+    /**
+     * Returns how many browsers the pool has started, counting the ones since discarded.
+     */
+    int getStarted() {
+        return started.get();
+    }
+
+    private Session start(int account) {
+        WebDriver driver = null;
+        try {
+            server.getStore(account).clear();
+            driver = newBrowser();
+            driver.manage().timeouts().implicitlyWait(WaitBudget.ELEMENT.getTimeout());
+            driver.manage().timeouts().scriptTimeout(SCRIPT_TIMEOUT);
+            driver.get(server.getAppUrl(account));
+            new WebDriverWait(driver, LOAD_TIMEOUT)
+                    .until(ExpectedConditions.jsReturnsValue("return document.readyState === 'complete'"));
+            Session session = new Session(driver, new NotesPage(driver), account);
+            open.add(session);
+            started.incrementAndGet();
+            return session;
+        } catch (RuntimeException | Error e) {
+            if (driver != null) {
+                ChromeLifecycle.quit(driver);
+            }
+            freeAccounts.add(account);
+            throw e;
+        }
+    }
+
+    private static WebDriver newBrowser() {
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("--headless=new", "--window-size=1280,1024", "--disable-extensions");
+        return ChromeLifecycle.launch(options, false);
+    }
+
+    private static void quit(Session session) {
+        ChromeLifecycle.quit(session.driver);
+    }
+
+    @Override
+    public void close() {
+        for (Session session : open) {
+            quit(session);
+        }
+        open.clear();
+        idle.clear();
+    }
+}
@@ -0,0 +1,81 @@
+package org.googlekeep.load;
+
+import org.googlekeep.metrics.LatencyHistogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Latency and throughput per action across all virtual users of a load run. Besides
+ * the page actions it keeps {@value #BROWSER_WAIT}, the time users queued for a
+ * browser from the pool, and whole scenario iterations under {@value #SCENARIO_PREFIX}
+ * and the scenario's name.
+ *
+ * <p>Successful and failed runs of an action are kept in separate histograms: a failure
+ * that gives up early, or waits out a whole budget, says nothing about how fast the
+ * action is, so the percentiles and throughput cover the successful runs only.
+ */
+public final class LoadMetrics {
+    public static final String BROWSER_WAIT = "browserWait";
+    public static final String SCENARIO_PREFIX = "scenario.";
+
+    private final Map<String, LatencyHistogram> actions = new ConcurrentSkipListMap<>();
+    private final Map<String, LatencyHistogram> failures = new ConcurrentSkipListMap<>();
+
+    /**
+     * Runs the action and records its latency; a failed action is recorded as an error
+     * and its exception propagates.
+     */
+    public void time(String action, Runnable body) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            body.run();
+            failed = false;
+        } finally {
+            record(action, System.nanoTime() - start, failed);
+        }
+    }
+
+    public void record(String action, long nanos, boolean failed) {
+        // Both exist once an action is recorded, so the report lists it either way
+        LatencyHistogram succeeded = actions.computeIfAbsent(action, key -> new LatencyHistogram());
+        LatencyHistogram failedRuns = failures.computeIfAbsent(action, key -> new LatencyHistogram());
+        (failed ? failedRuns : succeeded).record(nanos, failed);
+    }
+
+    /**
+     * Returns per action the latency percentiles and completions per second of the
+     * successful runs, and the errors with the latency of the failed runs under {@code failed}.
+     */
+    public Map<String, Object> toMap(long elapsedNanos) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        actions.forEach((action, histogram) -> {
+            LatencyHistogram failedRuns = failures.get(action);
+            Map<String, Object> entry = new LinkedHashMap<>(histogram.toMap());
+            entry.put("errors", failedRuns.getCount());
+            entry.put("throughputPerSec", Math.round(histogram.getCount() / (elapsedNanos / 1e9) * 100) / 100.0);
+            if (failedRuns.getCount() > 0) {
+                Map<String, Object> failed = new LinkedHashMap<>(failedRuns.toMap());
+                failed.remove("errors");
+                entry.put("failed", failed);
+            }
+            map.put(action, entry);
+        });
+        return map;
+    }
+
+    public String summary(long elapsedNanos) {
+        StringBuilder out = new StringBuilder(String.format("%-20s %7s %7s %9s %9s %9s %9s",
+                "action", "count", "errors", "per sec", "p50 ms", "p95 ms", "p99 ms"));
+        toMap(elapsedNanos).forEach((action, value) -> {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> entry = (Map<String, Object>) value;
+            out.append(String.format("%n%-20s %7s %7s %9.2f %9.1f %9.1f %9.1f", action,
+                    entry.get("count"), entry.get("errors"), (Double) entry.get("throughputPerSec"),
+                    (Double) entry.get("p50Ms"), (Double) entry.get("p95Ms"), (Double) entry.get("p99Ms")));
+        });
+        return out.toString();
+    }
+}
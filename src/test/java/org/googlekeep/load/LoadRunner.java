@@ -0,0 +1,235 @@
+package org.googlekeep.load;
+
+import org.googlekeep.metrics.ActionPerformance;
+import org.googlekeep.standin.KeepStandInServer;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs virtual users against the local Keep stand-in, each looping over scenarios
+ * ({@link LoadScenario}) picked from a weighted mix, with think time in between, until
+ * the run's duration is up. Users start evenly spread over the ramp-up.
+ *
+ * <p>Every user is a thread of its own; on a JVM with virtual threads (21+) they are
+ * virtual, so thousands of users cost little. The browsers underneath are a bounded
+ * {@link BrowserPool}: a user holds one only for the length of an iteration, so time spent
+ * queuing for a browser shows up as {@value LoadMetrics#BROWSER_WAIT} in the report.
+ *
+ * <p>Options:
+ * <ul>
+ *     <li>{@code --users} - virtual users, default 10</li>
+ *     <li>{@code --browsers} - size of the browser pool, default 4</li>
+ *     <li>{@code --duration} - seconds from the first user's start until no user starts
+ *     another iteration, default 60</li>
+ *     <li>{@code --ramp-up} - seconds over which the users start, default 10</li>
+ *     <li>{@code --think-time} - mean pause in milliseconds after each iteration, drawn
+ *     uniformly from half to one and a half times the mean, default 1000</li>
+ *     <li>{@code --mix} - scenario weights such as {@code create=3,search=1,delete-undo=1},
+ *     default every scenario equally</li>
+ *     <li>{@code --report} - JSON report path, default {@code target/load-report.json}</li>
+ * </ul>
+ *
+ * <p>The report carries per action the count, p50/p95/p99/max latency and completions
+ * per second of the successful runs over the whole run, and the errors with the latency
+ * of the failed runs apart, so quick failures do not flatter the percentiles. In-browser action profiling
+ * ({@link ActionPerformance}) is off unless {@code -Dkeep.perf.mode} says otherwise,
+ * so its probes do not load the browsers. The process exits with status 1 if no
+ * iteration completed.
+ */
+public final class LoadRunner {
+    private static final int MAX_LOGGED_FAILURES = 10;
+
+    private final BrowserPool pool;
+    private final Map<LoadScenario, Integer> mix;
+    private final int totalWeight;
+    private final long thinkTimeMs;
+    private final LoadMetrics metrics = new LoadMetrics();
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    LoadRunner(BrowserPool pool, Map<LoadScenario, Integer> mix, long thinkTimeMs) {
+        this.pool = pool;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.thinkTimeMs = thinkTimeMs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty(ActionPerformance.MODE_PROPERTY) == null) {
+            System.setProperty(ActionPerformance.MODE_PROPERTY, "off");
+        }
+        Map<String, String> options = parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "10"));
+        int browsers = Integer.parseInt(options.getOrDefault("browsers", "4"));
+        long durationMs = Long.parseLong(options.getOrDefault("duration", "60")) * 1000;
+        long rampUpMs = Long.parseLong(options.getOrDefault("ramp-up", "10")) * 1000;
+        long thinkTimeMs = Long.parseLong(options.getOrDefault("think-time", "1000"));
+        Map<LoadScenario, Integer> mix = LoadScenario.parseMix(options.get("mix"));
+        Path reportPath = Paths.get(options.getOrDefault("report", "target/load-report.json"));
+
+        KeepStandInServer server = KeepStandInServer.shared();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", Instant.now().toString());
+        report.put("users", users);
+        report.put("browsers", browsers);
+        report.put("durationMs", durationMs);
+        report.put("rampUpMs", rampUpMs);
+        report.put("thinkTimeMs", thinkTimeMs);
+        Map<String, Integer> mixReport = new LinkedHashMap<>();
+        mix.forEach((scenario, weight) -> mixReport.put(scenario.getKey(), weight));
+        report.put("mix", mixReport);
+
+        LoadRunner runner;
+        long elapsed;
+        try (BrowserPool pool = new BrowserPool(server, browsers)) {
+            runner = new LoadRunner(pool, mix, thinkTimeMs);
+            System.out.printf("Load run: %d users on %d browsers for %d s (ramp-up %d s, think time %d ms), mix %s%n",
+                    users, browsers, durationMs / 1000, rampUpMs / 1000, thinkTimeMs, mixReport);
+            long start = System.nanoTime();
+            runner.run(users, durationMs, rampUpMs, report);
+            elapsed = System.nanoTime() - start;
+            report.put("browsersStarted", pool.getStarted());
+        } finally {
+            server.stop();
+        }
+        report.put("elapsedMs", TimeUnit.NANOSECONDS.toMillis(elapsed));
+        report.put("iterations", runner.iterations.sum());
+        report.put("failedIterations", runner.failures.sum());
+        report.put("actions", runner.metrics.toMap(elapsed));
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        Files.write(reportPath, new Json().toJson(report).getBytes(StandardCharsets.UTF_8));
+
+        System.out.printf("%d iterations, %d failed, in %.1f s%n",
+                runner.iterations.sum(), runner.failures.sum(), elapsed / 1e9);
+        System.out.println(runner.metrics.summary(elapsed));
+        System.out.println("Load report written to " + reportPath.toAbsolutePath());
+        System.exit(runner.iterations.sum() > runner.failures.sum() ? 0 : 1);
+    }
+
+    void run(int users, long durationMs, long rampUpMs, Map<String, Object> report) throws InterruptedException {
+        ExecutorService executor = newUserExecutor(report);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMs);
+        for (int user = 0; user < users; user++) {
+            int id = user;
+            long delayMs = users > 1 ? rampUpMs * user / (users - 1) : 0;
+            executor.execute(() -> runUser(id, delayMs, deadline));
+        }
+        executor.shutdown();
+        // Users finish the iteration they are in; give a stuck one a generous bound
+        if (!executor.awaitTermination(durationMs + TimeUnit.MINUTES.toMillis(5), TimeUnit.MILLISECONDS)) {
+            System.out.println("Load run: users still busy after the grace period, interrupting them");
+            executor.shutdownNow();
+        }
+    }
+
+    private void runUser(int user, long delayMs, long deadline) {
+        try {
+            Thread.sleep(delayMs);
+            int iteration = 0;
+            while (System.nanoTime() < deadline) {
+                runIteration(pick(), "Load user " + user + " #" + (++iteration));
+                long thinkMs = thinkTimeMs / 2 + ThreadLocalRandom.current().nextLong(thinkTimeMs + 1);
+                Thread.sleep(thinkMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runIteration(LoadScenario scenario, String title) throws InterruptedException {
+        long queued = System.nanoTime();
+        BrowserPool.Session session;
+        try {
+            session = pool.acquire();
+        } catch (RuntimeException e) {
+            metrics.record(LoadMetrics.BROWSER_WAIT, System.nanoTime() - queued, true);
+            fail(scenario, title, e);
+            return;
+        }
+        metrics.record(LoadMetrics.BROWSER_WAIT, System.nanoTime() - queued, false);
+
+        long start = System.nanoTime();
+        try {
+            scenario.run(session.page, title, metrics);
+            // The notes stay on the pool's account; tracking them would only grow with the run
+            session.page.forgetCreatedNotes();
+            pool.release(session);
+            metrics.record(LoadMetrics.SCENARIO_PREFIX + scenario.getKey(), System.nanoTime() - start, false);
+            iterations.increment();
+        } catch (RuntimeException | Error e) {
+            pool.discard(session);
+            metrics.record(LoadMetrics.SCENARIO_PREFIX + scenario.getKey(), System.nanoTime() - start, true);
+            fail(scenario, title, e);
+        }
+    }
+
+    private void fail(LoadScenario scenario, String title, Throwable e) {
+        iterations.increment();
+        failures.increment();
+        if (failures.sum() <= MAX_LOGGED_FAILURES) {
+            System.out.println("Load iteration failed (" + scenario.getKey() + ", " + title + "): " + e);
+        }
+    }
+
+    private LoadScenario pick() {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<LoadScenario, Integer> entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Scenario mix is empty");
+    }
+
+    /**
+     * Returns an executor with a virtual thread per user where the JVM has them
+     * (looked up reflectively, as the build targets Java 11), else a platform thread per user.
+     */
+    private static ExecutorService newUserExecutor(Map<String, Object> report) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) factory.invoke(null);
+            report.put("userThreads", "virtual");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            // Before Java 21, or 19/20 without --enable-preview
+            report.put("userThreads", "platform");
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "virtual-user-" + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs but got " + String.join(" ", args));
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
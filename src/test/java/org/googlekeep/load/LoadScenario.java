@@ -0,0 +1,113 @@
+package org.googlekeep.load;
+
+import org.googlekeep.pages.NotesPage;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One iteration of a virtual user, scripted with the same {@link NotesPage} methods the
+ * functional tests use. Every scenario creates the note it works on and, except for
+ * {@link #ARCHIVE}, deletes it again, so the board a browser works on stays small
+ * however long the run.
+ */
+public enum LoadScenario {
+    CREATE {
+        @Override
+        void run(NotesPage page, String title, LoadMetrics metrics) {
+            metrics.time("createNote", () -> page.createNote(title));
+            metrics.time("deleteNoteByTitle", () -> page.deleteNoteByTitle(title, false));
+        }
+    },
+    PIN {
+        @Override
+        void run(NotesPage page, String title, LoadMetrics metrics) {
+            metrics.time("createNote", () -> page.createNote(title));
+            metrics.time("pinNoteByTitle", () -> page.pinNoteByTitle(title));
+            metrics.time("deleteNoteByTitle", () -> page.deleteNoteByTitle(title, false));
+        }
+    },
+    ARCHIVE {
+        @Override
+        void run(NotesPage page, String title, LoadMetrics metrics) {
+            metrics.time("createNote", () -> page.createNote(title));
+            metrics.time("archiveNoteByTitle", () -> page.archiveNoteByTitle(title));
+        }
+    },
+    DELETE_UNDO {
+        @Override
+        void run(NotesPage page, String title, LoadMetrics metrics) {
+            metrics.time("createNote", () -> page.createNote(title));
+            metrics.time("deleteNoteWithUndo", () -> page.deleteNoteByTitle(title, true));
+            metrics.time("deleteNoteByTitle", () -> page.deleteNoteByTitle(title, false));
+        }
+    },
+    SEARCH {
+        @Override
+        void run(NotesPage page, String title, LoadMetrics metrics) {
+            metrics.time("createNote", () -> page.createNote(title));
+            metrics.time("searchNoteByTitle", () -> page.searchNoteByTitle(title));
+            metrics.time("clearSearch", page::clearSearch);
+            metrics.time("goToMainNotes", page::goToMainNotes);
+            metrics.time("deleteNoteByTitle", () -> page.deleteNoteByTitle(title, false));
+        }
+    },
+    COLOR {
+        @Override
+        void run(NotesPage page, String title, LoadMetrics metrics) {
+            metrics.time("createNote", () -> page.createNote(title));
+            metrics.time("changeNoteColor", () -> page.changeNoteColor(title, "Coral"));
+            metrics.time("deleteNoteByTitle", () -> page.deleteNoteByTitle(title, false));
+        }
+    };
+
+    /**
+     * Runs the scenario on the page, timing each action.
+     *
+     * @param title A title no other iteration uses
+     */
+    abstract void run(NotesPage page, String title, LoadMetrics metrics);
+
+    /**
+     * Returns the scenario's name in a mix, e.g. {@code delete-undo}.
+     */
+    public String getKey() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Parses a mix such as {@code create=3,search=1} into scenario weights. An empty
+     * mix weighs every scenario equally.
+     *
+     * @throws IllegalArgumentException for an unknown scenario or a negative weight
+     */
+    public static Map<LoadScenario, Integer> parseMix(String mix) {
+        Map<LoadScenario, Integer> weights = new EnumMap<>(LoadScenario.class);
+        if (mix == null || mix.isBlank()) {
+            for (LoadScenario scenario : values()) {
+                weights.put(scenario, 1);
+            }
+            return weights;
+        }
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            LoadScenario scenario = null;
+            for (LoadScenario candidate : values()) {
+                if (candidate.getKey().equals(parts[0].trim().toLowerCase(Locale.ROOT))) {
+                    scenario = candidate;
+                }
+            }
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (scenario == null || weight < 0) {
+                throw new IllegalArgumentException("Unknown scenario weight '" + entry + "' in mix '" + mix
+                        + "': expected <scenario>=<weight> with a scenario of create, pin, archive, delete-undo, search or color");
+            }
+            weights.put(scenario, weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Scenario mix '" + mix + "' has no positive weight");
+        }
+        return weights;
+    }
+}
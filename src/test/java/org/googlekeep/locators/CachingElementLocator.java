@@ -0,0 +1,60 @@
+package org.googlekeep.locators;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.pagefactory.ElementLocator;
+
+import java.util.List;
+
+/**
+ * Element locator that keeps the resolved handle for as long as the driver's
+ * DOM generation is unchanged, instead of calling findElement on every access
+ * the way PageFactory's default locator does.
+ */
+public class CachingElementLocator implements ElementLocator {
+    private final SearchContext searchContext;
+    private final By by;
+    private final ElementHandleCache cache;
+
+    private WebElement element;
+    private long elementGeneration = -1;
+
+    public CachingElementLocator(SearchContext searchContext, By by, ElementHandleCache cache) {
+        this.searchContext = searchContext;
+        this.by = by;
+        this.cache = cache;
+    }
+
+    @Override
+    public synchronized WebElement findElement() {
+        long generation = cache.getGeneration();
+        if (element != null && elementGeneration == generation) {
+            LocatorMetrics.ELEMENT_HITS.increment();
+            return element;
+        }
+        LocatorMetrics.ELEMENT_LOOKUPS.increment();
+        element = searchContext.findElement(by);
+        elementGeneration = generation;
+        return element;
+    }
+
+    @Override
+    public List<WebElement> findElements() {
+        LocatorMetrics.ELEMENT_LOOKUPS.increment();
+        return searchContext.findElements(by);
+    }
+
+    /**
+     * Drops the cached handle after it turned out to be stale.
+     */
+    public synchronized void evict() {
+        element = null;
+        LocatorMetrics.STALE_RECOVERIES.increment();
+    }
+
+    @Override
+    public String toString() {
+        return "CachingElementLocator '" + by + "'";
+    }
+}
@@ -0,0 +1,45 @@
+package org.googlekeep.locators;
+
+import org.openqa.selenium.WebDriver;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-driver DOM generation shared by every cached element handle of a session.
+ *
+ * <p>Handles resolved in the current generation are reused as-is. Whoever loads a
+ * new document calls {@link #invalidate()}, which makes every cached handle
+ * re-resolve on its next use. Keep is a single page app, so switching views or
+ * searching keeps the document; elements the app replaces in the meantime are
+ * re-resolved on {@code StaleElementReferenceException}.
+ */
+public final class ElementHandleCache {
+    private static final Map<WebDriver, ElementHandleCache> CACHES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private ElementHandleCache() {
+    }
+
+    /**
+     * Returns the cache bound to the driver, creating it on first use.
+     */
+    public static ElementHandleCache forDriver(WebDriver driver) {
+        return CACHES.computeIfAbsent(driver, key -> new ElementHandleCache());
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Starts a new DOM generation, dropping every cached handle of this driver.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+}
@@ -0,0 +1,57 @@
+package org.googlekeep.locators;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JVM-wide counters for the locator registry and the element handle cache.
+ * Every cache hit is a findElement round trip that did not go to the browser.
+ */
+public final class LocatorMetrics {
+    static final LongAdder LOCATOR_REQUESTS = new LongAdder();
+    static final LongAdder LOCATOR_BUILDS = new LongAdder();
+    static final LongAdder ELEMENT_HITS = new LongAdder();
+    static final LongAdder ELEMENT_LOOKUPS = new LongAdder();
+    static final LongAdder STALE_RECOVERIES = new LongAdder();
+
+    private LocatorMetrics() {
+    }
+
+    public static long getElementHits() {
+        return ELEMENT_HITS.sum();
+    }
+
+    public static long getElementLookups() {
+        return ELEMENT_LOOKUPS.sum();
+    }
+
+    public static long getStaleRecoveries() {
+        return STALE_RECOVERIES.sum();
+    }
+
+    /**
+     * Returns the share of element accesses served from the cache, between 0 and 1.
+     */
+    public static double getHitRate() {
+        long hits = ELEMENT_HITS.sum();
+        long total = hits + ELEMENT_LOOKUPS.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public static void reset() {
+        LOCATOR_REQUESTS.reset();
+        LOCATOR_BUILDS.reset();
+        ELEMENT_HITS.reset();
+        ELEMENT_LOOKUPS.reset();
+        STALE_RECOVERIES.reset();
+    }
+
+    /**
+     * Returns a one-line report of both caches.
+     */
+    public static String summary() {
+        return String.format("Element cache: %d accesses, %.1f%% hit rate, %d findElement round trips saved, "
+                        + "%d stale handles re-resolved; locator registry: %d requests, %d locators built",
+                ELEMENT_HITS.sum() + ELEMENT_LOOKUPS.sum(), getHitRate() * 100, ELEMENT_HITS.sum(),
+                STALE_RECOVERIES.sum(), LOCATOR_REQUESTS.sum(), LOCATOR_BUILDS.sum());
+    }
+}
@@ -0,0 +1,61 @@
+package org.googlekeep.locators;
+
+import org.openqa.selenium.By;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Builds each locator once and hands out the same {@link By} on every later
+ * request. Parameterized entries, such as a note card's color option, are kept
+ * in a bounded LRU so unique arguments can't grow the registry without limit.
+ * Note cards are not located by a {@link By}: title lookups are scripts
+ * ({@link NoteCardLocator}), so they never go through the registry.
+ */
+public final class LocatorRegistry {
+    private static final int MAX_ENTRIES = 4096;
+
+    private static final Map<Object, Object> ENTRIES = Collections.synchronizedMap(
+            new LinkedHashMap<Object, Object>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            });
+
+    private LocatorRegistry() {
+    }
+
+    public static By xpath(String expression) {
+        return (By) lookup(Arrays.asList("xpath", expression), key -> By.xpath(expression));
+    }
+
+    public static By css(String selector) {
+        return (By) lookup(Arrays.asList("css", selector), key -> By.cssSelector(selector));
+    }
+
+    /**
+     * Returns the XPath locator built from {@code String.format(template, args)}.
+     */
+    public static By xpath(String template, Object... args) {
+        return xpath(String.format(template, args));
+    }
+
+    /**
+     * Returns the CSS locator built from {@code String.format(template, args)}.
+     */
+    public static By css(String template, Object... args) {
+        return css(String.format(template, args));
+    }
+
+    private static Object lookup(Object key, Function<Object, Object> builder) {
+        LocatorMetrics.LOCATOR_REQUESTS.increment();
+        return ENTRIES.computeIfAbsent(key, k -> {
+            LocatorMetrics.LOCATOR_BUILDS.increment();
+            return builder.apply(k);
+        });
+    }
+}
@@ -0,0 +1,232 @@
+package org.googlekeep.locators;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.Locale;
+
+/**
+ * Finds note cards by the text of their title or content, which is the lookup
+ * nearly every {@code NotesPage} operation starts with.
+ *
+ * <p>Three strategies are available, selected with {@code -Dkeep.locator.strategy}:
+ * <ul>
+ *     <li>{@code xpath} - the original whole-document XPath, which makes the browser
+ *     walk the subtree of every card on every lookup;</li>
+ *     <li>{@code css} - {@code querySelectorAll} on the card class, then a text check of
+ *     each card's textboxes;</li>
+ *     <li>{@code title-index} (default) - an in-page map from textbox text to card. It is
+ *     installed by the first lookup in a document and kept up to date by a
+ *     MutationObserver, so exact title lookups cost a map access. Partial matches and
+ *     misses fall back to the CSS scan.</li>
+ * </ul>
+ *
+ * <p>The strategies are JavaScript, so the text is passed as a script argument instead
+ * of being spliced into an expression, and titles containing quotes work too.
+ */
+public final class NoteCardLocator {
+    public static final String STRATEGY_PROPERTY = "keep.locator.strategy";
+
+    public enum Strategy {
+        XPATH, CSS, TITLE_INDEX;
+
+        /**
+         * Parses {@code xpath}, {@code css} or {@code title-index}, case-insensitively.
+         */
+        public static Strategy parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private static final String CARD_SELECTOR = "div[class*='IZ65Hb-n0tgWb']";
+
+    private static final String XPATH_LOOKUP =
+            "function findCard(text) {" +
+            "  var literal = text.indexOf(\"'\") < 0 ? \"'\" + text + \"'\"" +
+            "      : 'concat(\\'' + text.split(\"'\").join(\"', \\\"'\\\", '\") + '\\')';" +
+            "  return document.evaluate(\"//div[contains(@class,'IZ65Hb-n0tgWb')]\" +" +
+            "      \"[.//div[@role='textbox' and contains(.,\" + literal + \")]]\"," +
+            "      document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;" +
+            "}";
+
+    private static final String CSS_LOOKUP =
+            "function scanCards(text) {" +
+            "  var cards = document.querySelectorAll(\"" + CARD_SELECTOR + "\");" +
+            "  for (var i = 0; i < cards.length; i++) {" +
+            "    var boxes = cards[i].querySelectorAll(\"div[role='textbox']\");" +
+            "    for (var j = 0; j < boxes.length; j++) {" +
+            "      if (boxes[j].textContent.indexOf(text) >= 0) { return cards[i]; }" +
+            "    }" +
+            "  }" +
+            "  return null;" +
+            "}";
+
+    /**
+     * Installs {@code window.__keepCardIndex} on first use. Each card remembers the keys it
+     * was filed under, so a mutation inside a card re-files just that card; cards that
+     * leave the document are dropped from the index.
+     */
+    private static final String INDEX_LOOKUP = CSS_LOOKUP +
+            "function cardIndex() {" +
+            "  var index = window.__keepCardIndex;" +
+            "  if (index) { return index; }" +
+            "  index = {keys: {}};" +
+            "  function isCard(n) {" +
+            "    return n.nodeType === 1 && typeof n.className === 'string' && n.className.indexOf('IZ65Hb-n0tgWb') >= 0;" +
+            "  }" +
+            "  function cardOf(n) { while (n && !isCard(n)) { n = n.parentNode; } return n; }" +
+            "  function unfile(card) {" +
+            "    var old = card.__keepKeys || [];" +
+            "    for (var i = 0; i < old.length; i++) {" +
+            "      var list = index.keys[old[i]];" +
+            "      if (!list) { continue; }" +
+            "      var at = list.indexOf(card);" +
+            "      if (at >= 0) { list.splice(at, 1); }" +
+            "      if (list.length === 0) { delete index.keys[old[i]]; }" +
+            "    }" +
+            "    card.__keepKeys = [];" +
+            "  }" +
+            "  function file(card) {" +
+            "    unfile(card);" +
+            "    if (!document.documentElement.contains(card)) { return; }" +
+            "    var boxes = card.querySelectorAll(\"div[role='textbox']\");" +
+            "    for (var i = 0; i < boxes.length; i++) {" +
+            "      var key = '#' + boxes[i].textContent.replace(/^\\s+|\\s+$/g, '');" +
+            "      if (key.length > 1 && card.__keepKeys.indexOf(key) < 0) {" +
+            "        card.__keepKeys.push(key);" +
+            "        (index.keys[key] = index.keys[key] || []).push(card);" +
+            "      }" +
+            "    }" +
+            "  }" +
+            "  function collect(node, out) {" +
+            "    var card = cardOf(node);" +
+            "    if (card) { out.push(card); return; }" +
+            "    if (node.nodeType === 1) {" +
+            "      var inner = node.querySelectorAll(\"" + CARD_SELECTOR + "\");" +
+            "      for (var i = 0; i < inner.length; i++) { out.push(inner[i]); }" +
+            "    }" +
+            "  }" +
+            "  function apply(records) {" +
+            "    var touched = [];" +
+            "    for (var i = 0; i < records.length; i++) {" +
+            "      var r = records[i], j;" +
+            "      collect(r.target, touched);" +
+            "      var added = r.addedNodes || [], removed = r.removedNodes || [];" +
+            "      for (j = 0; j < added.length; j++) { collect(added[j], touched); }" +
+            "      for (j = 0; j < removed.length; j++) { collect(removed[j], touched); }" +
+            "    }" +
+            "    for (var k = 0; k < touched.length; k++) {" +
+            "      if (touched.indexOf(touched[k]) === k) { file(touched[k]); }" +
+            "    }" +
+            "  }" +
+            "  var all = document.querySelectorAll(\"" + CARD_SELECTOR + "\");" +
+            "  for (var i = 0; i < all.length; i++) { file(all[i]); }" +
+            "  var observer = new MutationObserver(apply);" +
+            "  observer.observe(document.documentElement, {childList: true, subtree: true, characterData: true});" +
+            // Candidates are re-checked against the live card, so a missed record can't yield a stale hit
+            "  function stillMatches(card, text) {" +
+            "    if (!document.documentElement.contains(card)) { return false; }" +
+            "    var boxes = card.querySelectorAll(\"div[role='textbox']\");" +
+            "    for (var i = 0; i < boxes.length; i++) {" +
+            "      if (boxes[i].textContent.replace(/^\\s+|\\s+$/g, '') === text) { return true; }" +
+            "    }" +
+            "    return false;" +
+            "  }" +
+            "  index.find = function (text) {" +
+            "    apply(observer.takeRecords() || []);" +
+            "    var list = (index.keys['#' + text] || []).slice();" +
+            "    for (var i = 0; i < list.length; i++) {" +
+            "      if (stillMatches(list[i], text)) { return list[i]; }" +
+            "      file(list[i]);" +
+            "    }" +
+            "    return null;" +
+            "  };" +
+            "  window.__keepCardIndex = index;" +
+            "  return index;" +
+            "}" +
+            "function findCard(text) { return cardIndex().find(text) || scanCards(text); }";
+
+    private static final String VISIBLE =
+            "function visible(n) {" +
+            "  return !!(n.offsetWidth || n.offsetHeight || (n.getClientRects && n.getClientRects().length));" +
+            "}";
+
+    private static final Strategy CONFIGURED =
+            Strategy.parse(System.getProperty(STRATEGY_PROPERTY, "title-index"));
+
+    private final Strategy strategy;
+    private final String lookup;
+
+    public NoteCardLocator(Strategy strategy) {
+        this.strategy = strategy;
+        switch (strategy) {
+            case XPATH:
+                lookup = XPATH_LOOKUP;
+                break;
+            case CSS:
+                lookup = CSS_LOOKUP + "function findCard(text) { return scanCards(text); }";
+                break;
+            default:
+                lookup = INDEX_LOOKUP;
+        }
+    }
+
+    /**
+     * Returns a locator using the strategy selected with {@value #STRATEGY_PROPERTY}.
+     */
+    public static NoteCardLocator configured() {
+        return new NoteCardLocator(CONFIGURED);
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Predicate body for {@code DomWait#untilScript}: the card containing {@code args[0]}.
+     */
+    public String presentPredicate() {
+        return lookup + "return findCard(args[0]);";
+    }
+
+    /**
+     * Predicate body for {@code DomWait#untilScript}: the card containing {@code args[0]},
+     * once it is rendered with a non-empty box.
+     */
+    public String visiblePredicate() {
+        return lookup + VISIBLE + "var card = findCard(args[0]); return card && visible(card) ? card : null;";
+    }
+
+    /**
+     * Predicate body for {@code DomWait#untilScript}: the cards for every text in the
+     * list {@code args[0]}, in order, once all of them are present.
+     */
+    public String allPresentPredicate() {
+        return lookup +
+                "var out = [];" +
+                "for (var i = 0; i < args[0].length; i++) {" +
+                "  var card = findCard(args[0][i]);" +
+                "  if (!card) { return null; }" +
+                "  out.push(card);" +
+                "}" +
+                "return out;";
+    }
+
+    /**
+     * Predicate body for {@code DomWait#untilScript}: true once no card contains {@code args[0]}.
+     */
+    public String absentPredicate() {
+        return lookup + "return findCard(args[0]) === null;";
+    }
+
+    /**
+     * Looks the card up once, without waiting.
+     *
+     * @return The first card whose title or content contains the text, or null
+     */
+    public WebElement find(WebDriver driver, String text) {
+        return (WebElement) ((JavascriptExecutor) driver)
+                .executeScript("var args = arguments;" + presentPredicate(), text);
+    }
+}
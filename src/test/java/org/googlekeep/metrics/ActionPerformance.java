@@ -0,0 +1,195 @@
+package org.googlekeep.metrics;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JVM-wide record of the {@link ActionSample samples} taken by {@link ActionProfiler},
+ * checked against the {@link PerformanceBudgets} as they come in.
+ *
+ * <p>{@code -Dkeep.perf.mode} decides what a budget overrun does:
+ * <ul>
+ *     <li>{@code warn} (default) - the test passes and the overrun is printed and reported</li>
+ *     <li>{@code fail} - the test that ran the action fails</li>
+ *     <li>{@code off} - actions are not measured</li>
+ * </ul>
+ *
+ * <p>{@link #export()} writes every sample with per-action percentiles and overruns to
+ * {@value #DEFAULT_REPORT} (or {@code -Dkeep.perf.report}), and appends the per-action
+ * summary as one JSON line to {@value #DEFAULT_HISTORY} (or {@code -Dkeep.perf.history}),
+ * so builds can be trended. {@code -Dkeep.perf.build} tags the line, e.g. with a CI build number.
+ */
+public final class ActionPerformance {
+    public static final String MODE_PROPERTY = "keep.perf.mode";
+    public static final String REPORT_PROPERTY = "keep.perf.report";
+    public static final String HISTORY_PROPERTY = "keep.perf.history";
+    public static final String BUILD_PROPERTY = "keep.perf.build";
+    public static final String DEFAULT_REPORT = "target/action-performance.json";
+    public static final String DEFAULT_HISTORY = ".keep/action-performance-history.jsonl";
+
+    public enum Mode {
+        WARN, FAIL, OFF
+    }
+
+    private static final Mode MODE = Mode.valueOf(System.getProperty(MODE_PROPERTY, "warn").trim().toUpperCase(Locale.ROOT));
+    private static final PerformanceBudgets BUDGETS = PerformanceBudgets.load();
+    private static final List<ActionSample> SAMPLES = new CopyOnWriteArrayList<>();
+    private static final List<String> VIOLATIONS = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<String> CURRENT_TEST = new ThreadLocal<>();
+    private static final ThreadLocal<List<String>> CURRENT_VIOLATIONS = ThreadLocal.withInitial(ArrayList::new);
+
+    private ActionPerformance() {
+    }
+
+    public static boolean isEnabled() {
+        return MODE != Mode.OFF;
+    }
+
+    public static Mode getMode() {
+        return MODE;
+    }
+
+    /**
+     * Attributes the actions of the current thread to the given test until {@link #endTest()}.
+     */
+    public static void startTest(String testName) {
+        CURRENT_TEST.set(testName);
+        CURRENT_VIOLATIONS.get().clear();
+    }
+
+    /**
+     * Stops attributing actions to the current test.
+     *
+     * @return The budget overruns of the test's actions
+     */
+    public static List<String> endTest() {
+        List<String> violations = new ArrayList<>(CURRENT_VIOLATIONS.get());
+        CURRENT_TEST.remove();
+        CURRENT_VIOLATIONS.remove();
+        return violations;
+    }
+
+    static void record(String action, Map<String, Double> metrics) {
+        ActionSample sample = new ActionSample(action, CURRENT_TEST.get(), System.currentTimeMillis(), metrics);
+        SAMPLES.add(sample);
+        List<String> violations = BUDGETS.check(sample);
+        VIOLATIONS.addAll(violations);
+        CURRENT_VIOLATIONS.get().addAll(violations);
+    }
+
+    public static Map<String, Object> toMap() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", Instant.now().toString());
+        report.put("build", System.getProperty(BUILD_PROPERTY));
+        report.put("target", System.getProperty("keep.target", "google"));
+        report.put("mode", MODE.name().toLowerCase(Locale.ROOT));
+        report.put("actions", actionSummaries());
+        report.put("budgets", BUDGETS.getLimits());
+        List<Map<String, Object>> samples = new ArrayList<>();
+        for (ActionSample sample : SAMPLES) {
+            samples.add(sample.toMap());
+        }
+        report.put("samples", samples);
+        return report;
+    }
+
+    /**
+     * Returns, per action, the count, the duration percentiles and the number of budget overruns.
+     */
+    private static Map<String, Object> actionSummaries() {
+        Map<String, LatencyHistogram> durations = new TreeMap<>();
+        Map<String, Integer> overruns = new TreeMap<>();
+        for (ActionSample sample : SAMPLES) {
+            durations.computeIfAbsent(sample.getAction(), key -> new LatencyHistogram())
+                    .record((long) (sample.getDurationMs() * 1e6), false);
+            overruns.merge(sample.getAction(), BUDGETS.check(sample).isEmpty() ? 0 : 1, Integer::sum);
+        }
+        Map<String, Object> actions = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : durations.entrySet()) {
+            Map<String, Object> action = new LinkedHashMap<>(entry.getValue().toMap());
+            action.remove("errors");
+            action.put("durationBudgetMs", BUDGETS.limit(entry.getKey(), "durationMs"));
+            action.put("overBudget", overruns.get(entry.getKey()));
+            actions.put(entry.getKey(), action);
+        }
+        return actions;
+    }
+
+    /**
+     * Drops every sample and overrun recorded so far, e.g. between the submissions of a
+     * resident daemon.
+     */
+    public static void reset() {
+        SAMPLES.clear();
+        VIOLATIONS.clear();
+    }
+
+    public static Path getReportPath() {
+        return Paths.get(System.getProperty(REPORT_PROPERTY, DEFAULT_REPORT));
+    }
+
+    /**
+     * Writes the report, appends the trend line and returns the report's path.
+     */
+    public static Path export() {
+        Path report = getReportPath();
+        Path history = Paths.get(System.getProperty(HISTORY_PROPERTY, DEFAULT_HISTORY));
+        Map<String, Object> map = toMap();
+        Map<String, Object> trend = new LinkedHashMap<>(map);
+        trend.remove("samples");
+        trend.remove("budgets");
+        try {
+            if (report.getParent() != null) {
+                Files.createDirectories(report.getParent());
+            }
+            Files.write(report, new Json().toJson(map).getBytes(StandardCharsets.UTF_8));
+            if (!SAMPLES.isEmpty()) {
+                if (history.getParent() != null) {
+                    Files.createDirectories(history.getParent());
+                }
+                StringBuilder line = new StringBuilder();
+                new Json().newOutput(line).setPrettyPrint(false).write(trend);
+                Files.write(history, (line + "\n").getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write action performance to " + report, e);
+        }
+        return report;
+    }
+
+    /**
+     * Returns a short report of each action's duration against its budget.
+     */
+    public static String summary() {
+        if (SAMPLES.isEmpty()) {
+            return "Action performance: no actions measured";
+        }
+        StringBuilder out = new StringBuilder(String.format(
+                "Action performance (%d over budget, mode %s):", VIOLATIONS.size(), MODE.name().toLowerCase(Locale.ROOT)));
+        actionSummaries().forEach((action, value) -> {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> summary = (Map<String, Object>) value;
+            Object budget = summary.get("durationBudgetMs");
+            out.append(String.format("%n  %-24s %4s x, p50 %8.1f ms, p95 %8.1f ms, budget %s, %s over",
+                    action, summary.get("count"), (Double) summary.get("p50Ms"), (Double) summary.get("p95Ms"),
+                    budget == null ? "none" : budget + " ms", summary.get("overBudget")));
+        });
+        return out.toString();
+    }
+}
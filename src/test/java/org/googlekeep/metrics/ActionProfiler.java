@@ -0,0 +1,152 @@
+package org.googlekeep.metrics;
+
+import org.googlekeep.browser.Drivers;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Measures high-level page actions in the browser and hands each {@link ActionSample}
+ * to {@link ActionPerformance}, which checks it against the budgets.
+ *
+ * <p>Around an action the profiler reads the page clock and CDP
+ * {@code Performance.getMetrics}; long tasks are collected by a buffered
+ * {@code PerformanceObserver} it installs in the page on first use. The probes run
+ * outside the timed interval, so they add round trips to the test but not to the
+ * measured duration. They go to the undecorated driver, so they stay out of the
+ * command timings. Browsers without CDP or the Performance API report only the
+ * metrics they have, down to the bare duration.
+ */
+public class ActionProfiler {
+    private static final String START_SCRIPT =
+            "try {" +
+            "  if (!window.__keepPerf) {" +
+            "    var perf = window.__keepPerf = {longTasks: []};" +
+            "    new PerformanceObserver(function (list) {" +
+            "      list.getEntries().forEach(function (e) { perf.longTasks.push([e.startTime, e.duration]); });" +
+            "    }).observe({type: 'longtask', buffered: true});" +
+            "  }" +
+            "  return performance.now();" +
+            "} catch (e) { return null; }";
+
+    private static final String END_SCRIPT =
+            "try {" +
+            "  var since = arguments[0], perf = window.__keepPerf || {longTasks: []};" +
+            "  var result = {longTasks: 0, longTaskMs: 0, maxLongTaskMs: 0};" +
+            "  perf.longTasks.forEach(function (t) {" +
+            "    if (t[0] + t[1] > since) {" +
+            "      result.longTasks++; result.longTaskMs += t[1]; result.maxLongTaskMs = Math.max(result.maxLongTaskMs, t[1]);" +
+            "    }" +
+            "  });" +
+            "  var nav = performance.getEntriesByType('navigation')[0];" +
+            "  var fcp = performance.getEntriesByName('first-contentful-paint')[0];" +
+            "  if (nav) { result.domContentLoadedMs = nav.domContentLoadedEventEnd; result.loadMs = nav.loadEventEnd; }" +
+            "  if (fcp) { result.firstContentfulPaintMs = fcp.startTime; }" +
+            "  return result;" +
+            "} catch (e) { return null; }";
+
+    // CDP metric name -> sample metric name; durations come in seconds
+    private static final Map<String, String> CDP_DELTAS = Map.of(
+            "TaskDuration", "taskMs",
+            "ScriptDuration", "scriptMs",
+            "LayoutDuration", "layoutMs",
+            "RecalcStyleDuration", "recalcStyleMs",
+            "LayoutCount", "layoutCount",
+            "RecalcStyleCount", "recalcStyleCount");
+
+    private final JavascriptExecutor js;
+    private final HasCdp cdp;
+    private boolean cdpEnabled;
+
+    public ActionProfiler(WebDriver driver) {
+        WebDriver undecorated = Drivers.unwrap(driver);
+        this.js = (JavascriptExecutor) undecorated;
+        this.cdp = undecorated instanceof HasCdp ? (HasCdp) undecorated : null;
+    }
+
+    /**
+     * Runs the action and records its sample. A failing action is not recorded; its
+     * exception propagates unchanged.
+     */
+    public <T> T measure(String action, Supplier<T> body) {
+        if (!ActionPerformance.isEnabled()) {
+            return body.get();
+        }
+        Object since = script(START_SCRIPT);
+        Map<String, Double> before = cdpMetrics();
+        long start = System.nanoTime();
+        T result = body.get();
+        long nanos = System.nanoTime() - start;
+
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        metrics.put("durationMs", nanos / 1e6);
+        if (since instanceof Number) {
+            Object page = script(END_SCRIPT, since);
+            if (page instanceof Map) {
+                ((Map<?, ?>) page).forEach((name, value) -> {
+                    if (value instanceof Number) {
+                        metrics.put(String.valueOf(name), ((Number) value).doubleValue());
+                    }
+                });
+            }
+        }
+        Map<String, Double> after = cdpMetrics();
+        CDP_DELTAS.forEach((cdpName, name) -> {
+            if (before.containsKey(cdpName) && after.containsKey(cdpName)) {
+                double delta = after.get(cdpName) - before.get(cdpName);
+                metrics.put(name, cdpName.endsWith("Duration") ? delta * 1000 : delta);
+            }
+        });
+        if (after.containsKey("JSHeapUsedSize")) {
+            metrics.put("jsHeapUsedMb", after.get("JSHeapUsedSize") / (1024 * 1024));
+        }
+        if (after.containsKey("Nodes")) {
+            metrics.put("domNodes", after.get("Nodes"));
+        }
+        ActionPerformance.record(action, metrics);
+        return result;
+    }
+
+    public void measure(String action, Runnable body) {
+        measure(action, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    private Object script(String script, Object... args) {
+        try {
+            return js.executeScript(script, args);
+        } catch (WebDriverException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Double> cdpMetrics() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        if (cdp == null) {
+            return values;
+        }
+        try {
+            if (!cdpEnabled) {
+                cdp.executeCdpCommand("Performance.enable", Map.of());
+                cdpEnabled = true;
+            }
+            List<Map<String, Object>> metrics = (List<Map<String, Object>>) cdp
+                    .executeCdpCommand("Performance.getMetrics", Map.of()).get("metrics");
+            for (Map<String, Object> metric : metrics) {
+                values.put((String) metric.get("name"), ((Number) metric.get("value")).doubleValue());
+            }
+        } catch (WebDriverException | ClassCastException | NullPointerException e) {
+            // Metrics never fail a test
+        }
+        return values;
+    }
+}
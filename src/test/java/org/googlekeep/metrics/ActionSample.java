@@ -0,0 +1,67 @@
+package org.googlekeep.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Browser-side cost of one high-level page action, measured by {@link ActionProfiler}.
+ *
+ * <p>Metrics are flat, so budgets can address any of them by name:
+ * <ul>
+ *     <li>{@code durationMs} - wall-clock time until the action returned, i.e. until the
+ *     page object saw its effect</li>
+ *     <li>{@code longTasks}, {@code longTaskMs}, {@code maxLongTaskMs} - main-thread tasks
+ *     over 50 ms that overlapped the action</li>
+ *     <li>{@code taskMs}, {@code scriptMs}, {@code layoutMs}, {@code recalcStyleMs},
+ *     {@code layoutCount}, {@code recalcStyleCount} - CDP {@code Performance.getMetrics}
+ *     deltas over the action</li>
+ *     <li>{@code jsHeapUsedMb}, {@code domNodes} - CDP values after the action</li>
+ *     <li>{@code domContentLoadedMs}, {@code loadMs}, {@code firstContentfulPaintMs} - the
+ *     navigation and paint timings of the page the action ran on</li>
+ * </ul>
+ * Metrics the browser does not report are left out.
+ */
+public final class ActionSample {
+    private final String action;
+    private final String test;
+    private final long timestamp;
+    private final Map<String, Double> metrics;
+
+    ActionSample(String action, String test, long timestamp, Map<String, Double> metrics) {
+        this.action = action;
+        this.test = test;
+        this.timestamp = timestamp;
+        this.metrics = Collections.unmodifiableMap(new LinkedHashMap<>(metrics));
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Returns the test that ran the action, or null outside a test method.
+     */
+    public String getTest() {
+        return test;
+    }
+
+    public Map<String, Double> getMetrics() {
+        return metrics;
+    }
+
+    public double getDurationMs() {
+        return metrics.get("durationMs");
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("action", action);
+        map.put("test", test);
+        map.put("timestamp", timestamp);
+        Map<String, Object> rounded = new LinkedHashMap<>();
+        metrics.forEach((name, value) -> rounded.put(name, Math.round(value * 10) / 10.0));
+        map.put("metrics", rounded);
+        return map;
+    }
+}
@@ -0,0 +1,129 @@
+package org.googlekeep.metrics;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Times every call that goes through a driver decorated with
+ * {@link org.openqa.selenium.support.events.EventFiringDecorator} and reports it to
+ * {@link CommandTimings}.
+ *
+ * <p>The caller is taken from the stack: the innermost frame in a page object or
+ * component wins, so a click issued by {@code NoteCardComponent.clickPin} on behalf of
+ * {@code NotesPage.pinNoteByTitle} is filed under the component. Commands issued
+ * outside the page objects (navigation in {@code BaseTest}, assertions in a test) fall
+ * back to the nearest project frame. Waits and locator proxies are skipped, so a
+ * {@code DomWait} script is charged to the page method that waited.
+ */
+public class CommandTimingListener implements WebDriverListener {
+    private static final String PROJECT_PACKAGE = "org.googlekeep.";
+    private static final String[] PAGE_OBJECT_PACKAGES = {"org.googlekeep.pages.", "org.googlekeep.components."};
+    private static final String[] INFRASTRUCTURE_PACKAGES = {
+            "org.googlekeep.metrics.", "org.googlekeep.locators.", "org.googlekeep.waits."
+    };
+    // Accessors that return a local sub-interface or wrapper and never reach the browser
+    private static final Set<String> LOCAL_METHODS = new HashSet<>(Arrays.asList(
+            "manage", "navigate", "switchTo", "timeouts", "window", "logs",
+            "getWrappedDriver", "getWrappedElement", "equals", "hashCode", "toString"));
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final ThreadLocal<Deque<Long>> startTimes = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        if (!LOCAL_METHODS.contains(method.getName())) {
+            startTimes.get().push(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        finish(target, method, false);
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        finish(target, method, true);
+    }
+
+    private void finish(Object target, Method method, boolean failed) {
+        Deque<Long> stack = startTimes.get();
+        if (LOCAL_METHODS.contains(method.getName()) || stack.isEmpty()) {
+            return;
+        }
+        long nanos = System.nanoTime() - stack.pop();
+        CommandTimings.record(commandName(target, method), resolveCaller(), nanos, failed);
+    }
+
+    private static String commandName(Object target, Method method) {
+        if (target instanceof WebDriver.Navigation) {
+            return "navigate." + method.getName();
+        }
+        if (target instanceof WebDriver.Options || target instanceof WebDriver.Timeouts
+                || target instanceof WebDriver.Window) {
+            return "manage." + method.getName();
+        }
+        if (target instanceof WebDriver.TargetLocator) {
+            return "switchTo." + method.getName();
+        }
+        return method.getName();
+    }
+
+    private static String resolveCaller() {
+        return WALKER.walk(frames -> {
+            String fallback = null;
+            Iterator<StackWalker.StackFrame> it = frames.iterator();
+            while (it.hasNext()) {
+                StackWalker.StackFrame frame = it.next();
+                String className = frame.getClassName();
+                if (!className.startsWith(PROJECT_PACKAGE) || startsWithAny(className, INFRASTRUCTURE_PACKAGES)) {
+                    continue;
+                }
+                if (startsWithAny(className, PAGE_OBJECT_PACKAGES)) {
+                    return describe(frame);
+                }
+                if (fallback == null) {
+                    fallback = describe(frame);
+                }
+            }
+            return fallback != null ? fallback : "(unattributed)";
+        });
+    }
+
+    private static boolean startsWithAny(String className, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Formats a frame as {@code SimpleClass.method}, folding inner classes and lambdas
+     * into the method that declared them.
+     */
+    private static String describe(StackWalker.StackFrame frame) {
+        String className = frame.getClassName();
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        int inner = simpleName.indexOf('$');
+        if (inner > 0) {
+            simpleName = simpleName.substring(0, inner);
+        }
+        String methodName = frame.getMethodName();
+        if (methodName.startsWith("lambda$")) {
+            String[] parts = methodName.split("\\$");
+            methodName = parts.length > 1 ? parts[1] : methodName;
+        }
+        return simpleName + "." + methodName;
+    }
+}
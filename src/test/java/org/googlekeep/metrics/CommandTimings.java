@@ -0,0 +1,256 @@
+package org.googlekeep.metrics;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JVM-wide latency record of every WebDriver command, fed by {@link CommandTimingListener}.
+ *
+ * <p>Each sample is filed three ways: by command ({@code click}, {@code findElement}, ...),
+ * by the page-object method that issued it ({@code NotesPage.createNote}) and by the
+ * test that was running on the thread at the time. {@link #export()} writes all three
+ * to {@value #DEFAULT_REPORT} (or {@code -Dkeep.timings.report}) so runs can be compared.
+ *
+ * <p>Time spent in waits ({@link org.googlekeep.waits.WaitPolicy#await}) is kept apart per
+ * wait budget, and only the commands issued outside a wait count as acting, so each test
+ * reports how long it waited for the app and how long it drove it.
+ */
+public final class CommandTimings {
+    public static final String REPORT_PROPERTY = "keep.timings.report";
+    public static final String DEFAULT_REPORT = "target/command-timings.json";
+
+    private static final Breakdown SUITE = new Breakdown();
+    private static final Map<String, Breakdown> TESTS = Collections.synchronizedMap(new LinkedHashMap<>());
+    private static final ThreadLocal<Breakdown> CURRENT_TEST = new ThreadLocal<>();
+    private static final ThreadLocal<int[]> WAIT_DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private CommandTimings() {
+    }
+
+    /**
+     * Attributes the commands of the current thread to the given test until {@link #endTest()}.
+     */
+    public static void startTest(String testName) {
+        Breakdown breakdown = new Breakdown();
+        TESTS.put(testName, breakdown);
+        CURRENT_TEST.set(breakdown);
+    }
+
+    public static void endTest() {
+        CURRENT_TEST.remove();
+    }
+
+    /**
+     * Records one command.
+     *
+     * @param command WebDriver command, e.g. {@code click}
+     * @param caller  Page-object method that issued it, e.g. {@code NotesPage.createNote}
+     */
+    public static void record(String command, String caller, long nanos, boolean failed) {
+        boolean waiting = WAIT_DEPTH.get()[0] > 0;
+        SUITE.record(command, caller, nanos, failed, waiting);
+        Breakdown test = CURRENT_TEST.get();
+        if (test != null) {
+            test.record(command, caller, nanos, failed, waiting);
+        }
+    }
+
+    /**
+     * Marks the start of a wait on the current thread; commands until the matching
+     * {@link #exitWait} are part of it rather than acting.
+     */
+    public static void enterWait() {
+        WAIT_DEPTH.get()[0]++;
+    }
+
+    /**
+     * Records a wait that ended. A wait nested in another is part of the outer one and
+     * is not recorded again.
+     *
+     * @param budget   Name of the wait budget, e.g. {@code NOTE_SYNC}
+     * @param timedOut Whether the wait gave up
+     */
+    public static void exitWait(String budget, long nanos, boolean timedOut) {
+        if (--WAIT_DEPTH.get()[0] > 0) {
+            return;
+        }
+        SUITE.recordWait(budget, nanos, timedOut);
+        Breakdown test = CURRENT_TEST.get();
+        if (test != null) {
+            test.recordWait(budget, nanos, timedOut);
+        }
+    }
+
+    public static Map<String, Object> toMap() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", Instant.now().toString());
+        report.putAll(SUITE.toMap());
+        Map<String, Object> tests = new LinkedHashMap<>();
+        synchronized (TESTS) {
+            for (Map.Entry<String, Breakdown> entry : TESTS.entrySet()) {
+                tests.put(entry.getKey(), entry.getValue().toMap());
+            }
+        }
+        report.put("tests", tests);
+        return report;
+    }
+
+    /**
+     * Returns the breakdown of one test, or an empty map if it issued no commands.
+     *
+     * @param testName The name passed to {@link #startTest(String)}
+     */
+    public static Map<String, Object> testToMap(String testName) {
+        Breakdown breakdown = TESTS.get(testName);
+        return breakdown == null ? Map.of() : breakdown.toMap();
+    }
+
+    /**
+     * Drops every timing recorded so far, e.g. between the submissions of a resident daemon.
+     * Tests still running keep recording into breakdowns no longer reported.
+     */
+    public static void reset() {
+        SUITE.clear();
+        TESTS.clear();
+    }
+
+    public static Path getReportPath() {
+        return Paths.get(System.getProperty(REPORT_PROPERTY, DEFAULT_REPORT));
+    }
+
+    /**
+     * Writes the report as JSON and returns its path.
+     */
+    public static Path export() {
+        Path path = getReportPath();
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.write(path, new Json().toJson(toMap()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write command timings to " + path, e);
+        }
+        return path;
+    }
+
+    /**
+     * Returns a short report of the page-object methods that spent the most time in the driver.
+     */
+    public static String summary(int limit) {
+        List<Map.Entry<String, LatencyHistogram>> callers = new ArrayList<>(SUITE.callers.entrySet());
+        callers.sort((a, b) -> Long.compare(b.getValue().getTotalNanos(), a.getValue().getTotalNanos()));
+        StringBuilder out = new StringBuilder("Slowest page-object methods by driver time:");
+        for (Map.Entry<String, LatencyHistogram> entry : callers.subList(0, Math.min(limit, callers.size()))) {
+            LatencyHistogram histogram = entry.getValue();
+            out.append(String.format("%n  %-40s %8.1f ms over %4d commands (p95 %.1f ms)", entry.getKey(),
+                    histogram.getTotalNanos() / 1_000_000.0, histogram.getCount(),
+                    histogram.percentile(95) / 1_000_000.0));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns how long the suite spent waiting, per wait budget, against how long it spent
+     * acting, followed by the tests that waited longest.
+     */
+    public static String waitSummary(int limit) {
+        StringBuilder out = new StringBuilder(String.format("Waiting vs acting: %.1f ms waiting, %.1f ms acting",
+                SUITE.waitingNanos() / 1_000_000.0, SUITE.acting.sum() / 1_000_000.0));
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(SUITE.waits).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            out.append(String.format("%n  %-40s %8.1f ms over %4d waits (p95 %.1f ms)", entry.getKey(),
+                    histogram.getTotalNanos() / 1_000_000.0, histogram.getCount(),
+                    histogram.percentile(95) / 1_000_000.0));
+        }
+        List<Map.Entry<String, Breakdown>> tests;
+        synchronized (TESTS) {
+            tests = new ArrayList<>(TESTS.entrySet());
+        }
+        tests.sort((a, b) -> Long.compare(b.getValue().waitingNanos(), a.getValue().waitingNanos()));
+        for (Map.Entry<String, Breakdown> entry : tests.subList(0, Math.min(limit, tests.size()))) {
+            out.append(String.format("%n  %-40s %8.1f ms waiting, %8.1f ms acting", entry.getKey(),
+                    entry.getValue().waitingNanos() / 1_000_000.0, entry.getValue().acting.sum() / 1_000_000.0));
+        }
+        return out.toString();
+    }
+
+    private static final class Breakdown {
+        private final Map<String, LatencyHistogram> commands = new ConcurrentHashMap<>();
+        private final Map<String, LatencyHistogram> callers = new ConcurrentHashMap<>();
+        private final Map<String, Map<String, LatencyHistogram>> callerCommands = new ConcurrentHashMap<>();
+        private final Map<String, LatencyHistogram> waits = new ConcurrentHashMap<>();
+        private final LongAdder acting = new LongAdder();
+
+        void record(String command, String caller, long nanos, boolean failed, boolean waiting) {
+            commands.computeIfAbsent(command, k -> new LatencyHistogram()).record(nanos, failed);
+            callers.computeIfAbsent(caller, k -> new LatencyHistogram()).record(nanos, failed);
+            callerCommands.computeIfAbsent(caller, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(command, k -> new LatencyHistogram()).record(nanos, failed);
+            if (!waiting) {
+                acting.add(nanos);
+            }
+        }
+
+        void clear() {
+            commands.clear();
+            callers.clear();
+            callerCommands.clear();
+            waits.clear();
+            acting.reset();
+        }
+
+        void recordWait(String budget, long nanos, boolean timedOut) {
+            waits.computeIfAbsent(budget, k -> new LatencyHistogram()).record(nanos, timedOut);
+        }
+
+        long waitingNanos() {
+            long total = 0;
+            for (LatencyHistogram histogram : waits.values()) {
+                total += histogram.getTotalNanos();
+            }
+            return total;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("waitingMs", waitingNanos() / 1_000_000.0);
+            map.put("actingMs", acting.sum() / 1_000_000.0);
+            // A timed-out wait counts as an error of its budget
+            map.put("waits", histograms(waits));
+            map.put("commands", histograms(commands));
+            Map<String, Object> methods = new TreeMap<>();
+            for (Map.Entry<String, LatencyHistogram> entry : callers.entrySet()) {
+                Map<String, Object> method = new LinkedHashMap<>();
+                method.put("total", entry.getValue().toMap());
+                method.put("commands", histograms(callerCommands.get(entry.getKey())));
+                methods.put(entry.getKey(), method);
+            }
+            map.put("pageObjectMethods", methods);
+            return map;
+        }
+
+        private static Map<String, Object> histograms(Map<String, LatencyHistogram> source) {
+            Map<String, Object> map = new TreeMap<>();
+            for (Map.Entry<String, LatencyHistogram> entry : source.entrySet()) {
+                map.put(entry.getKey(), entry.getValue().toMap());
+            }
+            return map;
+        }
+    }
+}
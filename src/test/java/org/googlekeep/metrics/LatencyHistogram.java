@@ -0,0 +1,163 @@
+package org.googlekeep.metrics;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency samples of one command or page-object method.
+ *
+ * <p>The first {@value #EXACT_SAMPLES} samples are kept as they are, so the percentiles of a
+ * suite run are exact (nearest rank). Past that, as in load runs or a resident daemon that
+ * records run after run, the samples move into log-linear buckets: every power of two is
+ * split into {@value #SUB_BUCKETS} buckets, so a percentile is off by less than 2% and the
+ * memory stays bounded however many samples come in. Count, total and max stay exact.
+ */
+public final class LatencyHistogram {
+    static final int EXACT_SAMPLES = 1024;
+    static final int SUB_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private long[] samples = new long[64];
+    private long[] buckets;
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private long errors;
+
+    public synchronized void record(long nanos, boolean failed) {
+        long value = Math.max(0, nanos);
+        if (buckets == null && count == EXACT_SAMPLES) {
+            buckets = new long[0];
+            for (int i = 0; i < count; i++) {
+                addToBucket(samples[i]);
+            }
+            samples = null;
+        }
+        if (buckets != null) {
+            addToBucket(value);
+        } else {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, (int) count * 2);
+            }
+            samples[(int) count] = value;
+        }
+        count++;
+        totalNanos += value;
+        maxNanos = Math.max(maxNanos, value);
+        if (failed) {
+            errors++;
+        }
+    }
+
+    /**
+     * Drops every sample, e.g. between the runs of a resident daemon.
+     */
+    public synchronized void reset() {
+        samples = new long[64];
+        buckets = null;
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        errors = 0;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns the nearest-rank percentile in nanoseconds, or 0 without samples.
+     *
+     * @param percentile Between 0 and 100
+     */
+    public synchronized long percentile(double percentile) {
+        return buckets != null ? bucketRank(percentile) : rank(sortedSamples(), percentile);
+    }
+
+    /**
+     * Returns count, total and p50/p95/p99/max in milliseconds, ready for JSON export.
+     */
+    public synchronized Map<String, Object> toMap() {
+        long[] sorted = buckets == null ? sortedSamples() : null;
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", count);
+        map.put("errors", errors);
+        map.put("totalMs", millis(totalNanos));
+        for (int percentile : new int[]{50, 95, 99}) {
+            map.put("p" + percentile + "Ms", millis(sorted != null ? rank(sorted, percentile) : bucketRank(percentile)));
+        }
+        map.put("maxMs", millis(maxNanos));
+        return map;
+    }
+
+    private long[] sortedSamples() {
+        long[] sorted = Arrays.copyOf(samples, (int) count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private void addToBucket(long nanos) {
+        int index = bucketIndex(nanos);
+        if (index >= buckets.length) {
+            buckets = Arrays.copyOf(buckets, index + 1);
+        }
+        buckets[index]++;
+    }
+
+    private long bucketRank(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, Math.min(count, (long) Math.ceil(percentile / 100.0 * count)));
+        long seen = 0;
+        for (int index = 0; index < buckets.length; index++) {
+            seen += buckets[index];
+            if (seen >= rank) {
+                return Math.min(maxNanos, bucketValue(index));
+            }
+        }
+        return maxNanos;
+    }
+
+    /**
+     * Values below {@value #SUB_BUCKETS} get a bucket each; above, the bucket is the power
+     * of two and the top bits below the leading one.
+     */
+    static int bucketIndex(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the middle of the range a bucket covers.
+     */
+    static long bucketValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + ((1L << shift) >> 1);
+    }
+
+    private static long rank(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
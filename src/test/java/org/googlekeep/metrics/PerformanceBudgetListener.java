@@ -0,0 +1,41 @@
+package org.googlekeep.metrics;
+
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+import java.util.List;
+
+/**
+ * Ties the actions measured by {@link ActionProfiler} to the test method running them,
+ * and fails or flags the test when one went over its budget (see {@link ActionPerformance}).
+ * Registered on {@code BaseTest}.
+ */
+public class PerformanceBudgetListener implements IInvokedMethodListener {
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult result) {
+        if (method.isTestMethod()) {
+            ActionPerformance.startTest(result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName());
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (!method.isTestMethod()) {
+            return;
+        }
+        List<String> violations = ActionPerformance.endTest();
+        if (violations.isEmpty()) {
+            return;
+        }
+        String message = "Performance budget exceeded: " + String.join("; ", violations);
+        if (ActionPerformance.getMode() == ActionPerformance.Mode.FAIL && result.getStatus() == ITestResult.SUCCESS) {
+            result.setStatus(ITestResult.FAILURE);
+            result.setThrowable(new AssertionError(message));
+        } else {
+            System.out.println("WARNING " + result.getMethod().getMethodName() + ": " + message);
+            Reporter.log(message);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.googlekeep.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Upper bounds for the metrics of {@link ActionSample actions}, read from a properties
+ * file of {@code <action>.<metric>=<limit>} entries, e.g. {@code createNote.durationMs=300}.
+ * An action of {@code *} sets a limit for every action that has none of its own.
+ *
+ * <p>The budgets come from {@code -Dkeep.perf.budgets=<file>}, or else from
+ * {@value #DEFAULT_RESOURCE} on the test classpath.
+ */
+public final class PerformanceBudgets {
+    public static final String BUDGETS_PROPERTY = "keep.perf.budgets";
+    public static final String DEFAULT_RESOURCE = "perf-budgets.properties";
+
+    private static final String ANY_ACTION = "*";
+
+    private final Map<String, Double> limits;
+
+    private PerformanceBudgets(Map<String, Double> limits) {
+        this.limits = Collections.unmodifiableMap(limits);
+    }
+
+    public static PerformanceBudgets load() {
+        Properties properties = new Properties();
+        String file = System.getProperty(BUDGETS_PROPERTY);
+        try {
+            if (file != null) {
+                Path path = Paths.get(file);
+                try (InputStream in = Files.newInputStream(path)) {
+                    properties.load(in);
+                }
+            } else {
+                try (InputStream in = PerformanceBudgets.class.getClassLoader().getResourceAsStream(DEFAULT_RESOURCE)) {
+                    if (in != null) {
+                        properties.load(in);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read performance budgets " + (file != null ? file : DEFAULT_RESOURCE), e);
+        }
+        Map<String, Double> limits = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            if (key.lastIndexOf('.') <= 0) {
+                throw new IllegalArgumentException("Performance budget '" + key + "' is not <action>.<metric>");
+            }
+            try {
+                limits.put(key.trim(), Double.parseDouble(value));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Performance budget " + key + " is not a number: " + value, e);
+            }
+        }
+        return new PerformanceBudgets(limits);
+    }
+
+    /**
+     * Returns the limit for a metric of an action, or null if it has no budget.
+     */
+    public Double limit(String action, String metric) {
+        Double limit = limits.get(action + "." + metric);
+        return limit != null ? limit : limits.get(ANY_ACTION + "." + metric);
+    }
+
+    /**
+     * Returns a line for every metric of the sample over its budget.
+     */
+    public List<String> check(ActionSample sample) {
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, Double> metric : sample.getMetrics().entrySet()) {
+            Double limit = limit(sample.getAction(), metric.getKey());
+            if (limit != null && metric.getValue() > limit) {
+                violations.add(String.format("%s %s %.1f over budget %.1f",
+                        sample.getAction(), metric.getKey(), metric.getValue(), limit));
+            }
+        }
+        return violations;
+    }
+
+    public Map<String, Double> getLimits() {
+        return limits;
+    }
+}
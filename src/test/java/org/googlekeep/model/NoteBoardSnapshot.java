@@ -0,0 +1,50 @@
+package org.googlekeep.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable copy of every note card rendered on the board at one point in time.
+ * It is captured with a single script call, and the queries below run against the
+ * copy without further WebDriver round trips.
+ */
+public final class NoteBoardSnapshot {
+    private final List<NoteSnapshot> notes;
+
+    public NoteBoardSnapshot(List<NoteSnapshot> notes) {
+        this.notes = Collections.unmodifiableList(new ArrayList<>(notes));
+    }
+
+    /**
+     * Builds a snapshot from the list of maps produced by the snapshot script.
+     */
+    public static NoteBoardSnapshot fromScriptResult(List<Map<String, Object>> raw) {
+        List<NoteSnapshot> notes = new ArrayList<>();
+        for (Map<String, Object> card : raw) {
+            notes.add(NoteSnapshot.fromMap(card));
+        }
+        return new NoteBoardSnapshot(notes);
+    }
+
+    public List<NoteSnapshot> getNotes() {
+        return notes;
+    }
+
+    public int size() {
+        return notes.size();
+    }
+
+    /**
+     * Returns the first note whose title or body contains the given text.
+     */
+    public Optional<NoteSnapshot> findByTitle(String title) {
+        return notes.stream().filter(note -> note.matches(title)).findFirst();
+    }
+
+    public boolean contains(String title) {
+        return findByTitle(title).isPresent();
+    }
+}
@@ -0,0 +1,89 @@
+package org.googlekeep.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable state of a single note card as captured by a {@link NoteBoardSnapshot}.
+ */
+public final class NoteSnapshot {
+    private final String title;
+    private final String body;
+    private final boolean pinned;
+    private final List<String> labels;
+    private final List<String> checklistItems;
+    private final String color;
+
+    public NoteSnapshot(String title, String body, boolean pinned, List<String> labels,
+                        List<String> checklistItems, String color) {
+        this.title = title;
+        this.body = body;
+        this.pinned = pinned;
+        this.labels = List.copyOf(labels);
+        this.checklistItems = List.copyOf(checklistItems);
+        this.color = color;
+    }
+
+    /**
+     * Builds a note from the map produced by the snapshot script.
+     */
+    @SuppressWarnings("unchecked")
+    public static NoteSnapshot fromMap(Map<String, Object> raw) {
+        return new NoteSnapshot(
+                (String) raw.get("title"),
+                (String) raw.get("body"),
+                Boolean.TRUE.equals(raw.get("pinned")),
+                (List<String>) raw.get("labels"),
+                (List<String>) raw.get("items"),
+                (String) raw.get("color"));
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public boolean isPinned() {
+        return pinned;
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public List<String> getChecklistItems() {
+        return checklistItems;
+    }
+
+    /**
+     * Returns the card's computed background color, e.g. {@code rgb(250, 175, 168)}.
+     */
+    public String getColor() {
+        return color;
+    }
+
+    /**
+     * Matches the way the page objects locate cards: the text appears in the
+     * title or the body of the card.
+     */
+    public boolean matches(String text) {
+        return title.contains(text) || body.contains(text);
+    }
+
+    public boolean hasLabel(String label) {
+        return labels.stream().anyMatch(chip -> chip.contains(label));
+    }
+
+    public boolean hasChecklistItem(String item) {
+        return checklistItems.stream().anyMatch(text -> text.contains(item));
+    }
+
+    @Override
+    public String toString() {
+        return "NoteSnapshot{title='" + title + "', pinned=" + pinned + ", labels=" + labels
+                + ", items=" + checklistItems + ", color=" + color + "}";
+    }
+}
@@ -0,0 +1,118 @@
+package org.googlekeep.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable description of a note to create, used by {@code NotesPage.createNotes}
+ * and the fixture injection in {@code BaseTest.givenNotes}.
+ *
+ * <p>Start from {@link #titled(String)} and add content with the {@code with*} methods,
+ * each of which returns a new spec. As in Keep's list mode, a note with checklist
+ * items has no body.
+ */
+public final class NoteSpec {
+    private final String title;
+    private final String body;
+    private final List<String> checklistItems;
+    private final List<String> labels;
+    private final String color;
+    private final boolean pinned;
+    private final boolean archived;
+
+    private NoteSpec(String title, String body, List<String> checklistItems, List<String> labels, String color,
+                     boolean pinned, boolean archived) {
+        this.title = title;
+        this.body = body;
+        this.checklistItems = List.copyOf(checklistItems);
+        this.labels = List.copyOf(labels);
+        this.color = color;
+        this.pinned = pinned;
+        this.archived = archived;
+    }
+
+    public static NoteSpec titled(String title) {
+        return new NoteSpec(title, "", List.of(), List.of(), null, false, false);
+    }
+
+    public NoteSpec withBody(String body) {
+        return new NoteSpec(title, body, checklistItems, labels, color, pinned, archived);
+    }
+
+    public NoteSpec withChecklist(String... items) {
+        return new NoteSpec(title, "", Arrays.asList(items), labels, color, pinned, archived);
+    }
+
+    public NoteSpec withLabels(String... labels) {
+        return new NoteSpec(title, body, checklistItems, Arrays.asList(labels), color, pinned, archived);
+    }
+
+    /**
+     * @param color Palette name as accepted by {@code NoteCardComponent.changeColorTo},
+     *              e.g. {@code Coral} or {@code default}
+     */
+    public NoteSpec withColor(String color) {
+        return new NoteSpec(title, body, checklistItems, labels, color, pinned, archived);
+    }
+
+    /**
+     * Returns a spec for the same note, pinned. Keep unpins notes on archiving, so
+     * a note can't be both.
+     */
+    public NoteSpec pinned() {
+        return new NoteSpec(title, body, checklistItems, labels, color, true, false);
+    }
+
+    public NoteSpec archived() {
+        return new NoteSpec(title, body, checklistItems, labels, color, false, true);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public List<String> getChecklistItems() {
+        return checklistItems;
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Returns the palette color, or null to keep the default.
+     */
+    public String getColor() {
+        return color;
+    }
+
+    public boolean isPinned() {
+        return pinned;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
+    public boolean isChecklist() {
+        return !checklistItems.isEmpty();
+    }
+
+    /**
+     * Returns true if the note needs changes on its card after creation through the
+     * composer (labels, color, pin or archive).
+     */
+    public boolean needsCardChanges() {
+        return !labels.isEmpty() || color != null || pinned || archived;
+    }
+
+    @Override
+    public String toString() {
+        return "NoteSpec{title='" + title + "', items=" + checklistItems + ", labels=" + labels
+                + ", color=" + color + ", pinned=" + pinned + ", archived=" + archived + "}";
+    }
+}
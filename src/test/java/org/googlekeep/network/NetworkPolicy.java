@@ -0,0 +1,237 @@
+package org.googlekeep.network;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Named set of {@link ResourceClass resource classes} to block or stub while the tests
+ * drive the app, so page loads stop waiting for assets no page object ever reads.
+ *
+ * <p>Blocking by URL goes through {@code Network.setBlockedURLs}, which Chrome applies
+ * without a round trip to the test. Stubs, and blocks of resources only recognisable by
+ * their type, go through the CDP {@code Fetch} domain, which pauses just the matching
+ * requests and answers them from here: stubbed images get a transparent pixel, other
+ * stubs an empty response.
+ *
+ * <p>Selected with {@code -Dkeep.network.policy}:
+ * <ul>
+ *     <li>{@code none} (default) - every request goes through</li>
+ *     <li>{@code no-tracking} - analytics and logging beacons are blocked</li>
+ *     <li>{@code lean} - tracking, fonts and media are blocked, images are stubbed</li>
+ *     <li>{@code text-only} - all four classes are blocked</li>
+ *     <li>a custom list such as {@code images=stub,fonts=block}</li>
+ * </ul>
+ * The policy applies to the window the driver starts with; windows opened later load everything.
+ */
+public final class NetworkPolicy {
+    public static final String POLICY_PROPERTY = "keep.network.policy";
+
+    public enum Action {
+        BLOCK, STUB
+    }
+
+    private static final Map<String, NetworkPolicy> NAMED = new LinkedHashMap<>();
+
+    static {
+        register(new NetworkPolicy("none", Map.of()));
+        register(new NetworkPolicy("no-tracking", Map.of(ResourceClass.TRACKING, Action.BLOCK)));
+        register(new NetworkPolicy("lean", Map.of(
+                ResourceClass.TRACKING, Action.BLOCK,
+                ResourceClass.FONTS, Action.BLOCK,
+                ResourceClass.MEDIA, Action.BLOCK,
+                ResourceClass.IMAGES, Action.STUB)));
+        register(new NetworkPolicy("text-only", Map.of(
+                ResourceClass.TRACKING, Action.BLOCK,
+                ResourceClass.FONTS, Action.BLOCK,
+                ResourceClass.MEDIA, Action.BLOCK,
+                ResourceClass.IMAGES, Action.BLOCK)));
+    }
+
+    private static final Event<Map<String, Object>> REQUEST_PAUSED =
+            new Event<>("Fetch.requestPaused", input -> input.read(Json.MAP_TYPE));
+
+    private final String name;
+    private final Map<ResourceClass, Action> actions;
+    private final Map<ResourceClass, Pattern> urlMatchers = new EnumMap<>(ResourceClass.class);
+
+    private NetworkPolicy(String name, Map<ResourceClass, Action> actions) {
+        this.name = name;
+        this.actions = actions.isEmpty()
+                ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new EnumMap<>(actions));
+        for (ResourceClass resourceClass : this.actions.keySet()) {
+            urlMatchers.put(resourceClass, Pattern.compile(resourceClass.getUrlPatterns().stream()
+                    .map(NetworkPolicy::wildcardToRegex)
+                    .collect(Collectors.joining("|"))));
+        }
+    }
+
+    private static void register(NetworkPolicy policy) {
+        NAMED.put(policy.name, policy);
+    }
+
+    /**
+     * Returns the policy selected by {@value #POLICY_PROPERTY}.
+     */
+    public static NetworkPolicy fromSystemProperty() {
+        return parse(System.getProperty(POLICY_PROPERTY, "none"));
+    }
+
+    /**
+     * Returns a named policy, or builds one from a list such as {@code images=stub,fonts=block}.
+     *
+     * @throws IllegalArgumentException for an unknown name, class or action
+     */
+    public static NetworkPolicy parse(String spec) {
+        String trimmed = spec.trim().toLowerCase(Locale.ROOT);
+        NetworkPolicy named = NAMED.get(trimmed);
+        if (named != null) {
+            return named;
+        }
+        Map<ResourceClass, Action> actions = new EnumMap<>(ResourceClass.class);
+        for (String entry : trimmed.split(",")) {
+            String[] parts = entry.split("=");
+            try {
+                actions.put(ResourceClass.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)),
+                        Action.valueOf(parts[1].trim().toUpperCase(Locale.ROOT)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Unknown network policy '" + spec + "': expected one of "
+                        + NAMED.keySet() + " or a list such as images=stub,fonts=block", e);
+            }
+        }
+        return new NetworkPolicy(trimmed, actions);
+    }
+
+    public static List<String> namedPolicies() {
+        return new ArrayList<>(NAMED.keySet());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<ResourceClass, Action> getActions() {
+        return actions;
+    }
+
+    /**
+     * Installs the policy on a freshly started browser. Hand it the driver before it is
+     * decorated, so the setup commands and the DevTools session stay out of the command timings.
+     */
+    public void applyTo(WebDriver driver) {
+        if (actions.isEmpty()) {
+            return;
+        }
+        if (!(driver instanceof HasCdp)) {
+            System.out.println("Network policy '" + name + "' needs a Chromium browser, loading everything");
+            return;
+        }
+        List<String> blockedUrls = new ArrayList<>();
+        List<Map<String, Object>> fetchPatterns = new ArrayList<>();
+        for (Map.Entry<ResourceClass, Action> entry : actions.entrySet()) {
+            ResourceClass resourceClass = entry.getKey();
+            if (entry.getValue() == Action.BLOCK) {
+                blockedUrls.addAll(resourceClass.getUrlPatterns());
+            }
+            // Blocked types still need Fetch for the requests their URL does not give away
+            if (resourceClass.getCdpResourceType() != null) {
+                fetchPatterns.add(Map.of("urlPattern", "*", "resourceType", resourceClass.getCdpResourceType(),
+                        "requestStage", "Request"));
+            } else if (entry.getValue() == Action.STUB) {
+                for (String pattern : resourceClass.getUrlPatterns()) {
+                    fetchPatterns.add(Map.of("urlPattern", pattern, "requestStage", "Request"));
+                }
+            }
+        }
+
+        HasCdp cdp = (HasCdp) driver;
+        if (!blockedUrls.isEmpty()) {
+            cdp.executeCdpCommand("Network.enable", Map.of());
+            cdp.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", blockedUrls));
+        }
+        if (fetchPatterns.isEmpty()) {
+            return;
+        }
+        if (!(driver instanceof HasDevTools)) {
+            System.out.println("Network policy '" + name + "' can only block by URL without DevTools");
+            return;
+        }
+        DevTools devTools = ((HasDevTools) driver).getDevTools();
+        devTools.createSessionIfThereIsNotOne();
+        devTools.addListener(REQUEST_PAUSED, paused -> answer(devTools, paused));
+        devTools.send(new Command<>("Fetch.enable", Map.of("patterns", fetchPatterns)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void answer(DevTools devTools, Map<String, Object> paused) {
+        String requestId = (String) paused.get("requestId");
+        Map<String, Object> request = (Map<String, Object>) paused.get("request");
+        ResourceClass resourceClass = classify(String.valueOf(paused.get("resourceType")),
+                request == null ? "" : String.valueOf(request.get("url")));
+        Action action = resourceClass == null ? null : actions.get(resourceClass);
+        if (action == Action.BLOCK) {
+            devTools.send(new Command<>("Fetch.failRequest", Map.of("requestId", requestId, "errorReason", "BlockedByClient")));
+            PageLoadMetrics.recordIntercepted(action);
+        } else if (action == Action.STUB) {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("requestId", requestId);
+            response.put("responseCode", resourceClass.hasStubBody() ? 200 : 204);
+            response.put("responseHeaders", List.of(Map.of("name", "Content-Type", "value", resourceClass.getStubContentType())));
+            if (resourceClass.hasStubBody()) {
+                response.put("body", resourceClass.getStubBody());
+            }
+            devTools.send(new Command<>("Fetch.fulfillRequest", response));
+            PageLoadMetrics.recordIntercepted(action);
+        } else {
+            devTools.send(new Command<>("Fetch.continueRequest", Map.of("requestId", requestId)));
+        }
+    }
+
+    /**
+     * Returns the class of a paused request, by type where the browser knows it, otherwise by URL.
+     */
+    private ResourceClass classify(String resourceType, String url) {
+        for (ResourceClass resourceClass : actions.keySet()) {
+            if (resourceType.equals(resourceClass.getCdpResourceType())) {
+                return resourceClass;
+            }
+        }
+        for (Map.Entry<ResourceClass, Pattern> matcher : urlMatchers.entrySet()) {
+            if (matcher.getValue().matcher(url).matches()) {
+                return matcher.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static String wildcardToRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (String part : pattern.split("\\*", -1)) {
+            if (regex.length() > 0) {
+                regex.append(".*");
+            }
+            regex.append(Pattern.quote(part));
+        }
+        return regex.toString();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,94 @@
+package org.googlekeep.network;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JVM-wide cost of the app's page loads, so runs under different {@link NetworkPolicy
+ * network policies} can be compared: time until the page is ready, and bytes and
+ * requests as seen by the page's Performance API.
+ *
+ * <p>Browsers only report the size of cross-origin resources that send
+ * {@code Timing-Allow-Origin}, so on keep.google.com the byte count is a lower bound.
+ */
+public final class PageLoadMetrics {
+    private static final String TRANSFER_SCRIPT =
+            "if (!window.performance || !performance.getEntriesByType) { return null; }"
+                    + "var entries = performance.getEntriesByType('navigation').concat(performance.getEntriesByType('resource'));"
+                    + "var bytes = 0;"
+                    + "for (var i = 0; i < entries.length; i++) { bytes += entries[i].transferSize || 0; }"
+                    + "return [bytes, entries.length];";
+
+    private static final LongAdder LOADS = new LongAdder();
+    private static final LongAdder LOAD_NANOS = new LongAdder();
+    private static final LongAccumulator MAX_LOAD_NANOS = new LongAccumulator(Math::max, 0);
+    private static final LongAdder BYTES = new LongAdder();
+    private static final LongAdder REQUESTS = new LongAdder();
+    private static final LongAdder BLOCKED = new LongAdder();
+    private static final LongAdder STUBBED = new LongAdder();
+
+    private PageLoadMetrics() {
+    }
+
+    /**
+     * Records a completed page load.
+     *
+     * @param loadNanos Time from navigating until the document was complete
+     */
+    public static void record(WebDriver driver, long loadNanos) {
+        LOADS.increment();
+        LOAD_NANOS.add(loadNanos);
+        MAX_LOAD_NANOS.accumulate(loadNanos);
+        long[] transfer = transfer(driver);
+        BYTES.add(transfer[0]);
+        REQUESTS.add(transfer[1]);
+    }
+
+    /**
+     * Returns the bytes transferred and the requests made for the current document so far.
+     */
+    public static long[] transfer(WebDriver driver) {
+        try {
+            Object result = ((JavascriptExecutor) driver).executeScript(TRANSFER_SCRIPT);
+            if (result instanceof List) {
+                List<?> values = (List<?>) result;
+                return new long[]{((Number) values.get(0)).longValue(), ((Number) values.get(1)).longValue()};
+            }
+        } catch (WebDriverException | ClassCastException e) {
+            // Metrics never fail a test
+        }
+        return new long[]{0, 0};
+    }
+
+    static void recordIntercepted(NetworkPolicy.Action action) {
+        (action == NetworkPolicy.Action.BLOCK ? BLOCKED : STUBBED).increment();
+    }
+
+    public static void reset() {
+        LOADS.reset();
+        LOAD_NANOS.reset();
+        MAX_LOAD_NANOS.reset();
+        BYTES.reset();
+        REQUESTS.reset();
+        BLOCKED.reset();
+        STUBBED.reset();
+    }
+
+    public static String summary() {
+        long loads = LOADS.sum();
+        if (loads == 0) {
+            return "Page loads: none";
+        }
+        return String.format("Page loads under network policy '%s': %d, mean %.1f ms, max %.1f ms, "
+                        + "%.1f KB over %.1f requests per load, %d requests blocked and %d stubbed through Fetch",
+                NetworkPolicy.fromSystemProperty().getName(), loads,
+                LOAD_NANOS.sum() / 1e6 / loads, MAX_LOAD_NANOS.get() / 1e6,
+                BYTES.sum() / 1024.0 / loads, (double) REQUESTS.sum() / loads,
+                BLOCKED.sum(), STUBBED.sum());
+    }
+}
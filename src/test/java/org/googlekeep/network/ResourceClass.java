@@ -0,0 +1,62 @@
+package org.googlekeep.network;
+
+import java.util.List;
+
+/**
+ * Kinds of request the tests never look at, which a {@link NetworkPolicy} can block or stub.
+ *
+ * <p>Each class matches by URL pattern (CDP wildcards, as taken by
+ * {@code Network.setBlockedURLs}) and, where the browser can tell, by CDP resource type,
+ * which also catches assets served without a file extension such as avatars.
+ */
+public enum ResourceClass {
+    IMAGES("Image", "image/gif",
+            // 1x1 transparent GIF, so images keep their load event and layout
+            "R0lGODlhAQABAIAAAAAAAP///yH5BAEAAAAALAAAAAABAAEAAAIBRAA7",
+            "*.png", "*.jpg", "*.jpeg", "*.gif", "*.webp", "*.ico", "*.googleusercontent.com/*"),
+    FONTS("Font", "font/woff2", "",
+            "*.woff2", "*.woff", "*.ttf", "*.otf", "*fonts.gstatic.com/*"),
+    MEDIA("Media", "application/octet-stream", "",
+            "*.mp4", "*.webm", "*.mp3", "*.ogg", "*.wav", "*.m4a"),
+    TRACKING(null, "text/plain", "",
+            "*google-analytics.com/*", "*googletagmanager.com/*", "*doubleclick.net/*", "*csi.gstatic.com/*",
+            "*play.google.com/log*", "*/gen_204*", "*/log?*", "*/analytics.js");
+
+    private final String cdpResourceType;
+    private final String stubContentType;
+    private final String stubBody;
+    private final List<String> urlPatterns;
+
+    ResourceClass(String cdpResourceType, String stubContentType, String stubBase64, String... urlPatterns) {
+        this.cdpResourceType = cdpResourceType;
+        this.stubContentType = stubContentType;
+        this.stubBody = stubBase64;
+        this.urlPatterns = List.of(urlPatterns);
+    }
+
+    /**
+     * Returns the CDP {@code Network.ResourceType} of the class, or null if it is only known by URL.
+     */
+    public String getCdpResourceType() {
+        return cdpResourceType;
+    }
+
+    public List<String> getUrlPatterns() {
+        return urlPatterns;
+    }
+
+    public String getStubContentType() {
+        return stubContentType;
+    }
+
+    /**
+     * Returns the base64 body of a stubbed response; empty classes are answered with no content.
+     */
+    public String getStubBody() {
+        return stubBody;
+    }
+
+    boolean hasStubBody() {
+        return !stubBody.isEmpty();
+    }
+}
@@ -1,16 +1,20 @@
 package org.googlekeep.pages;
 
+import org.googlekeep.locators.CachingFieldDecorator;
+import org.googlekeep.locators.ElementHandleCache;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.support.PageFactory;
 
 /**
  * Base class for all pages. Initializes page objects and provides common behavior.
+ * {@code @FindBy} fields keep their resolved element until the driver's DOM
+ * generation changes (see {@link ElementHandleCache}).
  */
 public abstract class BasePage {
     protected WebDriver driver;
 
     public BasePage(WebDriver driver) {
         this.driver = driver;
-        PageFactory.initElements(driver, this);
+        PageFactory.initElements(new CachingFieldDecorator(driver, ElementHandleCache.forDriver(driver)), this);
     }
 }
\ No newline at end of file
@@ -0,0 +1,233 @@
+package org.googlekeep.pages;
+
+import org.googlekeep.model.NoteSnapshot;
+import org.googlekeep.waits.DomWait;
+import org.googlekeep.waits.WaitBudget;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks a lazily rendered note board a page of cards at a time.
+ *
+ * <p>Each step returns up to {@link #PAGE_SIZE} rendered cards the walk has not yielded
+ * yet, together with their snapshots. Once every rendered card has been yielded, the
+ * walk ends if the board says it has nothing left to render (its {@code data-unrendered}
+ * count, which the local stand-in keeps). Otherwise the last card is scrolled into view
+ * and the walk waits, in the page, for the board to render more; the board is only taken
+ * as exhausted once {@value #IDLE_SCROLLS} scrolls in a row bring no new card within the
+ * {@link WaitBudget#BOARD_SETTLE} budget, so one slow render does not cut the walk short.
+ * Cards are told apart by note identity ({@code data-note-id}, or the card element
+ * itself where the app has no id, as on keep.google.com, so two notes with the same text
+ * both count), kept in the page, so a card rendered again after a scroll or a delete is
+ * not yielded twice and the test side only ever holds the current page.
+ */
+final class BoardStream {
+    static final int PAGE_SIZE = 50;
+    static final int IDLE_SCROLLS = 2;
+
+    /**
+     * Returns the snapshot of a card, in the shape {@link NoteSnapshot#fromMap} reads.
+     */
+    static final String CARD_FUNCTION =
+            "function texts(card, selector, displayedOnly) {" +
+            "  var out = [], nodes = card.querySelectorAll(selector);" +
+            "  for (var i = 0; i < nodes.length; i++) {" +
+            "    if (displayedOnly && !(nodes[i].offsetWidth || nodes[i].offsetHeight)) { continue; }" +
+            "    out.push(nodes[i].textContent.trim());" +
+            "  }" +
+            "  return out;" +
+            "}" +
+            "function snapshotOf(card) {" +
+            "  var boxes = texts(card, \"div[role='textbox']\", false);" +
+            "  var pin = card.querySelector(\"div[role='button'][aria-label*='Unpin note']\");" +
+            "  return {" +
+            "    title: boxes.length > 0 ? boxes[0] : ''," +
+            "    body: boxes.slice(1).join('\\n')," +
+            "    pinned: !!pin && pin.getAttribute('aria-pressed') === 'true'," +
+            "    labels: texts(card, \"div[class*='bQfzdd']\", true)," +
+            "    items: texts(card, \"div[class*='e5WBfd']\", false)," +
+            "    color: window.getComputedStyle(card).backgroundColor" +
+            "  };" +
+            "}";
+
+    static final String CARDS_SELECTOR = "div[class*='IZ65Hb-n0tgWb']";
+
+    /**
+     * Returns just the title and body of a card, which is all matching and counting need;
+     * it skips the style and visibility checks that make a full snapshot expensive.
+     */
+    private static final String TEXT_FUNCTION =
+            "function textOf(card) {" +
+            "  var boxes = card.querySelectorAll(\"div[role='textbox']\"), body = [];" +
+            "  for (var i = 1; i < boxes.length; i++) { body.push(boxes[i].textContent.trim()); }" +
+            "  return {title: boxes.length > 0 ? boxes[0].textContent.trim() : '', body: body.join('\\n')};" +
+            "}";
+
+    /**
+     * Returns up to {@code max} rendered cards the walk has not yielded. A card without a
+     * {@code data-note-id} is keyed by its element, stamped with a number on first sight.
+     */
+    private static final String UNSEEN_FUNCTION =
+            "function cardKey(card) {" +
+            "  var id = card.getAttribute('data-note-id');" +
+            "  if (id) { return 'note:' + id; }" +
+            "  if (!card.__keepCardKey) {" +
+            "    window.__keepCardKeys = (window.__keepCardKeys || 0) + 1;" +
+            "    card.__keepCardKey = 'card:' + window.__keepCardKeys;" +
+            "  }" +
+            "  return card.__keepCardKey;" +
+            "}" +
+            "function unseen(token, max, mark) {" +
+            "  var walks = window.__keepBoardWalks || (window.__keepBoardWalks = {});" +
+            "  var seen = walks[token] || (walks[token] = {});" +
+            "  var cards = document.querySelectorAll(\"" + CARDS_SELECTOR + "\"), out = [];" +
+            "  for (var i = 0; i < cards.length && out.length < max; i++) {" +
+            "    var id = cardKey(cards[i]);" +
+            "    if (seen[id]) { continue; }" +
+            "    if (mark) { seen[id] = true; }" +
+            "    out.push(cards[i]);" +
+            "  }" +
+            "  return out;" +
+            "}";
+
+    private static final String PAGE_SCRIPT = CARD_FUNCTION + TEXT_FUNCTION + UNSEEN_FUNCTION +
+            "var full = arguments[2];" +
+            "return unseen(arguments[0], arguments[1], true).map(function (card) {" +
+            "  var text = textOf(card);" +
+            "  return {element: card, title: text.title, body: text.body, note: full ? snapshotOf(card) : null};" +
+            "});";
+
+    /**
+     * Returns true, without scrolling, if the board says every card is rendered; scrolls
+     * to the end of the board otherwise.
+     */
+    private static final String SCROLL_SCRIPT =
+            "var board = document.getElementById('board');" +
+            "if (board && board.getAttribute('data-unrendered') === '0') { return true; }" +
+            "var cards = document.querySelectorAll(\"" + CARDS_SELECTOR + "\");" +
+            "if (cards.length > 0) { cards[cards.length - 1].scrollIntoView(false); }" +
+            "window.scrollTo(0, document.documentElement.scrollHeight);" +
+            "return false;";
+
+    private static final String MORE_RENDERED_PREDICATE = UNSEEN_FUNCTION +
+            "return unseen(args[0], 1, false).length > 0;";
+
+    private static final String RELEASE_SCRIPT =
+            "if (window.__keepBoardWalks) { delete window.__keepBoardWalks[arguments[0]]; }";
+
+    private static final AtomicLong WALKS = new AtomicLong();
+
+    /**
+     * A rendered card and what it showed when the walk reached it.
+     */
+    static final class Card {
+        final WebElement element;
+        final String title;
+        final String body;
+        /** The full snapshot, or null on a walk that only reads titles and bodies. */
+        final NoteSnapshot note;
+
+        private Card(WebElement element, String title, String body, NoteSnapshot note) {
+            this.element = element;
+            this.title = title;
+            this.body = body;
+            this.note = note;
+        }
+
+        /**
+         * Matches like {@link NoteSnapshot#matches(String)}: the text is in the title or body.
+         */
+        boolean matches(String text) {
+            return title.contains(text) || body.contains(text);
+        }
+    }
+
+    private BoardStream() {
+    }
+
+    /**
+     * Starts a walk over the board from its top. The walk is lazy: a page is fetched when
+     * the stream needs it, so a search that stops early never scrolls further. Closing the
+     * stream releases the walk's state in the page, which also happens when it runs out.
+     *
+     * @param full Whether to take a full {@link NoteSnapshot} of every card, or only its text
+     */
+    static Stream<Card> walk(WebDriver driver, DomWait domWait, boolean full) {
+        String token = "walk-" + WALKS.incrementAndGet();
+        JavascriptExecutor js = (JavascriptExecutor) driver;
+        Spliterator<Card> pages = new Spliterators.AbstractSpliterator<Card>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private Iterator<Card> page = Collections.emptyIterator();
+            private boolean exhausted;
+            private int idleScrolls;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Card> action) {
+                while (!page.hasNext()) {
+                    if (exhausted) {
+                        return false;
+                    }
+                    page = nextPage().iterator();
+                }
+                action.accept(page.next());
+                return true;
+            }
+
+            @SuppressWarnings("unchecked")
+            private List<Card> nextPage() {
+                List<Map<String, Object>> raw = (List<Map<String, Object>>) js.executeScript(PAGE_SCRIPT, token, PAGE_SIZE, full);
+                if (raw.isEmpty()) {
+                    if (Boolean.TRUE.equals(js.executeScript(SCROLL_SCRIPT))) {
+                        exhaust();
+                        return Collections.emptyList();
+                    }
+                    try {
+                        domWait.untilScript("more note cards rendered", MORE_RENDERED_PREDICATE, WaitBudget.BOARD_SETTLE, token);
+                        idleScrolls = 0;
+                    } catch (TimeoutException e) {
+                        if (++idleScrolls >= IDLE_SCROLLS) {
+                            exhaust();
+                        }
+                    }
+                    return Collections.emptyList();
+                }
+                idleScrolls = 0;
+                List<Card> cards = new ArrayList<>(raw.size());
+                for (Map<String, Object> entry : raw) {
+                    Map<String, Object> note = (Map<String, Object>) entry.get("note");
+                    cards.add(new Card((WebElement) entry.get("element"), (String) entry.get("title"),
+                            (String) entry.get("body"), note == null ? null : NoteSnapshot.fromMap(note)));
+                }
+                return cards;
+            }
+
+            private void exhaust() {
+                exhausted = true;
+                release(js, token);
+            }
+        };
+        return StreamSupport.stream(pages, false).onClose(() -> release(js, token));
+    }
+
+    private static void release(JavascriptExecutor js, String token) {
+        try {
+            js.executeScript(RELEASE_SCRIPT, token);
+        } catch (RuntimeException e) {
+            // The page is gone, and its walk state with it
+        }
+    }
+}
@@ -2,29 +2,107 @@ package org.googlekeep.pages;
 
 import org.googlekeep.components.NewNoteComponent;
 import org.googlekeep.components.NoteCardComponent;
+import org.googlekeep.components.TextEntry;
+import org.googlekeep.locators.NoteCardLocator;
+import org.googlekeep.metrics.ActionProfiler;
+import org.googlekeep.model.NoteBoardSnapshot;
+import org.googlekeep.model.NoteSnapshot;
+import org.googlekeep.model.NoteSpec;
+import org.googlekeep.waits.DomWait;
+import org.googlekeep.waits.WaitBudget;
+import org.googlekeep.waits.WaitPolicy;
 import org.openqa.selenium.*;
+import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.ui.*;
 
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Page object representing the main Google Keep notes page.
+ *
+ * <p>Waits for UI changes go through {@link DomWait}, which resolves in the page as
+ * soon as the DOM reaches the expected state instead of polling every 500 ms. Each wait
+ * names its {@link WaitBudget}; scans that may well find nothing run in a
+ * {@link WaitPolicy#negative} scope so they don't stall on the implicit wait.
+ * Note cards are looked up by title through a {@link NoteCardLocator}, which by
+ * default keeps an in-page title index instead of running a whole-document XPath.
+ *
+ * <p>Keep renders large boards lazily, so the count, title lookup and cleanup walk the
+ * board a page of cards at a time and scroll for more ({@link #streamNotes()}), rather
+ * than trusting what happens to be in the DOM; the note checks (present, pinned, labels,
+ * checklist) do so whenever the note is not among the rendered cards.
+ *
+ * <p>Checks against the sidebar views (archive, trash, labels) navigate there and back
+ * by default. With {@code -Dkeep.multiview=true} each view is kept open in a window of
+ * its own instead (see {@link ViewWindows}).
  */
 public class NotesPage extends BasePage {
-    private final WebDriverWait wait;
+    private static final String EDITOR_TITLE_XPATH =
+            "//div[contains(@class,'IZ65Hb-r4nke-haAclf')]//div[@contenteditable='true' and text()='%s']";
+    private static final int ADOPT_WAIT_LIMIT = BoardStream.PAGE_SIZE;
+
+    /**
+     * Collects every rendered note card in one pass: the first textbox is the title,
+     * the rest make up the body, and pin state is read the same way checkPinStatus does.
+     */
+    private static final String SNAPSHOT_SCRIPT = BoardStream.CARD_FUNCTION +
+            "var cards = document.querySelectorAll(\"" + BoardStream.CARDS_SELECTOR + "\"), result = [];" +
+            "for (var i = 0; i < cards.length; i++) { result.push(snapshotOf(cards[i])); }" +
+            "return result;";
+
+    /**
+     * True once the card (args[0]) is painted in the swatch's (args[1]) color. A card that has
+     * been re-rendered out of the document counts as done, as in untilAttributeChanges.
+     */
+    private static final String COLOR_APPLIED =
+            "if (!document.documentElement.contains(args[0])) { return true; }" +
+            "return getComputedStyle(args[0]).backgroundColor === getComputedStyle(args[1]).backgroundColor;";
+
+    private final DomWait domWait;
+    private final NoteCardLocator noteCards = NoteCardLocator.configured();
     private final NewNoteComponent newNoteComponent;
+    private final ViewWindows viewWindows;
+    private final ActionProfiler profiler;
+    private final List<String> createdTitles = new ArrayList<>();
+    private final List<String> archivedTitles = new ArrayList<>();
+    // Whether keyboard actions reach the composer; null until the first bulk note tells
+    private Boolean chainedTyping;
 
     /**
-     * Initializes the NotesPage with WebDriver instance and sets up the WebDriverWait.
+     * Initializes the NotesPage with WebDriver instance and sets up the DomWait.
      * Also initializes the NewNoteComponent for note creation operations.
      *
      * @param driver The WebDriver instance to use for this page
      */
     public NotesPage(WebDriver driver) {
+        this(driver, ViewWindows.isEnabled());
+    }
+
+    /**
+     * Initializes the NotesPage, with the sidebar views kept open in windows of their
+     * own or not, whatever {@code -Dkeep.multiview} says.
+     *
+     * @param driver    The WebDriver instance to use for this page
+     * @param multiview Whether to check the sidebar views in windows of their own
+     */
+    public NotesPage(WebDriver driver, boolean multiview) {
         super(driver);
-        wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+        domWait = new DomWait(driver, WaitBudget.CONTROL);
         this.newNoteComponent = new NewNoteComponent(driver);
+        this.viewWindows = multiview ? new ViewWindows(driver) : null;
+        this.profiler = new ActionProfiler(driver);
     }
 
     /**
@@ -41,36 +119,238 @@ public class NotesPage extends BasePage {
      * @param title The title text to set for the new note
      */
     public void createNote(String title) {
-        newNoteComponent.createNote(title);
-        waitUntilNoteAppears(title);
+        profiler.measure("createNote", () -> {
+            newNoteComponent.createNote(title);
+            createdTitles.add(title);
+            waitUntilNoteAppears(title);
+        });
+    }
+
+    /**
+     * Creates a note with a title and a body, which may be long: long runs of text are
+     * inserted in bulk rather than typed ({@link TextEntry}).
+     *
+     * @param title The title text to set for the new note
+     * @param body  The body text, with line breaks entered as Enter
+     */
+    public void createNote(String title, String body) {
+        profiler.measure("createNoteWithBody", () -> {
+            newNoteComponent.createNote(title, body);
+            createdTitles.add(title);
+            waitUntilNoteAppears(title);
+        });
+    }
+
+    /**
+     * Creates many notes in one pipelined pass, for seeding large boards.
+     *
+     * <p>Each note is typed into the composer with a single {@link Actions} chain and
+     * nothing waits for its card. The first chained note on a page is checked once, with
+     * the whole {@link WaitBudget#NOTE_SYNC} budget, since on a slow browser typing it
+     * again would create it twice; if its card never shows, the driver's keyboard actions
+     * did not reach the composer, and the notes are typed field by field instead, still
+     * without per-note waits; so are notes with long text,
+     * which field by field is inserted in bulk ({@link TextEntry}). Labels, colors, pins and
+     * archiving are then applied with one chain per note once the newest card, typed last,
+     * is on the board. Finally the title, body, checklist items, labels and pin state of
+     * every note not archived are checked (colors are not). A batch can be larger than the
+     * board renders at once, so the cards are found and checked by walking the board
+     * ({@link BoardStream}), which stops once it has met every note of the batch; if some
+     * are missing or incomplete, the board is walked again until they check out or the
+     * {@link WaitBudget#NOTE_SYNC} budget runs out.
+     *
+     * @param specs The notes to create
+     * @return The cards of the batch, as the notes were verified against
+     * @throws IllegalStateException If a note is missing or incomplete after creation
+     */
+    public NoteBoardSnapshot createNotes(List<NoteSpec> specs) {
+        for (NoteSpec spec : specs) {
+            if (Boolean.FALSE.equals(chainedTyping) || hasBulkText(spec)) {
+                newNoteComponent.typeNote(spec);
+            } else {
+                newNoteComponent.queueNote(new Actions(driver), spec).perform();
+                if (chainedTyping == null) {
+                    chainedTyping = isNoteCardPresentWithin(spec.getTitle(), WaitBudget.NOTE_SYNC);
+                    if (!chainedTyping) {
+                        newNoteComponent.typeNote(spec);
+                    }
+                }
+            }
+            createdTitles.add(spec.getTitle());
+            if (spec.isArchived()) {
+                archivedTitles.add(spec.getTitle());
+            }
+        }
+
+        if (!specs.isEmpty()) {
+            try {
+                waitForNoteCard(specs.get(specs.size() - 1).getTitle(), WaitBudget.NOTE_SYNC);
+            } catch (TimeoutException e) {
+                // Whatever is still missing is reported below
+            }
+        }
+
+        List<NoteSpec> withCardChanges = specs.stream().filter(NoteSpec::needsCardChanges).collect(Collectors.toList());
+        if (!withCardChanges.isEmpty()) {
+            Map<String, WebElement> cards = walkToCards(titlesOf(withCardChanges));
+            if (cards.size() < withCardChanges.size()) {
+                throw new IllegalStateException("Bulk note creation incomplete: missing " + titlesOf(withCardChanges).stream()
+                        .filter(title -> !cards.containsKey(title)).collect(Collectors.toList()));
+            }
+            for (NoteSpec spec : withCardChanges) {
+                new NoteCardComponent(driver, cards.get(spec.getTitle())).queueChanges(new Actions(driver), spec)
+                        .perform();
+            }
+        }
+
+        long deadline = System.nanoTime() + WaitBudget.NOTE_SYNC.getTimeout().toNanos();
+        NoteBoardSnapshot board = walkToNotes(specs);
+        List<String> problems = verifyCreated(board, specs);
+        while (!problems.isEmpty() && System.nanoTime() < deadline) {
+            board = walkToNotes(specs);
+            problems = verifyCreated(board, specs);
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Bulk note creation incomplete: " + problems);
+        }
+        return board;
+    }
+
+    /**
+     * Takes over notes that were put into the app state without the UI, e.g. by
+     * {@code NoteFixtures}: they are purged like notes created here, and this waits
+     * until the cards of those not archived are on the board. Of a batch larger than
+     * a board renders at once, only the newest {@value #ADOPT_WAIT_LIMIT}, which go on
+     * top, are waited for.
+     *
+     * @param specs The injected notes
+     * @return The board once the cards are there
+     */
+    public NoteBoardSnapshot adoptNotes(List<NoteSpec> specs) {
+        for (NoteSpec spec : specs) {
+            (spec.isArchived() ? archivedTitles : createdTitles).add(spec.getTitle());
+        }
+        List<NoteSpec> visible = onBoard(specs);
+        if (!visible.isEmpty()) {
+            waitForNoteCards(titlesOf(visible.subList(Math.max(0, visible.size() - ADOPT_WAIT_LIMIT), visible.size())));
+        }
+        return snapshot();
+    }
+
+    private static List<NoteSpec> onBoard(List<NoteSpec> specs) {
+        return specs.stream().filter(spec -> !spec.isArchived()).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns true if the note has text long enough for {@link TextEntry} to insert in bulk,
+     * which an actions chain would type key by key.
+     */
+    private static boolean hasBulkText(NoteSpec spec) {
+        return TextEntry.isBulk(spec.getBody()) || spec.getChecklistItems().stream().anyMatch(TextEntry::isBulk);
+    }
+
+    private static List<String> titlesOf(List<NoteSpec> specs) {
+        return specs.stream().map(NoteSpec::getTitle).collect(Collectors.toList());
+    }
+
+    /**
+     * Walks the board until the cards titled exactly as given are found, or it ends.
+     *
+     * @return The cards found, by title
+     */
+    private Map<String, WebElement> walkToCards(List<String> titles) {
+        Set<String> wanted = new HashSet<>(titles);
+        Map<String, WebElement> found = new HashMap<>();
+        try (Stream<BoardStream.Card> cards = BoardStream.walk(driver, domWait, false)) {
+            Iterator<BoardStream.Card> walk = cards.iterator();
+            while (found.size() < wanted.size() && walk.hasNext()) {
+                BoardStream.Card card = walk.next();
+                if (wanted.contains(card.title)) {
+                    found.putIfAbsent(card.title, card.element);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Walks the board until every note of the batch not archived has been met, or it ends.
+     *
+     * @return The snapshots of the batch's cards, in board order
+     */
+    private NoteBoardSnapshot walkToNotes(List<NoteSpec> specs) {
+        Set<String> wanted = new HashSet<>(titlesOf(onBoard(specs)));
+        Set<String> met = new HashSet<>();
+        List<NoteSnapshot> notes = new ArrayList<>();
+        try (Stream<BoardStream.Card> cards = BoardStream.walk(driver, domWait, true)) {
+            Iterator<BoardStream.Card> walk = cards.iterator();
+            while (met.size() < wanted.size() && walk.hasNext()) {
+                BoardStream.Card card = walk.next();
+                if (wanted.contains(card.title)) {
+                    met.add(card.title);
+                    notes.add(card.note);
+                }
+            }
+        }
+        return new NoteBoardSnapshot(notes);
+    }
+
+    private static List<String> verifyCreated(NoteBoardSnapshot board, List<NoteSpec> specs) {
+        List<String> problems = new ArrayList<>();
+        for (NoteSpec spec : onBoard(specs)) {
+            NoteSnapshot note = board.findByTitle(spec.getTitle()).orElse(null);
+            if (note == null) {
+                problems.add(spec.getTitle() + ": missing");
+                continue;
+            }
+            if (!note.getBody().contains(spec.getBody())
+                    || !spec.getChecklistItems().stream().allMatch(note::hasChecklistItem)
+                    || !spec.getLabels().stream().allMatch(note::hasLabel)
+                    || spec.isPinned() != note.isPinned()) {
+                problems.add(spec.getTitle() + ": expected " + spec + " but was " + note);
+            }
+        }
+        return problems;
     }
 
     /**
-     * Pins a note identified by its title if the note exists.
+     * Pins a note identified by its title if the note exists, and waits until the
+     * pin button's pressed state flips.
      *
      * @param title The title of the note to pin
      */
     public void pinNoteByTitle(String title) {
         NoteCardComponent note = getNoteByTitle(title);
         if (note != null) {
-            note.clickPin();
+            WebElement pinButton = note.getPinButton();
+            String pressed = pinButton.getAttribute("aria-pressed");
+            profiler.measure("pinNoteByTitle", () -> {
+                note.clickPin();
+                domWait.untilAttributeChanges(pinButton, "aria-pressed", pressed);
+            });
         }
     }
 
     /**
-     * Archives a note identified by its title if the note exists.
+     * Archives a note identified by its title if the note exists, and waits until its
+     * card has left the board.
      *
      * @param title The title of the note to archive
      */
     public void archiveNoteByTitle(String title) {
         NoteCardComponent note = getNoteByTitle(title);
         if (note != null) {
-            note.clickArchive();
+            profiler.measure("archiveNoteByTitle", () -> {
+                note.clickArchive();
+                domWait.untilScript("note card gone " + title, noteCards.absentPredicate(), WaitBudget.NOTE_SYNC, title);
+            });
+            archivedTitles.add(title);
         }
     }
 
     /**
-     * Deletes a note by its title with option to undo the deletion.
+     * Deletes a note by its title with option to undo the deletion. Returns once the
+     * card is gone, or once it is back when the deletion is undone.
      *
      * @param title The title of the note to delete
      * @param undo  If true, will undo the deletion after performing it
@@ -78,11 +358,15 @@ public class NotesPage extends BasePage {
     public void deleteNoteByTitle(String title, boolean undo) {
         NoteCardComponent note = getNoteByTitle(title);
         if (note != null) {
-            note.deleteFromMenu();
-            if (undo) {
-                undoDeletedNote();
-                waitUntilNoteAppears(title);
-            }
+            profiler.measure(undo ? "deleteNoteWithUndo" : "deleteNoteByTitle", () -> {
+                note.deleteFromMenu();
+                if (undo) {
+                    undoDeletedNote();
+                    waitUntilNoteAppears(title);
+                } else {
+                    domWait.untilScript("note card gone " + title, noteCards.absentPredicate(), WaitBudget.NOTE_SYNC, title);
+                }
+            });
         }
     }
 
@@ -90,7 +374,7 @@ public class NotesPage extends BasePage {
      * Clicks the 'Undo' button that appears after deleting a note to restore it.
      */
     public void undoDeletedNote() {
-        WebElement undoSnackbar = wait.until(ExpectedConditions.visibilityOfElementLocated(By.xpath("//div[@role='alertdialog']//div[@role='button'][contains(.,'Undo')]")));
+        WebElement undoSnackbar = domWait.untilVisible("//div[@role='alertdialog']//div[@role='button'][contains(.,'Undo')]");
         undoSnackbar.click();
     }
 
@@ -101,41 +385,35 @@ public class NotesPage extends BasePage {
      * @return true if current note count is greater than previous count, false otherwise
      */
     public boolean isNoteSaved(int previousNoteCount) {
-        return getAllNoteCards().size() > previousNoteCount;
+        return getCurrentNoteCount() > previousNoteCount;
     }
 
     /**
-     * Checks if a note with the specified title is currently pinned.
+     * Captures the title, body, pinned state, labels, checklist items and color of
+     * every note card rendered on the board with a single script call. The returned
+     * model is immutable, so any number of assertions can be evaluated against it
+     * locally. On a board too large to be rendered at once, use {@link #streamNotes()}.
      *
-     * @param noteTitle The title or partial content of the note to check
-     * @return true if the note exists and is pinned (aria-pressed="true"),
-     *         false if note isn't pinned or can't be found
+     * @return The current state of the board
      */
-    public boolean isNotePinned(String noteTitle) {
-        String noteXpath = buildNoteXpath(noteTitle);
-        return checkPinStatus(noteXpath);
+    @SuppressWarnings("unchecked")
+    public NoteBoardSnapshot snapshot() {
+        List<Map<String, Object>> raw = (List<Map<String, Object>>) ((JavascriptExecutor) driver)
+                .executeScript(SNAPSHOT_SCRIPT);
+        return NoteBoardSnapshot.fromScriptResult(raw);
     }
 
     /**
-     * Verifies the pinned status of a note located by the given XPath.
+     * Checks if a note with the specified title is currently pinned.
      *
-     * @param noteXpath The XPath to locate the note element
-     * @return true if the pin button shows as pressed (pinned),
-     *         false if not pinned or element not found
-     * @throws TimeoutException If the note element cannot be located within timeout
+     * @param noteTitle The title or partial content of the note to check
+     * @return true if the note exists and is pinned (aria-pressed="true"),
+     *         false if note isn't pinned or can't be found
      */
-    private boolean checkPinStatus(String noteXpath) {
-        try {
-            WebElement pinnedNote = new WebDriverWait(driver, Duration.ofSeconds(3))
-                    .until(ExpectedConditions.presenceOfElementLocated(By.xpath(noteXpath)));
-
-            WebElement pinButton = pinnedNote.findElement(
-                    By.xpath(".//div[@role='button'][contains(@aria-label,'Unpin note')]"));
-
-            return "true".equals(pinButton.getAttribute("aria-pressed"));
-        } catch (Exception e) {
-            return false;
-        }
+    public boolean isNotePinned(String noteTitle) {
+        return findNote(noteTitle)
+                .map(NoteSnapshot::isPinned)
+                .orElse(false);
     }
 
     /**
@@ -147,21 +425,20 @@ public class NotesPage extends BasePage {
      * @return true if archived, false otherwise
      */
     public boolean isNoteArchived(String noteTitle) {
-        String noteXpath = buildNoteXpath(noteTitle);
-        boolean isNoteArchived = checkIfInMainView(noteXpath);
+        boolean isNoteArchived = checkIfInMainView(noteTitle);
 
         if(isNoteArchived) {
             return isNoteArchived;
         }
 
-        isNoteArchived = isInArchiveView(noteXpath);
+        isNoteArchived = isInArchiveView(noteTitle);
         return isNoteArchived;
     }
 
-    public  boolean checkIfInMainView(String noteXpath){
+    public  boolean checkIfInMainView(String noteTitle){
         try {
             // Wait briefly to see if note appears in main view
-            boolean isInMainView = !driver.findElements(By.xpath(noteXpath)).isEmpty();
+            boolean isInMainView = noteCards.find(driver, noteTitle) != null;
             if (isInMainView) {
                 return false;
             }
@@ -171,18 +448,61 @@ public class NotesPage extends BasePage {
         return true;
     }
 
-    public boolean isInArchiveView(String noteXpath) {
-        // Check archive with proper cleanup
+    public boolean isInArchiveView(String noteTitle) {
+        return inSidebarView("archive", this::goToArchive,
+                () -> isNoteCardInView(noteTitle));
+    }
+
+    /**
+     * Checks if a note is in the trash.
+     *
+     * @param noteTitle Title or partial content of the note to check
+     * @return true if the note shows up in the trash view
+     */
+    public boolean isNoteInTrash(String noteTitle) {
+        return inSidebarView("trash", this::goToTrash,
+                () -> isNoteCardInView(noteTitle));
+    }
+
+    /**
+     * Checks if a note shows up in the view of one of its labels.
+     *
+     * @param label     The label whose view to check
+     * @param noteTitle Title or partial content of the note to check
+     * @return true if the note is listed under the label
+     */
+    public boolean isNoteInLabelView(String label, String noteTitle) {
+        return inSidebarView("label/" + label, () -> goToLabel(label),
+                () -> isNoteCardInView(noteTitle));
+    }
+
+    /**
+     * Looks the card up once in the sidebar view just opened, so a note that is not there
+     * costs no wait: navigating waited for the view, and a view window on the stand-in
+     * has caught up with the board. Only a view window without that signal, on
+     * keep.google.com, still waits for the card to sync.
+     */
+    private boolean isNoteCardInView(String noteTitle) {
+        if (viewWindows != null && !viewWindows.isSynced()) {
+            return isNoteCardPresentWithin(noteTitle, WaitBudget.NOTE_LOOKUP);
+        }
+        return noteCards.find(driver, noteTitle) != null;
+    }
+
+    /**
+     * Runs the action in a sidebar view: in the view's own window in multi-view mode,
+     * otherwise by navigating there and back to the main notes.
+     *
+     * @param fragment The view's URL fragment, e.g. {@code archive}
+     * @param goTo     Navigates to the view through the sidebar
+     */
+    private <T> T inSidebarView(String fragment, Runnable goTo, Supplier<T> action) {
+        if (viewWindows != null) {
+            return viewWindows.inView(fragment, action);
+        }
         try {
-            goToArchive();
-            // Wait for either the note to appear or confirmation it's not there
-            return new WebDriverWait(driver, Duration.ofSeconds(5))
-                    .until(driver1 -> {
-                        List<WebElement> notes = driver1.findElements(By.xpath(noteXpath));
-                        return !notes.isEmpty();
-                    });
-        } catch (TimeoutException e) {
-            return false; // Note not found in archive
+            goTo.run();
+            return action.get();
         } finally {
             try {
                 goToMainNotes();
@@ -198,82 +518,133 @@ public class NotesPage extends BasePage {
         try {
 
             // More flexible archive button locator
-            WebElement archiveBtn = new WebDriverWait(driver, Duration.ofSeconds(10))
-                    .until(ExpectedConditions.elementToBeClickable(
-                            By.xpath("//div[contains(@class,'PvRhvb')]//*[@aria-label='Archive']")));
+            WebElement archiveBtn = domWait.untilVisible("//div[contains(@class,'PvRhvb')]//*[@aria-label='Archive']");
             archiveBtn.click();
 
             // Better archive page load verification
-            new WebDriverWait(driver, Duration.ofSeconds(10))
-                    .until(ExpectedConditions.or(
-                            ExpectedConditions.presenceOfElementLocated(
-                                    By.xpath("//*[contains(text(),'Archived')]")),
-                            ExpectedConditions.presenceOfElementLocated(
-                                    By.xpath("//div[contains(@aria-label,'Archived')]"))
-                    ));
+            domWait.untilPresent("//*[contains(text(),'Archived')] | //div[contains(@aria-label,'Archived')]");
         } catch (Exception e) {
             throw new RuntimeException("Failed to navigate to archive: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Navigates to the trash through the sidebar.
+     */
+    public void goToTrash() {
+        try {
+            domWait.untilVisible("//div[contains(@class,'PvRhvb')]//*[@aria-label='Trash']").click();
+            domWait.untilPresent("//*[contains(text(),'Trash')] | //div[contains(@aria-label,'Trash')]");
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to navigate to trash: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Navigates to the view of a label through the sidebar.
+     *
+     * @param label The label whose view to open
+     */
+    public void goToLabel(String label) {
+        try {
+            String link = String.format("//div[contains(@class,'PvRhvb')]//*[@role='link'][normalize-space(.)='%s']",
+                    label);
+            domWait.untilVisible(link).click();
+            domWait.untilPresent(link + "[@aria-current='page' or contains(@class,'active')]");
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to navigate to label " + label + ": " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Returns to the main notes page reliably
      */
     public void goToMainNotes() {
         try {
             // More flexible notes button locator
-            WebElement notesBtn = new WebDriverWait(driver, Duration.ofSeconds(10))
-                    .until(ExpectedConditions.elementToBeClickable(
-                            By.xpath("//div[contains(@class,'PvRhvb')]//*[contains(text(),'Notes') or contains(@aria-label,'Notes')]")));
+            WebElement notesBtn = domWait.untilVisible("//div[contains(@class,'PvRhvb')]//*[contains(text(),'Notes') or contains(@aria-label,'Notes')]");
             notesBtn.click();
 
             // Better main page load verification
-            new WebDriverWait(driver, Duration.ofSeconds(10))
-                    .until(ExpectedConditions.or(
-                            ExpectedConditions.presenceOfElementLocated(
-                                    By.xpath("//*[contains(text(),'Notes')]")),
-                            ExpectedConditions.presenceOfElementLocated(
-                                    By.xpath("//div[contains(@aria-label,'Notes')]"))
-                    ));
+            domWait.untilPresent("//*[contains(text(),'Notes')] | //div[contains(@aria-label,'Notes')]");
         } catch (Exception e) {
             throw new RuntimeException("Failed to return to main notes: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Constructs the XPath for locating a note by its title in the pinned section.
+     * Waits until a note card whose title or content contains the text is in the DOM.
      *
      * @param noteTitle The title or content text to search for
-     * @return Formatted XPath string to locate the note element
+     * @return The note card element
      */
-    private String buildNoteXpath(String noteTitle) {
-        return String.format(
-                "//div[contains(@class,'IZ65Hb-n0tgWb')]" +
-                        "[.//div[@role='textbox' and contains(.,'%s')]]",
-                noteTitle);
+    private WebElement waitForNoteCard(String noteTitle, WaitBudget budget) {
+        return (WebElement) domWait.untilScript("note card " + noteTitle, noteCards.presentPredicate(),
+                budget, noteTitle);
     }
 
+    /**
+     * Counts the notes on the board, scrolling through it if it is rendered lazily.
+     */
     public int getCurrentNoteCount() {
-        return getAllNoteCards().size();
+        try (Stream<BoardStream.Card> cards = BoardStream.walk(driver, domWait, false)) {
+            return (int) cards.count();
+        }
     }
 
-    private void waitUntilNoteAppears(String title) {
-        wait.until(ExpectedConditions.visibilityOfElementLocated(NoteCardComponent.byNoteCardTitle(title)));
+    /**
+     * Walks the whole board from the top, yielding each note once as its card is
+     * rendered, and scrolling for more whenever the rendered cards are used up. Only a
+     * page of cards is held at a time, so it works the same for ten notes and for ten
+     * thousand. The stream should be closed, e.g. with try-with-resources, if it is not
+     * consumed to the end.
+     *
+     * @return The notes in board order
+     */
+    public Stream<NoteSnapshot> streamNotes() {
+        return BoardStream.walk(driver, domWait, true).map(card -> card.note);
     }
 
-    private NoteCardComponent getNoteByTitle(String title) {
-        try {
-            WebElement noteEl = new WebDriverWait(driver, Duration.ofSeconds(5))
-                    .until(ExpectedConditions.presenceOfElementLocated(NoteCardComponent.byNoteCardTitle(title)));
+    @SuppressWarnings("unchecked")
+    private List<WebElement> waitForNoteCards(List<String> titles) {
+        return (List<WebElement>) domWait.untilScript("note cards " + titles.size(), noteCards.allPresentPredicate(),
+                WaitBudget.NOTE_SYNC, titles);
+    }
 
-            return new NoteCardComponent(driver, noteEl);
-        } catch (NoSuchElementException e) {
-            return null;
+    private boolean isNoteCardPresentWithin(String title, WaitBudget budget) {
+        try {
+            waitForNoteCard(title, budget);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
         }
     }
 
-    private List<WebElement> getAllNoteCards() {
-        return driver.findElements(By.xpath("//div[contains(@class,'IZ65Hb-n0tgWb')]"));
+    private WebElement waitUntilNoteAppears(String title) {
+        return (WebElement) domWait.untilScript("note card visible " + title, noteCards.visiblePredicate(),
+                WaitBudget.NOTE_SYNC, title);
+    }
+
+    /**
+     * Finds the card of the note whose title or content contains the given text: among
+     * the rendered cards first, then by walking the rest of the board. It does not wait
+     * for a card still on its way; the methods that create notes return once their
+     * cards are on the board.
+     *
+     * @param title The text to look for
+     * @return The note card, or null if there is none
+     */
+    public NoteCardComponent getNoteByTitle(String title) {
+        WebElement noteEl = noteCards.find(driver, title);
+        if (noteEl == null) {
+            try (Stream<BoardStream.Card> cards = BoardStream.walk(driver, domWait, false)) {
+                noteEl = cards.filter(card -> card.matches(title))
+                        .map(card -> card.element)
+                        .findFirst()
+                        .orElse(null);
+            }
+        }
+        return noteEl == null ? null : new NoteCardComponent(driver, noteEl);
     }
 
     public void addLabelToNoteByTitle(String title, String label) {
@@ -281,15 +652,15 @@ public class NotesPage extends BasePage {
         if (note != null) {
             note.openMoreMenu();
 
-            WebElement addLabelOption = wait.until(ExpectedConditions
-                    .visibilityOfElementLocated(By.xpath("//div[@role='menuitem'][.//div[contains(text(),'Add label')]]")));
+            WebElement addLabelOption = domWait.untilVisible("//div[@role='menuitem'][.//div[contains(text(),'Add label')]]");
             addLabelOption.click();
 
-            WebElement labelInput = wait.until(ExpectedConditions
-                    .visibilityOfElementLocated(By.xpath("//input[@aria-label='Enter label name']")));
+            WebElement labelInput = domWait.untilVisible("//input[@aria-label='Enter label name']");
             labelInput.clear();
             labelInput.sendKeys(label);
             labelInput.sendKeys(Keys.ENTER);
+            domWait.untilPresentWithin(note.getElement(),
+                    ".//div[contains(@class,'bQfzdd') and contains(text(),'" + label + "')]");
 
             // Закрытие меню
             labelInput.sendKeys(Keys.ESCAPE);
@@ -297,25 +668,16 @@ public class NotesPage extends BasePage {
     }
 
     public boolean isLabelAttached(String title, String label) {
-        NoteCardComponent note = getNoteByTitle(title);
-        if (note != null) {
-            try {
-                WebElement labelChip = note.getElement()
-                        .findElement(By.xpath(".//div[contains(@class,'bQfzdd') and contains(text(),'" + label + "')]"));
-                return labelChip.isDisplayed();
-            } catch (NoSuchElementException e) {
-                return false;
-            }
-        }
-        return false;
+        return findNote(title)
+                .map(note -> note.hasLabel(label))
+                .orElse(false);
     }
 
     public void createChecklistNote(String title, String[] items) {
         newNoteComponent.clickNewNote();
 
         // Включаем режим чек-листа
-        WebElement checklistToggle = wait.until(ExpectedConditions
-                .visibilityOfElementLocated(By.xpath("//div[@aria-label='New list']")));
+        WebElement checklistToggle = domWait.untilVisible("//div[@aria-label='New list']");
         checklistToggle.click();
 
         // Ввод заголовка
@@ -325,32 +687,25 @@ public class NotesPage extends BasePage {
 
         // Ввод каждого элемента чек-листа
         for (String item : items) {
-            WebElement inputField = wait.until(ExpectedConditions
-                    .visibilityOfElementLocated(By.xpath("//div[@aria-label='List item']")));
-            inputField.sendKeys(item);
-            inputField.sendKeys(Keys.ENTER);
+            WebElement inputField = domWait.untilVisible("//div[@aria-label='List item']");
+            TextEntry.enter(driver, inputField, item, Keys.ENTER);
         }
 
         // Закрытие заметки
         //closeNoteBtn.click();
         newNoteComponent.close();
-        waitUntilNoteAppears(title);
+        createdTitles.add(title);
+        WebElement card = waitUntilNoteAppears(title);
+        if (items.length > 0) {
+            domWait.untilPresentWithin(card,
+                    ".//div[contains(@class,'e5WBfd') and contains(text(),'" + items[items.length - 1] + "')]");
+        }
     }
 
     public boolean isChecklistPresent(String title, String[] items) {
-        NoteCardComponent note = getNoteByTitle(title);
-        if (note != null) {
-            try {
-                for (String item : items) {
-                    note.getElement().findElement(
-                            By.xpath(".//div[contains(@class,'e5WBfd') and contains(text(),'" + item + "')]"));
-                }
-                return true;
-            } catch (NoSuchElementException e) {
-                return false;
-            }
-        }
-        return false;
+        return findNote(title)
+                .map(note -> Arrays.stream(items).allMatch(note::hasChecklistItem))
+                .orElse(false);
     }
 
     public void editNoteTitle(String currentTitle, String newTitle) {
@@ -358,22 +713,20 @@ public class NotesPage extends BasePage {
         if (note != null) {
             note.open();
 
-            String xpath = String.format(
-                    "//div[contains(@class,'IZ65Hb-r4nke-haAclf')]//div[@contenteditable='true' and text()='%s']",
-                    currentTitle
-            );
-            WebElement titleInput = new WebDriverWait(driver, Duration.ofSeconds(10))
-                    .until(ExpectedConditions.elementToBeClickable(By.xpath(xpath)));
+            String xpath = String.format(EDITOR_TITLE_XPATH, currentTitle);
+            WebElement titleInput = domWait.untilVisible(xpath);
 
             titleInput.clear();
-            titleInput.sendKeys(newTitle);
+            TextEntry.enter(driver, titleInput, newTitle);
 
-            WebElement closeButton = new WebDriverWait(driver, Duration.ofSeconds(10))
-                    .until(ExpectedConditions.elementToBeClickable(
-                            By.xpath("//div[contains(@class, 'IZ65Hb-yePe5c')]//div[@role='button' and normalize-space(text())='Close']")
-                    ));
+            WebElement closeButton = domWait.untilVisible(
+                    "//div[contains(@class, 'IZ65Hb-yePe5c')]//div[@role='button' and normalize-space(text())='Close']");
 
             closeButton.click();
+            if (createdTitles.remove(currentTitle)) {
+                createdTitles.add(newTitle);
+            }
+            waitUntilNoteAppears(newTitle);
         }
     }
 
@@ -385,24 +738,138 @@ public class NotesPage extends BasePage {
      * @return true if found, false otherwise.
      */
     public boolean isNotePresent(String title) {
-        return !driver.findElements(NoteCardComponent.byNoteCardTitle(title)).isEmpty();
+        return findNote(title).isPresent();
     }
 
-    public void searchNoteByTitle(String title) {
-        WebElement searchInput = wait.until(ExpectedConditions
-                .visibilityOfElementLocated(By.xpath("//input[@aria-label='Search']")));
-        searchInput.click();
-        searchInput.sendKeys(title);
-        searchInput.sendKeys(Keys.ENTER);
+    /**
+     * Finds the note among the rendered cards in one snapshot, and only walks the rest of
+     * the board when it is not among them, so a note below the fold of a large board is
+     * found as well.
+     *
+     * @param title Title or content to match
+     * @return The first matching note in board order, or empty if the board has none
+     */
+    private Optional<NoteSnapshot> findNote(String title) {
+        Optional<NoteSnapshot> rendered = snapshot().findByTitle(title);
+        if (rendered.isPresent()) {
+            return rendered;
+        }
+        try (Stream<NoteSnapshot> notes = streamNotes()) {
+            return notes.filter(note -> note.matches(title)).findFirst();
+        }
+    }
 
-        // Wait for results to load
-        wait.until(ExpectedConditions.presenceOfElementLocated(NoteCardComponent.byNoteCardTitle(title)));
+    public void searchNoteByTitle(String title) {
+        WebElement searchInput = domWait.untilVisible("//input[@aria-label='Search']");
+        profiler.measure("searchNoteByTitle", () -> {
+            searchInput.click();
+            searchInput.sendKeys(title);
+            searchInput.sendKeys(Keys.ENTER);
+
+            // Wait for results to load
+            waitForNoteCard(title, WaitBudget.NOTE_SYNC);
+        });
     }
 
     public void changeNoteColor(String title, String color) {
         NoteCardComponent note = getNoteByTitle(title);
         if (note != null) {
-            note.changeColorTo(color);
+            WebElement swatch = note.getColorOption(color);
+            profiler.measure("changeNoteColor", () -> {
+                note.changeColorTo(color);
+                domWait.untilScript("note color " + color, COLOR_APPLIED, WaitBudget.NOTE_SYNC, note.getElement(), swatch);
+            });
+        }
+    }
+
+    /**
+     * Returns the titles of notes created or renamed through this page object
+     * since the last {@link #purgeCreatedNotes()}.
+     */
+    public List<String> getCreatedNoteTitles() {
+        return new ArrayList<>(createdTitles);
+    }
+
+    /**
+     * Stops tracking the notes created or archived through this page object, leaving them
+     * on the board, e.g. for a load run that reuses the page far longer than a test.
+     */
+    public void forgetCreatedNotes() {
+        createdTitles.clear();
+        archivedTitles.clear();
+    }
+
+    /**
+     * Clears any text left in the search field.
+     */
+    public void clearSearch() {
+        WebElement searchInput = domWait.untilPresent("//input[@aria-label='Search']");
+        if (!searchInput.getAttribute("value").isEmpty()) {
+            searchInput.clear();
+        }
+    }
+
+    /**
+     * Deletes every note created through this page object. The archive is only
+     * visited when one of them was archived through this page object as well.
+     *
+     * @return The number of notes deleted
+     */
+    public int purgeCreatedNotes() {
+        int purged = WaitPolicy.negative(driver, () -> {
+            int deleted = deleteVisibleNotes(createdTitles);
+            if (!archivedTitles.isEmpty()) {
+                deleted += inSidebarView("archive", this::goToArchive, () -> deleteVisibleNotes(archivedTitles));
+            }
+            return deleted;
+        });
+        createdTitles.clear();
+        archivedTitles.clear();
+        return purged;
+    }
+
+    /**
+     * Deletes the notes whose card text contains any of the given titles, in the
+     * main view and then in the archive.
+     *
+     * @param titles Titles or partial contents of the notes to delete
+     * @return The number of notes deleted
+     */
+    public int purgeNotes(Collection<String> titles) {
+        if (titles.isEmpty()) {
+            return 0;
+        }
+        return WaitPolicy.negative(driver, () -> {
+            int purged = deleteVisibleNotes(titles);
+            if (purged < titles.size()) {
+                purged += inSidebarView("archive", this::goToArchive, () -> deleteVisibleNotes(titles));
+            }
+            return purged;
+        });
+    }
+
+    /**
+     * Deletes the cards matching any of the titles in one walk over the board. Cards
+     * the board renders to fill the gaps are reached later in the same walk.
+     */
+    private int deleteVisibleNotes(Collection<String> titles) {
+        int deleted = 0;
+        try (Stream<BoardStream.Card> cards = BoardStream.walk(driver, domWait, false)) {
+            Iterator<BoardStream.Card> walk = cards.iterator();
+            while (walk.hasNext()) {
+                BoardStream.Card card = walk.next();
+                if (titles.stream().noneMatch(card::matches)) {
+                    continue;
+                }
+                try {
+                    new NoteCardComponent(driver, card.element).deleteFromMenu();
+                    domWait.untilDetached(card.element);
+                    deleted++;
+                } catch (StaleElementReferenceException e) {
+                    // Gone already, e.g. deleted by the app's own sync
+                }
+            }
         }
+        return deleted;
     }
 }
@@ -0,0 +1,147 @@
+package org.googlekeep.pages;
+
+import org.googlekeep.waits.DomWait;
+import org.googlekeep.waits.WaitBudget;
+import org.googlekeep.waits.WaitPolicy;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchWindowException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Keeps sidebar views (archive, trash, labels) open in windows of their own, next
+ * to the window with the main board, so checking a view costs a window switch
+ * instead of navigating there and back and waiting for both re-renders.
+ *
+ * <p>Views are identified by their URL fragment, e.g. {@code archive}, {@code trash}
+ * or {@code label/Work}. A view's window is opened on first use and kept for the
+ * lifetime of the session; Keep syncs the open windows of an account, so each one
+ * stays current without reloads. The local stand-in only syncs once told that another
+ * window is open ({@link #SYNC_SCRIPT}), so without views nothing polls it.
+ *
+ * <p>On the stand-in a view is also known to be current: before switching, the board's
+ * writes are waited out, and the view is then told to catch up at once and waited for,
+ * so a check in it needs no wait of its own ({@link #isSynced()}). Keep gives no such
+ * signal, so there a check still waits for what it expects.
+ *
+ * <p>Enabled with {@code -Dkeep.multiview=true}; see {@code NotesPage}.
+ */
+public class ViewWindows {
+    public static final String PROPERTY = "keep.multiview";
+
+    /**
+     * Starts the stand-in's sync with the other windows of the account; keep.google.com
+     * always syncs and has no such hook.
+     */
+    private static final String SYNC_SCRIPT = "if (window.__keepSync) { window.__keepSync.start(); }";
+
+    private static final String WRITES_SAVED_PREDICATE =
+            "var pending = document.documentElement.getAttribute('data-keep-pending');" +
+            "return pending === null || pending === '0';";
+
+    /**
+     * Has the stand-in catch up with the other windows now; returns the ticket it marks the
+     * document with once done, or null without the hook.
+     */
+    private static final String FLUSH_SCRIPT =
+            "return window.__keepSync && window.__keepSync.flush ? window.__keepSync.flush() : null;";
+
+    private static final String SYNCED_PREDICATE =
+            "return document.documentElement.getAttribute('data-keep-synced') === args[0];";
+
+    private final WebDriver driver;
+    private final DomWait domWait;
+    private final Map<String, String> handles = new LinkedHashMap<>();
+    private String mainHandle;
+    private boolean synced;
+
+    public ViewWindows(WebDriver driver) {
+        this.driver = driver;
+        this.domWait = new DomWait(driver, WaitBudget.NOTE_SYNC);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(PROPERTY);
+    }
+
+    /**
+     * Runs the action in the view's window, opening it on first use, and switches
+     * back to the main board afterwards, also when the action fails.
+     *
+     * @param fragment The view's URL fragment, without {@code #}
+     * @param action   What to do in the view
+     * @return The action's result
+     */
+    public <T> T inView(String fragment, Supplier<T> action) {
+        if (mainHandle == null) {
+            mainHandle = driver.getWindowHandle();
+        }
+        // The view can only catch up with what the board has saved
+        domWait.untilScript("board writes saved", WRITES_SAVED_PREDICATE, WaitBudget.NOTE_SYNC);
+        switchToView(fragment);
+        T result;
+        try {
+            catchUp(fragment);
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            try {
+                switchToMain();
+            } catch (RuntimeException switchFailure) {
+                e.addSuppressed(switchFailure);
+            }
+            throw e;
+        }
+        switchToMain();
+        return result;
+    }
+
+    /**
+     * Returns true if the view window the current action runs in has caught up with the
+     * account's other windows, so what it shows can be read without waiting.
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    private void catchUp(String fragment) {
+        Object ticket = ((JavascriptExecutor) driver).executeScript(FLUSH_SCRIPT);
+        synced = false;
+        if (ticket != null) {
+            domWait.untilScript("view " + fragment + " synced", SYNCED_PREDICATE, WaitBudget.NOTE_SYNC, ticket);
+            synced = true;
+        }
+    }
+
+    private void switchToMain() {
+        driver.switchTo().window(mainHandle);
+        // With a view open next to it, the board follows the changes made there; a no-op
+        // once started, and restarts it after the board was reloaded
+        ((JavascriptExecutor) driver).executeScript(SYNC_SCRIPT);
+    }
+
+    private void switchToView(String fragment) {
+        String handle = handles.get(fragment);
+        if (handle != null) {
+            try {
+                driver.switchTo().window(handle);
+                return;
+            } catch (NoSuchWindowException e) {
+                // Closed behind our back; open it again
+                handles.remove(fragment);
+            }
+        }
+        String boardUrl = driver.getCurrentUrl().replaceFirst("#.*$", "");
+        driver.switchTo().newWindow(WindowType.TAB);
+        handles.put(fragment, driver.getWindowHandle());
+        driver.get(boardUrl + "#" + fragment);
+        WaitPolicy.await(WaitBudget.PAGE_LOAD, () -> new WebDriverWait(driver, WaitBudget.PAGE_LOAD.getTimeout())
+                .until(ExpectedConditions.jsReturnsValue("return document.readyState === 'complete'")));
+        ((JavascriptExecutor) driver).executeScript(SYNC_SCRIPT);
+    }
+}
@@ -0,0 +1,139 @@
+package org.googlekeep.scheduling;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-test duration history, kept in a small JSON file between runs so the next run
+ * can schedule the longest tests first (see {@link LongestFirstSchedule}).
+ *
+ * <p>Each test, keyed {@code fully.qualified.Class#method}, keeps an exponentially
+ * weighted mean of the durations of its passing runs, so the estimate follows a test
+ * that got faster or slower within a few runs. Failed runs are not recorded: a test
+ * that times out would otherwise look slow for many runs after it is fixed.
+ *
+ * <p>The file is {@value #DEFAULT_FILE} in the working directory, or {@code -Dkeep.durations.file}.
+ */
+public final class DurationHistory {
+    public static final String FILE_PROPERTY = "keep.durations.file";
+    public static final String DEFAULT_FILE = ".keep/test-durations.json";
+
+    private static final double WEIGHT = 0.3;
+
+    private final Path file;
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    private DurationHistory(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the configured history file; a missing or unreadable file gives an empty history.
+     */
+    public static DurationHistory load() {
+        return load(Paths.get(System.getProperty(FILE_PROPERTY, DEFAULT_FILE)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static DurationHistory load(Path file) {
+        DurationHistory history = new DurationHistory(file);
+        if (!Files.exists(file)) {
+            return history;
+        }
+        try {
+            Map<String, Object> json = new Json().toType(Files.readString(file), Json.MAP_TYPE);
+            Map<String, Object> tests = (Map<String, Object>) json.getOrDefault("tests", Map.of());
+            for (Map.Entry<String, Object> test : tests.entrySet()) {
+                Map<String, Object> values = (Map<String, Object>) test.getValue();
+                history.entries.put(test.getKey(), new Entry(((Number) values.get("runs")).intValue(),
+                        ((Number) values.get("meanMs")).doubleValue(), ((Number) values.get("lastMs")).longValue()));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Ignoring unreadable test duration history " + file + ": " + e.getMessage());
+            history.entries.clear();
+        }
+        return history;
+    }
+
+    /**
+     * Returns true if the test has at least one recorded run.
+     */
+    public synchronized boolean isKnown(String testId) {
+        return entries.containsKey(testId);
+    }
+
+    /**
+     * Returns the expected duration of the test. A test without history is assumed
+     * to be as slow as the slowest known test, so it is started early rather than
+     * late, where a surprise would stretch the run the most.
+     */
+    public synchronized double predictMs(String testId) {
+        Entry entry = entries.get(testId);
+        if (entry != null) {
+            return entry.meanMs;
+        }
+        return entries.values().stream().mapToDouble(known -> known.meanMs).max().orElse(0);
+    }
+
+    /**
+     * Records the duration of a passing run.
+     */
+    public synchronized void record(String testId, long durationMs) {
+        Entry entry = entries.get(testId);
+        entries.put(testId, entry == null
+                ? new Entry(1, durationMs, durationMs)
+                : new Entry(entry.runs + 1, entry.meanMs + WEIGHT * (durationMs - entry.meanMs), durationMs));
+    }
+
+    /**
+     * Writes the history back to its file, replacing it atomically.
+     */
+    public synchronized void save() {
+        Map<String, Object> tests = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("runs", entry.getValue().runs);
+            values.put("meanMs", Math.round(entry.getValue().meanMs * 10) / 10.0);
+            values.put("lastMs", entry.getValue().lastMs);
+            tests.put(entry.getKey(), values);
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("version", 1);
+        json.put("tests", tests);
+        try {
+            Path absolute = file.toAbsolutePath();
+            Files.createDirectories(absolute.getParent());
+            Path temp = Files.createTempFile(absolute.getParent(), "test-durations", ".tmp");
+            Files.write(temp, new Json().toJson(json).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write test duration history to " + file, e);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private static final class Entry {
+        final int runs;
+        final double meanMs;
+        final long lastMs;
+
+        Entry(int runs, double meanMs, long lastMs) {
+            this.runs = runs;
+            this.meanMs = meanMs;
+            this.lastMs = lastMs;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.googlekeep.scheduling;
+
+import org.googlekeep.BaseTest;
+import org.testng.IConfigurationListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.xml.XmlTest;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Schedules the test methods of an in-process TestNG run longest-first, records
+ * how long each passing test took and reports the predicted against the actual
+ * makespan when the suite finishes. Registered on {@code BaseTest}.
+ *
+ * <p>A test's duration includes its {@code @BeforeMethod} and {@code @AfterMethod}
+ * configuration, since a worker is busy with that as much as with the test itself.
+ *
+ * <p>Grid workers run one method per suite, so there the coordinator does the
+ * scheduling and recording instead and this listener stays out of the way.
+ */
+public class LongestFirstListener implements IMethodInterceptor, ITestListener, IConfigurationListener, ISuiteListener {
+    private final boolean enabled = System.getProperty(BaseTest.GRID_WORKER_PROPERTY) == null;
+    private final DurationHistory history = enabled ? DurationHistory.load() : null;
+    private final LongestFirstSchedule<IMethodInstance> schedule = new LongestFirstSchedule<>(history,
+            method -> idOf(method.getMethod()),
+            method -> method.getMethod().getPriority());
+
+    private double predictedMs;
+    private int workers = 1;
+    private int unknown;
+    private long firstStart = Long.MAX_VALUE;
+    private long lastEnd;
+    private final Map<String, Long> busyMs = new HashMap<>();
+    private final Set<String> passed = new HashSet<>();
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (!enabled) {
+            return methods;
+        }
+        XmlTest test = context.getCurrentXmlTest();
+        workers = test.getParallel().isParallel() ? Math.max(1, test.getThreadCount()) : 1;
+        List<IMethodInstance> ordered = schedule.order(methods);
+        predictedMs += schedule.predictMakespanMs(ordered, workers);
+        unknown += schedule.countUnknown(ordered);
+        return ordered;
+    }
+
+    @Override
+    public synchronized void onTestStart(ITestResult result) {
+        firstStart = Math.min(firstStart, result.getStartMillis());
+    }
+
+    @Override
+    public synchronized void onTestSuccess(ITestResult result) {
+        addBusyTime(result, result.getMethod());
+        passed.add(idOf(result.getMethod()));
+    }
+
+    @Override
+    public synchronized void onTestFailure(ITestResult result) {
+        addBusyTime(result, result.getMethod());
+    }
+
+    @Override
+    public synchronized void onTestSkipped(ITestResult result) {
+        addBusyTime(result, result.getMethod());
+    }
+
+    @Override
+    public synchronized void onConfigurationSuccess(ITestResult result, ITestNGMethod testMethod) {
+        if (testMethod != null) {
+            firstStart = Math.min(firstStart, result.getStartMillis());
+            addBusyTime(result, testMethod);
+        }
+    }
+
+    @Override
+    public synchronized void onConfigurationFailure(ITestResult result, ITestNGMethod testMethod) {
+        if (testMethod != null) {
+            addBusyTime(result, testMethod);
+        }
+    }
+
+    private void addBusyTime(ITestResult result, ITestNGMethod testMethod) {
+        lastEnd = Math.max(lastEnd, result.getEndMillis());
+        busyMs.merge(idOf(testMethod), result.getEndMillis() - result.getStartMillis(), Long::sum);
+    }
+
+    @Override
+    public synchronized void onFinish(ISuite suite) {
+        if (!enabled || lastEnd == 0) {
+            return;
+        }
+        for (String testId : passed) {
+            history.record(testId, busyMs.get(testId));
+        }
+        history.save();
+        System.out.println(LongestFirstSchedule.report(workers, predictedMs, lastEnd - firstStart, unknown));
+        System.out.println("Test durations written to " + history.getFile().toAbsolutePath());
+    }
+
+    private static String idOf(ITestNGMethod method) {
+        return idOf(method.getRealClass(), method.getMethodName());
+    }
+
+    static String idOf(Class<?> testClass, String method) {
+        return testClass.getName() + "#" + method;
+    }
+}
@@ -0,0 +1,82 @@
+package org.googlekeep.scheduling;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Longest-processing-time-first ordering of tests over a {@link DurationHistory}.
+ *
+ * <p>Handing the longest tests out first and the short ones last lets the short
+ * tests fill the gaps, so no worker is left starting a long test near the end of
+ * the run. Explicit TestNG priorities still order tests across priority levels;
+ * the reordering happens within a level, so a test that really needs to run early
+ * only has to say so with {@code @Test(priority = ...)}.
+ *
+ * @param <T> The test representation, e.g. a TestNG method instance or a grid task
+ */
+public final class LongestFirstSchedule<T> {
+    private final DurationHistory history;
+    private final Function<T, String> idOf;
+    private final ToIntFunction<T> priorityOf;
+
+    /**
+     * @param idOf       Returns the test's history key, {@code fully.qualified.Class#method}
+     * @param priorityOf Returns the test's TestNG priority
+     */
+    public LongestFirstSchedule(DurationHistory history, Function<T, String> idOf, ToIntFunction<T> priorityOf) {
+        this.history = history;
+        this.idOf = idOf;
+        this.priorityOf = priorityOf;
+    }
+
+    /**
+     * Returns the tests by ascending priority, then longest expected duration first.
+     */
+    public List<T> order(List<T> tests) {
+        List<T> ordered = new ArrayList<>(tests);
+        ordered.sort(Comparator.<T>comparingInt(priorityOf)
+                .thenComparing(Comparator.<T>comparingDouble(test -> history.predictMs(idOf.apply(test))).reversed())
+                .thenComparing(idOf));
+        return ordered;
+    }
+
+    /**
+     * Simulates handing the tests out in the given order to identical workers, each
+     * taking the next test as soon as it is free.
+     *
+     * @return The expected wall-clock time until the last test finishes
+     */
+    public double predictMakespanMs(List<T> ordered, int workers) {
+        PriorityQueue<Double> freeAt = new PriorityQueue<>();
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            freeAt.add(0.0);
+        }
+        double makespan = 0;
+        for (T test : ordered) {
+            double end = freeAt.poll() + history.predictMs(idOf.apply(test));
+            freeAt.add(end);
+            makespan = Math.max(makespan, end);
+        }
+        return makespan;
+    }
+
+    /**
+     * Returns the number of tests without any recorded run.
+     */
+    public int countUnknown(List<T> tests) {
+        return (int) tests.stream().filter(test -> !history.isKnown(idOf.apply(test))).count();
+    }
+
+    /**
+     * Formats the comparison printed at the end of a run.
+     */
+    public static String report(int workers, double predictedMs, long actualMs, int unknown) {
+        return String.format("Longest-first schedule on %d worker(s): predicted makespan %.1f s, actual %.1f s%s",
+                workers, predictedMs / 1000.0, actualMs / 1000.0,
+                unknown > 0 ? " (" + unknown + " tests had no duration history)" : "");
+    }
+}
@@ -0,0 +1,383 @@
+package org.googlekeep.selection;
+
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.Trees;
+
+import javax.lang.model.element.Modifier;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Works out which tests a change since a git revision can affect, from the methods
+ * each test exercised in its last passing run ({@link PageObjectCoverage}).
+ *
+ * <p>Every changed Java file in a covered package (page objects, components, fixtures
+ * and the tests themselves) is parsed at the revision and in the working tree, and
+ * compared member by member, ignoring whitespace, comments outside method bodies and
+ * imports. A changed method body selects the tests that exercised the method; any
+ * other change to a class, such as a {@code @FindBy} locator field, selects every test
+ * that exercised the class. A changed page-object method that no recorded test
+ * reached is treated as a change to its class, since it may run without sending a
+ * command of its own. In the test classes only a changed TestNG test method selects
+ * just itself; a changed setup method or helper is a change to its class, as every
+ * test of the class may go through it.
+ *
+ * <p>Everything runs when the change touches anything else under {@code src} or the
+ * pom, and tests without recorded coverage always run. Uncommitted and untracked
+ * files count as changes. Enable with {@code -Dkeep.select.since=<revision>}, e.g.
+ * {@code mvn test -Dkeep.select.since=origin/main}.
+ */
+public final class ChangeImpact {
+    public static final String SINCE_PROPERTY = "keep.select.since";
+
+    private static final String SOURCE_ROOT = "src/test/java/";
+    private static final String CLASS_MEMBERS = "";
+    // TestNG annotations that keep a public method of a class-level @Test class from being a test
+    private static final Set<String> CONFIGURATION_ANNOTATIONS = Set.of(
+            "BeforeSuite", "AfterSuite", "BeforeTest", "AfterTest", "BeforeGroups", "AfterGroups",
+            "BeforeClass", "AfterClass", "BeforeMethod", "AfterMethod", "DataProvider", "Factory");
+
+    private final String revision;
+    private final Map<String, Set<String>> coverage;
+    private final Set<String> changedMethods = new TreeSet<>();
+    private final Set<String> changedClasses = new TreeSet<>();
+    private final Set<String> unreachedMethods = new TreeSet<>();
+    private final Set<String> testMethods = new HashSet<>();
+    private final Set<String> testHelpers = new TreeSet<>();
+    private final List<String> runAllReasons = new ArrayList<>();
+
+    ChangeImpact(String revision, Map<String, Set<String>> coverage) {
+        this.revision = revision;
+        this.coverage = coverage;
+    }
+
+    /**
+     * Compares the working tree with the revision.
+     *
+     * @param coverage Recorded coverage by test id, see {@link PageObjectCoverage#load()}
+     * @throws IllegalArgumentException if the revision is unknown to git
+     */
+    public static ChangeImpact since(String revision, Map<String, Set<String>> coverage) {
+        ChangeImpact impact = new ChangeImpact(revision, coverage);
+        if (git("rev-parse", "--verify", "--quiet", revision + "^{commit}") == null) {
+            throw new IllegalArgumentException("Unknown git revision for -D" + SINCE_PROPERTY + ": " + revision);
+        }
+        Set<String> paths = new LinkedHashSet<>(lines(git("diff", "--name-only", "--relative", revision, "--")));
+        paths.addAll(lines(git("ls-files", "--others", "--exclude-standard")));
+        for (String path : paths) {
+            impact.classify(path);
+        }
+        impact.promoteUnreachedMethods();
+        return impact;
+    }
+
+    /**
+     * Returns true if the test has to run.
+     *
+     * @param testId {@code fully.qualified.Class#method}
+     */
+    public boolean affects(String testId) {
+        if (!runAllReasons.isEmpty() || changedMethods.contains(testId)) {
+            return true;
+        }
+        Set<String> methods = coverage.get(testId);
+        if (methods == null) {
+            return true;
+        }
+        for (String method : methods) {
+            if (changedMethods.contains(method) || changedClasses.contains(PageObjectCoverage.classOf(method))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the affected tests, keeping their order.
+     */
+    public <T> List<T> select(List<T> tests, Function<T, String> idOf) {
+        return tests.stream().filter(test -> affects(idOf.apply(test))).collect(Collectors.toList());
+    }
+
+    /**
+     * Formats what changed and how many tests were selected for the run log.
+     */
+    public String summary(int selected, int total) {
+        StringBuilder out = new StringBuilder(String.format(
+                "Change-impact selection since %s: %d of %d tests", revision, selected, total));
+        if (!runAllReasons.isEmpty()) {
+            out.append(String.format("%n  everything runs, changed: %s", String.join(", ", runAllReasons)));
+            return out.toString();
+        }
+        if (!changedClasses.isEmpty()) {
+            out.append(String.format("%n  changed classes: %s", String.join(", ", changedClasses)));
+        }
+        if (!changedMethods.isEmpty()) {
+            out.append(String.format("%n  changed methods: %s", String.join(", ", changedMethods)));
+        }
+        if (!unreachedMethods.isEmpty()) {
+            out.append(String.format("%n  not reached by any recorded test, selecting by class: %s",
+                    String.join(", ", unreachedMethods)));
+        }
+        if (!testHelpers.isEmpty()) {
+            out.append(String.format("%n  test setup or helpers, selecting by class: %s",
+                    String.join(", ", testHelpers)));
+        }
+        return out.toString();
+    }
+
+    private void classify(String path) {
+        if (path.startsWith(SOURCE_ROOT) && path.endsWith(".java")) {
+            String className = path.substring(SOURCE_ROOT.length(), path.length() - ".java".length()).replace('/', '.');
+            if (PageObjectCoverage.isCovered(className)) {
+                compare(path, className);
+                return;
+            }
+        }
+        if (path.startsWith("src/") || path.equals("pom.xml")) {
+            runAllReasons.add(path);
+        }
+    }
+
+    private void compare(String path, String className) {
+        String before = git("show", revision + ":./" + path);
+        Path file = Paths.get(path);
+        if (before == null || !Files.exists(file)) {
+            changedClasses.add(className);
+            return;
+        }
+        try {
+            compare(path, before, Files.readString(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+    }
+
+    /**
+     * Compares two versions of a source file member by member.
+     */
+    void compare(String path, String before, String after) {
+        Set<String> oldTests = new HashSet<>();
+        Set<String> newTests = new HashSet<>();
+        Map<String, Map<String, String>> old = members(path, before, oldTests);
+        Map<String, Map<String, String>> current = members(path, after, newTests);
+        Set<String> types = new HashSet<>(old.keySet());
+        types.addAll(current.keySet());
+        for (String type : types) {
+            Map<String, String> oldMembers = old.getOrDefault(type, Map.of());
+            Map<String, String> newMembers = current.getOrDefault(type, Map.of());
+            if (!oldMembers.containsKey(CLASS_MEMBERS) || !newMembers.containsKey(CLASS_MEMBERS)
+                    || !oldMembers.get(CLASS_MEMBERS).equals(newMembers.get(CLASS_MEMBERS))) {
+                changedClasses.add(type);
+                continue;
+            }
+            Set<String> names = new HashSet<>(oldMembers.keySet());
+            names.addAll(newMembers.keySet());
+            for (String name : names) {
+                if (!String.valueOf(oldMembers.get(name)).equals(String.valueOf(newMembers.get(name)))) {
+                    String method = type + "#" + name;
+                    changedMethods.add(method);
+                    // A deleted method is judged by what it was
+                    if ((newMembers.containsKey(name) ? newTests : oldTests).contains(method)) {
+                        testMethods.add(method);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A method that never showed up on a command's stack can still run, e.g. one that
+     * only computes a value for its caller, so its change selects by class. Only test
+     * methods are exempt, as a new or changed test selects itself; the setup and helpers
+     * of a test class select by class whether reached or not, since coverage misses the
+     * ones that send no command, such as a title helper.
+     */
+    void promoteUnreachedMethods() {
+        Set<String> reached = new HashSet<>();
+        coverage.values().forEach(reached::addAll);
+        for (String method : changedMethods) {
+            if (testMethods.contains(method)) {
+                continue;
+            }
+            String className = PageObjectCoverage.classOf(method);
+            if (className.startsWith(PageObjectCoverage.TEST_PACKAGE)) {
+                testHelpers.add(method);
+                changedClasses.add(className);
+            } else if (!reached.contains(method)) {
+                unreachedMethods.add(method);
+                changedClasses.add(className);
+            }
+        }
+    }
+
+    /**
+     * Parses a compilation unit into its top-level types, each mapped from method name to
+     * normalized source, plus {@link #CLASS_MEMBERS} for everything but the methods.
+     *
+     * @param tests Receives the {@code Class#method} ids of the TestNG test methods
+     */
+    private static Map<String, Map<String, String>> members(String path, String source, Set<String> tests) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Change-impact selection needs a JDK, not a JRE");
+        }
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + path), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        // Syntax errors still give a usable tree, so their diagnostics are dropped
+        JavacTask task = (JavacTask) compiler.getTask(null, null, diagnostic -> {
+        }, List.of("-proc:none"), null, List.of(file));
+        SourcePositions positions = Trees.instance(task).getSourcePositions();
+        Map<String, Map<String, String>> types = new HashMap<>();
+        try {
+            for (CompilationUnitTree unit : task.parse()) {
+                String packagePrefix = unit.getPackageName() == null ? "" : unit.getPackageName() + ".";
+                for (Tree type : unit.getTypeDecls()) {
+                    if (type instanceof ClassTree) {
+                        String typeName = packagePrefix + ((ClassTree) type).getSimpleName();
+                        Map<String, StringBuilder> members = new HashMap<>();
+                        collect((ClassTree) type, unit, positions, source, members, typeName, tests);
+                        types.put(typeName, members.entrySet().stream()
+                                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().toString())));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse " + path, e);
+        }
+        return types;
+    }
+
+    private static void collect(ClassTree type, CompilationUnitTree unit, SourcePositions positions, String source,
+                                Map<String, StringBuilder> members, String typeName, Set<String> tests) {
+        boolean classLevelTest = type.getModifiers().getAnnotations().stream().anyMatch(ChangeImpact::isTestAnnotation);
+        StringBuilder classMembers = members.computeIfAbsent(CLASS_MEMBERS, key -> new StringBuilder());
+        classMembers.append(type.getKind()).append(' ').append(type.getSimpleName())
+                .append(text(type.getModifiers(), unit, positions, source))
+                .append(text(type.getExtendsClause(), unit, positions, source));
+        for (Tree implemented : type.getImplementsClause()) {
+            classMembers.append(text(implemented, unit, positions, source));
+        }
+        for (Tree member : type.getMembers()) {
+            if (member instanceof MethodTree) {
+                MethodTree method = (MethodTree) member;
+                members.computeIfAbsent(method.getName().toString(), key -> new StringBuilder())
+                        .append(text(member, unit, positions, source));
+                if (isTest(method, classLevelTest)) {
+                    tests.add(typeName + "#" + method.getName());
+                }
+            } else if (member instanceof ClassTree) {
+                collect((ClassTree) member, unit, positions, source, members, typeName, tests);
+            } else {
+                classMembers.append(text(member, unit, positions, source));
+            }
+        }
+    }
+
+    /**
+     * Mirrors TestNG: a method annotated {@code @Test}, or a public void instance method
+     * without a configuration annotation in a class annotated {@code @Test}.
+     */
+    private static boolean isTest(MethodTree method, boolean classLevelTest) {
+        boolean configuration = false;
+        for (AnnotationTree annotation : method.getModifiers().getAnnotations()) {
+            if (isTestAnnotation(annotation)) {
+                return true;
+            }
+            configuration |= CONFIGURATION_ANNOTATIONS.contains(simpleName(annotation));
+        }
+        Set<Modifier> flags = method.getModifiers().getFlags();
+        return classLevelTest && !configuration && flags.contains(Modifier.PUBLIC) && !flags.contains(Modifier.STATIC)
+                && method.getReturnType() != null && "void".equals(method.getReturnType().toString());
+    }
+
+    private static boolean isTestAnnotation(AnnotationTree annotation) {
+        return "Test".equals(simpleName(annotation));
+    }
+
+    private static String simpleName(AnnotationTree annotation) {
+        String name = annotation.getAnnotationType().toString();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private static String text(Tree tree, CompilationUnitTree unit, SourcePositions positions, String source) {
+        if (tree == null) {
+            return "";
+        }
+        long start = positions.getStartPosition(unit, tree);
+        long end = positions.getEndPosition(unit, tree);
+        if (start < 0 || end < start) {
+            return "";
+        }
+        return " " + source.substring((int) start, (int) end).replaceAll("\\s+", " ");
+    }
+
+    private static List<String> lines(String output) {
+        if (output == null) {
+            // Selecting from a partial list of changes could skip affected tests
+            throw new IllegalStateException("git could not list the changes for change-impact selection");
+        }
+        List<String> lines = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            if (!line.isBlank()) {
+                lines.add(line.trim());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Runs git in the working directory.
+     *
+     * @return Its output, or null if it exited with an error
+     */
+    private static String git(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        try {
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream in = process.getInputStream()) {
+                in.transferTo(out);
+            }
+            return process.waitFor() == 0 ? out.toString(StandardCharsets.UTF_8) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to run " + String.join(" ", command), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted running " + String.join(" ", command), e);
+        }
+    }
+}
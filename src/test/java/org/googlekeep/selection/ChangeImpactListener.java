@@ -0,0 +1,54 @@
+package org.googlekeep.selection;
+
+import org.googlekeep.BaseTest;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.util.List;
+
+/**
+ * Runs only the tests affected by the changes since {@code -Dkeep.select.since}
+ * (see {@link ChangeImpact}) and writes the page-object coverage of the passing tests
+ * back when the suite finishes. Registered on {@code BaseTest}.
+ *
+ * <p>Grid workers run one method per suite, so there the coordinator selects the
+ * tests and collects the coverage instead.
+ */
+public class ChangeImpactListener implements IMethodInterceptor, ITestListener, ISuiteListener {
+    private final boolean enabled = System.getProperty(BaseTest.GRID_WORKER_PROPERTY) == null;
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        String since = System.getProperty(ChangeImpact.SINCE_PROPERTY);
+        if (!enabled || since == null || since.isBlank()) {
+            return methods;
+        }
+        ChangeImpact impact = ChangeImpact.since(since, PageObjectCoverage.load());
+        List<IMethodInstance> selected = impact.select(methods, method -> idOf(method.getMethod()));
+        System.out.println(impact.summary(selected.size(), methods.size()));
+        return selected;
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        PageObjectCoverage.markPassed(idOf(result.getMethod()));
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (enabled && !PageObjectCoverage.passedTests().isEmpty()) {
+            System.out.println("Page-object coverage written to "
+                    + PageObjectCoverage.save(PageObjectCoverage.passedTests()));
+        }
+    }
+
+    private static String idOf(ITestNGMethod method) {
+        return method.getRealClass().getName() + "#" + method.getMethodName();
+    }
+}
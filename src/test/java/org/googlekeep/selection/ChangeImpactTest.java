@@ -0,0 +1,135 @@
+package org.googlekeep.selection;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * The selection rules of {@link ChangeImpact}, on source versions given as strings, so
+ * neither git nor a browser is involved.
+ */
+public class ChangeImpactTest {
+    private static final String TESTS = "org.googlekeep.tests.";
+    private static final String PAGES = "org.googlekeep.pages.";
+    private static final String NOTES_TEST = "src/test/java/org/googlekeep/tests/NotesTest.java";
+    private static final String NOTES_PAGE = "src/test/java/org/googlekeep/pages/NotesPage.java";
+
+    private static final String TEST_A = TESTS + "NotesTest#testCreate";
+    private static final String TEST_B = TESTS + "NotesTest#testPin";
+    private static final String TEST_C = TESTS + "SearchTest#testSearch";
+    private static final String UNCOVERED = TESTS + "SearchTest#testNew";
+
+    // Helpers and setup that send no command of their own never show up in the coverage
+    private static final Map<String, Set<String>> COVERAGE = Map.of(
+            TEST_A, Set.of(TEST_A, PAGES + "NotesPage#createNote"),
+            TEST_B, Set.of(TEST_B, PAGES + "NotesPage#pinNote"),
+            TEST_C, Set.of(TEST_C, PAGES + "NotesPage#search"));
+
+    private static final List<String> ALL = List.of(TEST_A, TEST_B, TEST_C, UNCOVERED);
+
+    @Test
+    public void testChangedTestMethodSelectsOnlyItself() {
+        assertEquals(selected(NOTES_TEST, notesTest("create();", "pin();", "return page;", "open();", ""),
+                notesTest("create(); check();", "pin();", "return page;", "open();", "")),
+                List.of(TEST_A, UNCOVERED));
+    }
+
+    @Test
+    public void testChangedHelperSelectsItsClass() {
+        assertEquals(selected(NOTES_TEST, notesTest("create();", "pin();", "return page;", "open();", ""),
+                notesTest("create();", "pin();", "return cachedPage;", "open();", "")),
+                List.of(TEST_A, TEST_B, UNCOVERED));
+    }
+
+    @Test
+    public void testChangedSetupSelectsItsClass() {
+        assertEquals(selected(NOTES_TEST, notesTest("create();", "pin();", "return page;", "open();", ""),
+                notesTest("create();", "pin();", "return page;", "open(); clear();", "")),
+                List.of(TEST_A, TEST_B, UNCOVERED));
+    }
+
+    @Test
+    public void testNewUnannotatedHelperSelectsItsClass() {
+        assertEquals(selected(NOTES_TEST, notesTest("create();", "pin();", "return page;", "open();", ""),
+                notesTest("create();", "pin();", "return page;", "open();", "String title() { return \"t\"; }")),
+                List.of(TEST_A, TEST_B, UNCOVERED));
+    }
+
+    @Test
+    public void testPublicMethodOfClassLevelTestClassIsATest() {
+        String before = "package org.googlekeep.tests;\n@Test\npublic class NotesTest {\n"
+                + "    public void testCreate() { create(); }\n"
+                + "    @BeforeMethod\n    public void setUp() { open(); }\n}\n";
+        String changedTest = before.replace("create();", "create(); check();");
+        String changedSetup = before.replace("open();", "open(); clear();");
+        assertEquals(selected(NOTES_TEST, before, changedTest), List.of(TEST_A, UNCOVERED));
+        assertEquals(selected(NOTES_TEST, before, changedSetup), List.of(TEST_A, TEST_B, UNCOVERED));
+    }
+
+    @Test
+    public void testChangedReachedPageObjectMethodSelectsItsTests() {
+        assertEquals(selected(NOTES_PAGE, notesPage("click();", "return x;", ""),
+                notesPage("click(); await();", "return x;", "")),
+                List.of(TEST_A, UNCOVERED));
+    }
+
+    @Test
+    public void testChangedUnreachedPageObjectMethodSelectsItsClass() {
+        assertEquals(selected(NOTES_PAGE, notesPage("click();", "return x;", ""),
+                notesPage("click();", "return x.trim();", "")),
+                List.of(TEST_A, TEST_B, TEST_C, UNCOVERED));
+    }
+
+    @Test
+    public void testChangedLocatorFieldSelectsItsClass() {
+        assertEquals(selected(NOTES_PAGE, notesPage("click();", "return x;", "By.id(\"a\")"),
+                notesPage("click();", "return x;", "By.id(\"b\")")),
+                List.of(TEST_A, TEST_B, TEST_C, UNCOVERED));
+    }
+
+    @Test
+    public void testFormattingOnlyChangeSelectsNothing() {
+        String before = notesPage("click();", "return x;", "");
+        String reformatted = before.replace("createNote() { click(); }", "createNote() {\n        click();\n    }")
+                .replace("public class", "// Reformatted\npublic class");
+        assertEquals(selected(NOTES_PAGE, before, reformatted), List.of(UNCOVERED));
+    }
+
+    private static List<String> selected(String path, String before, String after) {
+        String className = path.substring("src/test/java/".length(), path.length() - ".java".length()).replace('/', '.');
+        ChangeImpact impact = new ChangeImpact("HEAD", COVERAGE);
+        impact.compare(path, before, after);
+        impact.promoteUnreachedMethods();
+        assertTrue(PageObjectCoverage.isCovered(className), className + " should be a covered class");
+        return ALL.stream().filter(impact::affects).collect(Collectors.toList());
+    }
+
+    private static String notesTest(String create, String pin, String helper, String setUp, String extra) {
+        return "package org.googlekeep.tests;\n"
+                + "import org.testng.annotations.*;\n"
+                + "public class NotesTest {\n"
+                + "    @BeforeMethod\n    public void setUp() { " + setUp + " }\n"
+                + "    NotesPage notesPage() { " + helper + " }\n"
+                + "    @Test(groups = \"in-process\")\n    public void testCreate() { " + create + " }\n"
+                + "    @org.testng.annotations.Test\n    public void testPin() { " + pin + " }\n"
+                + "    " + extra + "\n"
+                + "}\n";
+    }
+
+    private static String notesPage(String createNote, String titleOf, String locator) {
+        return "package org.googlekeep.pages;\n"
+                + "public class NotesPage {\n"
+                + "    private static final By EDITOR = " + (locator.isEmpty() ? "null" : locator) + ";\n"
+                + "    public void createNote() { " + createNote + " }\n"
+                + "    public void pinNote() { click(); }\n"
+                + "    public void search() { type(); }\n"
+                + "    String titleOf() { " + titleOf + " }\n"
+                + "}\n";
+    }
+}
@@ -0,0 +1,16 @@
+package org.googlekeep.selection;
+
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.lang.reflect.Method;
+
+/**
+ * Feeds {@link PageObjectCoverage} with the callers of every command sent through a
+ * driver decorated with {@link org.openqa.selenium.support.events.EventFiringDecorator}.
+ */
+public class CoverageListener implements WebDriverListener {
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        PageObjectCoverage.recordStack();
+    }
+}
@@ -0,0 +1,188 @@
+package org.googlekeep.selection;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JVM-wide record of the page-object, component, fixture and test methods each test
+ * exercised, fed by {@link CoverageListener} and kept between runs in a small JSON
+ * file so {@link ChangeImpact} can select the tests a change affects.
+ *
+ * <p>A method counts as exercised when it is on the stack of a WebDriver command issued
+ * while the test (including its setup and teardown) was running on the thread. Methods
+ * are keyed {@code fully.qualified.Class#method}; nested classes and lambdas are folded
+ * into the top-level class and the method that declared them, and overloads share a key.
+ *
+ * <p>Only passing tests are written back, and tests that did not run keep their entries,
+ * so a selective run never loses the coverage of the rest of the suite. The file is
+ * {@value #DEFAULT_FILE} in the working directory, or {@code -Dkeep.coverage.file}.
+ */
+public final class PageObjectCoverage {
+    public static final String FILE_PROPERTY = "keep.coverage.file";
+    public static final String DEFAULT_FILE = ".keep/page-object-coverage.json";
+
+    /**
+     * Packages whose changes are traced to single methods. Anything else under the test
+     * sources is shared infrastructure, and a change there selects every test.
+     */
+    static final String[] COVERED_PACKAGES = {
+            "org.googlekeep.pages.", "org.googlekeep.components.", "org.googlekeep.fixtures.", "org.googlekeep.tests."
+    };
+    static final String TEST_PACKAGE = "org.googlekeep.tests.";
+
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    private static final Map<String, Set<String>> TESTS = new ConcurrentHashMap<>();
+    private static final Set<String> PASSED = ConcurrentHashMap.newKeySet();
+    private static final ThreadLocal<Set<String>> CURRENT_TEST = new ThreadLocal<>();
+
+    private PageObjectCoverage() {
+    }
+
+    /**
+     * Attributes the methods exercised on the current thread to the given test until {@link #endTest()}.
+     */
+    public static void startTest(String testId) {
+        Set<String> methods = ConcurrentHashMap.newKeySet();
+        TESTS.put(testId, methods);
+        CURRENT_TEST.set(methods);
+    }
+
+    public static void endTest() {
+        CURRENT_TEST.remove();
+    }
+
+    public static void markPassed(String testId) {
+        PASSED.add(testId);
+    }
+
+    /**
+     * Forgets the tests recorded so far, e.g. once a resident daemon has saved a submission's coverage.
+     */
+    public static void reset() {
+        TESTS.clear();
+        PASSED.clear();
+    }
+
+    /**
+     * Records the covered methods on the current stack against the running test, if any.
+     */
+    static void recordStack() {
+        Set<String> methods = CURRENT_TEST.get();
+        if (methods == null) {
+            return;
+        }
+        WALKER.forEach(frame -> {
+            if (isCovered(frame.getClassName())) {
+                methods.add(methodId(frame.getClassName(), frame.getMethodName()));
+            }
+        });
+    }
+
+    /**
+     * Returns the coverage of the tests that passed in this JVM.
+     */
+    public static Map<String, List<String>> passedTests() {
+        Map<String, List<String>> tests = new TreeMap<>();
+        for (String testId : PASSED) {
+            Set<String> methods = TESTS.get(testId);
+            if (methods != null) {
+                tests.put(testId, new ArrayList<>(new TreeSet<>(methods)));
+            }
+        }
+        return tests;
+    }
+
+    /**
+     * Loads the recorded coverage; a missing or unreadable file gives an empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Set<String>> load() {
+        Path file = getFile();
+        Map<String, Set<String>> tests = new TreeMap<>();
+        if (!Files.exists(file)) {
+            return tests;
+        }
+        try {
+            Map<String, Object> json = new Json().toType(Files.readString(file), Json.MAP_TYPE);
+            Map<String, Object> entries = (Map<String, Object>) json.getOrDefault("tests", Map.of());
+            for (Map.Entry<String, Object> entry : entries.entrySet()) {
+                tests.put(entry.getKey(), new TreeSet<>((Collection<String>) entry.getValue()));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Ignoring unreadable page-object coverage " + file + ": " + e.getMessage());
+            tests.clear();
+        }
+        return tests;
+    }
+
+    /**
+     * Merges the given tests into the coverage file, replacing their previous entries.
+     */
+    public static Path save(Map<String, ? extends Collection<String>> tests) {
+        Map<String, Object> merged = new TreeMap<>(load());
+        merged.putAll(tests);
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("version", 1);
+        json.put("tests", merged);
+        Path file = getFile().toAbsolutePath();
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), "page-object-coverage", ".tmp");
+            Files.write(temp, new Json().toJson(json).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write page-object coverage to " + file, e);
+        }
+        return file;
+    }
+
+    public static Path getFile() {
+        return Paths.get(System.getProperty(FILE_PROPERTY, DEFAULT_FILE));
+    }
+
+    static boolean isCovered(String className) {
+        for (String prefix : COVERED_PACKAGES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Formats a method as {@code fully.qualified.Class#method}, folding nested classes
+     * and lambdas into the top-level class and the method that declared them.
+     */
+    static String methodId(String className, String methodName) {
+        int nested = className.indexOf('$');
+        if (nested > 0) {
+            className = className.substring(0, nested);
+        }
+        if (methodName.startsWith("lambda$")) {
+            String[] parts = methodName.split("\\$");
+            methodName = parts.length > 1 ? parts[1] : methodName;
+        }
+        return className + "#" + methodName;
+    }
+
+    static String classOf(String methodId) {
+        int hash = methodId.indexOf('#');
+        return hash < 0 ? methodId : methodId.substring(0, hash);
+    }
+}
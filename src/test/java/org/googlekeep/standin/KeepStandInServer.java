@@ -0,0 +1,339 @@
+package org.googlekeep.standin;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.TypeToken;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP server that serves a Keep-like single page app on localhost.
+ * The page reproduces the DOM contract the page objects rely on (card classes,
+ * textbox roles, toolbar aria-labels, snackbar, sidebar views and search), so the
+ * suite can run without reaching keep.google.com.
+ *
+ * <p>Like Keep, every route is scoped by an account index ({@code /u/0/}, {@code /u/1/}, ...).
+ * Each account has its own {@link NoteStore}, which lets parallel workers use
+ * isolated boards on the same server.
+ *
+ * <p>Routes:
+ * <ul>
+ *     <li>{@code GET /u/{n}/} - the app, with the account's notes inlined into the page</li>
+ *     <li>{@code GET /static/*} - page script and styles</li>
+ *     <li>{@code GET /static/assets/*} - page furniture the tests never read: an avatar image,
+ *     a web font and an analytics script</li>
+ *     <li>{@code POST /log} - the analytics beacon, answered with no content</li>
+ *     <li>{@code GET /u/{n}/api/notes} - all notes as JSON</li>
+ *     <li>{@code GET /u/{n}/api/revision} - the store's revision, which open windows poll to stay in sync</li>
+ *     <li>{@code PUT /u/{n}/api/notes/{id}} - insert or replace a note</li>
+ *     <li>{@code POST /u/{n}/api/notes} - seed fixtures: insert or replace every note in a JSON array,
+ *     each carrying its own {@code id}</li>
+ *     <li>{@code DELETE /u/{n}/api/notes/{id}} - remove a note, {@code DELETE /u/{n}/api/notes} removes all</li>
+ * </ul>
+ *
+ * <p>Note responses carry the store revision they reflect in an {@value #REVISION_HEADER} header.
+ *
+ * <p>The assets and the beacon stand in for the CDN and logging traffic of the real page,
+ * at realistic sizes, so network policies can be measured locally. {@value #ASSET_LATENCY_PROPERTY}
+ * delays each of them by that many milliseconds to model a remote CDN (default 0).
+ */
+public class KeepStandInServer {
+    public static final String PORT_PROPERTY = "keep.standin.port";
+    public static final String REVISION_HEADER = "X-Keep-Revision";
+    public static final String ASSET_LATENCY_PROPERTY = "keep.standin.assetLatencyMs";
+
+    private static final String RESOURCE_ROOT = "/standin/";
+    private static final String STATE_PLACEHOLDER = "/*__KEEP_STATE__*/[]";
+    private static final String REVISION_PLACEHOLDER = "/*__KEEP_REVISION__*/0";
+    private static final Json JSON = new Json();
+    private static final Type NOTE_LIST_TYPE = new TypeToken<List<Map<String, Object>>>() {
+    }.getType();
+
+    private static final Map<String, byte[]> ASSETS = createAssets();
+
+    private static KeepStandInServer shared;
+
+    private final Map<Integer, NoteStore> stores = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public KeepStandInServer(int port) {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to bind Keep stand-in on port " + port, e);
+        }
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "keep-standin");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/u/", this::handleAccount);
+        server.createContext("/static/", this::handleStatic);
+        server.createContext("/log", this::handleBeacon);
+        server.createContext("/", this::handleRoot);
+    }
+
+    /**
+     * Returns the JVM-wide stand-in instance, starting it on first use.
+     * The port comes from {@value #PORT_PROPERTY}, defaulting to an ephemeral port.
+     */
+    public static synchronized KeepStandInServer shared() {
+        if (shared == null) {
+            KeepStandInServer server = new KeepStandInServer(Integer.getInteger(PORT_PROPERTY, 0));
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "keep-standin-shutdown"));
+            shared = server;
+        }
+        return shared;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the URL of the app, equivalent to {@code https://keep.google.com/u/0/}.
+     */
+    public String getAppUrl() {
+        return getAppUrl(0);
+    }
+
+    /**
+     * Returns the URL of the app for the given account index.
+     *
+     * @param account The account index, as in {@code /u/{account}/}
+     */
+    public String getAppUrl(int account) {
+        return "http://127.0.0.1:" + getPort() + "/u/" + account + "/";
+    }
+
+    public NoteStore getStore() {
+        return getStore(0);
+    }
+
+    public NoteStore getStore(int account) {
+        return stores.computeIfAbsent(account, key -> new NoteStore());
+    }
+
+    private void handleRoot(HttpExchange exchange) throws IOException {
+        if ("/".equals(exchange.getRequestURI().getPath())) {
+            exchange.getResponseHeaders().add("Location", "/u/0/");
+            send(exchange, 302, "text/plain", new byte[0]);
+        } else {
+            send(exchange, 404, "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void handleAccount(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        int slash = path.indexOf('/', "/u/".length());
+        int account;
+        try {
+            account = Integer.parseInt(path.substring("/u/".length(), slash < 0 ? path.length() : slash));
+        } catch (NumberFormatException e) {
+            send(exchange, 404, "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (slash < 0) {
+            exchange.getResponseHeaders().add("Location", path + "/");
+            send(exchange, 302, "text/plain", new byte[0]);
+            return;
+        }
+        String rest = path.substring(slash);
+
+        if ("/".equals(rest)) {
+            handleApp(exchange, getStore(account));
+        } else if (rest.equals("/api/revision") && "GET".equals(exchange.getRequestMethod())) {
+            sendJson(exchange, 200, Map.of("revision", getStore(account).getRevision()));
+        } else if (rest.equals("/api/notes") || rest.startsWith("/api/notes/")) {
+            handleNotes(exchange, getStore(account), rest);
+        } else {
+            send(exchange, 404, "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void handleApp(HttpExchange exchange, NoteStore store) throws IOException {
+        // Revision first: a change in between makes the page fetch once more, never miss one
+        long revision = store.getRevision();
+        String page = new String(readResource("index.html"), StandardCharsets.UTF_8)
+                .replace(STATE_PLACEHOLDER, JSON.toJson(store.all()))
+                .replace(REVISION_PLACEHOLDER, Long.toString(revision));
+        send(exchange, 200, "text/html; charset=utf-8", page.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleStatic(HttpExchange exchange) throws IOException {
+        String name = exchange.getRequestURI().getPath().substring("/static/".length());
+        if (name.startsWith("assets/")) {
+            handleAsset(exchange, name.substring("assets/".length()));
+            return;
+        }
+        byte[] body = name.contains("..") ? null : readResource(name);
+        if (body == null) {
+            send(exchange, 404, "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        String type = name.endsWith(".js") ? "application/javascript" : "text/css";
+        send(exchange, 200, type + "; charset=utf-8", body);
+    }
+
+    private void handleAsset(HttpExchange exchange, String name) throws IOException {
+        byte[] body = ASSETS.get(name);
+        if (body == null) {
+            send(exchange, 404, "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        simulateAssetLatency();
+        String type = name.endsWith(".png") ? "image/png"
+                : name.endsWith(".woff2") ? "font/woff2"
+                : "application/javascript; charset=utf-8";
+        send(exchange, 200, type, body);
+    }
+
+    private void handleBeacon(HttpExchange exchange) throws IOException {
+        readBody(exchange);
+        simulateAssetLatency();
+        send(exchange, 204, "text/plain", new byte[0]);
+    }
+
+    private static void simulateAssetLatency() {
+        int latencyMs = Integer.getInteger(ASSET_LATENCY_PROPERTY, 0);
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Builds the page furniture from a fixed seed: a noise avatar that does not compress,
+     * font-sized filler and a padded analytics script that sends one beacon.
+     */
+    private static Map<String, byte[]> createAssets() {
+        Random random = new Random(42);
+        BufferedImage avatar = new BufferedImage(160, 160, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < avatar.getHeight(); y++) {
+            for (int x = 0; x < avatar.getWidth(); x++) {
+                avatar.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(avatar, "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to render the stand-in avatar", e);
+        }
+        byte[] font = new byte[96 * 1024];
+        random.nextBytes(font);
+        StringBuilder analytics = new StringBuilder("/* Stand-in for the page's analytics bundle */\n");
+        while (analytics.length() < 48 * 1024) {
+            analytics.append("var _k").append(analytics.length()).append("=").append(random.nextLong()).append(";\n");
+        }
+        analytics.append("try { navigator.sendBeacon('/log?format=json', JSON.stringify({event: 'load'})); } catch (e) {}\n");
+        return Map.of(
+                "avatar.png", png.toByteArray(),
+                "product-sans.woff2", font,
+                "analytics.js", analytics.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleNotes(HttpExchange exchange, NoteStore store, String path) throws IOException {
+        String id = path.length() > "/api/notes/".length() ? path.substring("/api/notes/".length()) : null;
+        String method = exchange.getRequestMethod();
+
+        if ("GET".equals(method) && id == null) {
+            long revision = store.getRevision();
+            exchange.getResponseHeaders().set(REVISION_HEADER, Long.toString(revision));
+            sendJson(exchange, 200, store.all());
+        } else if ("PUT".equals(method) && id != null) {
+            Map<String, Object> note = JSON.toType(readBody(exchange), Json.MAP_TYPE);
+            store.put(id, note);
+            sendWritten(exchange, store);
+        } else if ("POST".equals(method) && id == null) {
+            List<Map<String, Object>> notes = JSON.toType(readBody(exchange), NOTE_LIST_TYPE);
+            for (Map<String, Object> note : notes) {
+                Object noteId = note.get("id");
+                if (!(noteId instanceof String)) {
+                    send(exchange, 400, "text/plain", "Every note needs a string id".getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+            }
+            for (Map<String, Object> note : notes) {
+                store.put((String) note.get("id"), note);
+            }
+            sendWritten(exchange, store);
+        } else if ("DELETE".equals(method)) {
+            if (id == null) {
+                store.clear();
+            } else {
+                store.remove(id);
+            }
+            sendWritten(exchange, store);
+        } else {
+            send(exchange, 405, "text/plain", "Method not allowed".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private byte[] readResource(String name) throws IOException {
+        try (InputStream in = KeepStandInServer.class.getResourceAsStream(RESOURCE_ROOT + name)) {
+            return in == null ? null : in.readAllBytes();
+        }
+    }
+
+    private String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private void sendWritten(HttpExchange exchange, NoteStore store) throws IOException {
+        exchange.getResponseHeaders().set(REVISION_HEADER, Long.toString(store.getRevision()));
+        send(exchange, 204, "text/plain", new byte[0]);
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        send(exchange, status, "application/json; charset=utf-8", JSON.toJson(body).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,75 @@
+package org.googlekeep.standin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thread-safe in-memory note storage backing the local Keep stand-in.
+ * Notes are kept as plain JSON-like maps so the page script owns the note shape.
+ *
+ * <p>Every change bumps a revision number, which open app windows poll to find out
+ * that another window or client has changed the board.
+ */
+public class NoteStore {
+    private final Map<String, Map<String, Object>> notes = new LinkedHashMap<>();
+    private long revision;
+
+    /**
+     * Returns a copy of every stored note in insertion order.
+     */
+    public synchronized List<Map<String, Object>> all() {
+        List<Map<String, Object>> copy = new ArrayList<>();
+        for (Map<String, Object> note : notes.values()) {
+            copy.add(new LinkedHashMap<>(note));
+        }
+        return copy;
+    }
+
+    /**
+     * Inserts or replaces the note with the given id.
+     *
+     * @param id   The note id
+     * @param note The full note state as sent by the page
+     */
+    public synchronized void put(String id, Map<String, Object> note) {
+        Map<String, Object> copy = new LinkedHashMap<>(note);
+        copy.put("id", id);
+        notes.put(id, copy);
+        revision++;
+    }
+
+    /**
+     * Permanently removes a note.
+     *
+     * @param id The note id
+     * @return true if a note was removed
+     */
+    public synchronized boolean remove(String id) {
+        if (notes.remove(id) == null) {
+            return false;
+        }
+        revision++;
+        return true;
+    }
+
+    /**
+     * Removes every note.
+     */
+    public synchronized void clear() {
+        notes.clear();
+        revision++;
+    }
+
+    /**
+     * Returns the number of changes made to the store so far.
+     */
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    public synchronized int size() {
+        return notes.size();
+    }
+}
@@ -0,0 +1,63 @@
+package org.googlekeep.tests;
+
+import org.googlekeep.BaseTest;
+import org.googlekeep.components.NoteCardComponent;
+import org.googlekeep.fixtures.NoteFixtures;
+import org.googlekeep.model.NoteSpec;
+import org.googlekeep.pages.NotesPage;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checks that the board operations hold up on a board of ten thousand notes, which the
+ * app only renders a page at a time. The board is seeded through the local stand-in in
+ * one request and cleared the same way, so these tests only run with {@code -Dkeep.target=local}
+ * and are skipped before any browser starts otherwise. Walking ten thousand cards takes minutes
+ * in the in-process browser, so the build leaves the {@value #SCALE_GROUP} group out unless
+ * run with {@code -Pscale}.
+ */
+public class BoardScaleTest extends BaseTest {
+    public static final String SCALE_GROUP = "scale";
+    private static final int BOARD_SIZE = 10_000;
+    private static final String PREFIX = "Scale Note";
+    private static final int BELOW_FOLD_POSITION = 200;
+
+    // Not alwaysRun, so it is skipped with the test when BaseTest skips it
+    @BeforeMethod(groups = {IN_PROCESS_GROUP, STAND_IN_GROUP, SCALE_GROUP})
+    public void seedBoard() {
+        givenNotes(NoteFixtures.scaleBoard(PREFIX, BOARD_SIZE).toArray(new NoteSpec[0]));
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void clearBoard() {
+        if (getDriver() != null && "local".equalsIgnoreCase(TARGET)) {
+            new NoteFixtures(getDriver(), getNotesPage(), getKeepUrl()).clearStandIn();
+        }
+    }
+
+    @Test(groups = {IN_PROCESS_GROUP, STAND_IN_GROUP, SCALE_GROUP})
+    public void testCountsLazilyRenderedBoard() {
+        NotesPage notesPage = getNotesPage();
+        assertTrue(notesPage.snapshot().size() < BOARD_SIZE, "The board should not render every card at once");
+        assertEquals(notesPage.getCurrentNoteCount(), BOARD_SIZE);
+    }
+
+    @Test(groups = {IN_PROCESS_GROUP, STAND_IN_GROUP, SCALE_GROUP})
+    public void testFindsAndDeletesNoteBelowTheFold() {
+        NotesPage notesPage = getNotesPage();
+        // Newest first, so this is the first card of the third rendered page
+        String belowFold = String.format("%s %05d", PREFIX, BOARD_SIZE - BELOW_FOLD_POSITION);
+        assertFalse(notesPage.snapshot().findByTitle(belowFold).isPresent(),
+                "The note should not be rendered before scrolling");
+        assertTrue(notesPage.isNotePresent(belowFold), "The presence check should see the note below the fold");
+        NoteCardComponent card = notesPage.getNoteByTitle(belowFold);
+        assertNotNull(card, "The note should be found by scrolling the board");
+        assertEquals(notesPage.purgeNotes(List.of(belowFold)), 1);
+        assertEquals(notesPage.getCurrentNoteCount(), BOARD_SIZE - 1);
+    }
+}
@@ -1,120 +1,176 @@
 package org.googlekeep.tests;
 
 import org.googlekeep.BaseTest;
+import org.googlekeep.model.NoteSnapshot;
+import org.googlekeep.model.NoteSpec;
 import org.googlekeep.pages.NotesPage;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import java.time.Duration;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.testng.Assert.*;
 
 /**
  * Test suite for Google Keep note operations.
+ *
+ * <p>One instance serves every thread when methods run in parallel, so the note
+ * title is held per thread and the page object comes from the thread's session.
+ * Titles include the test method name to keep notes from concurrent tests apart.
+ *
+ * <p>Notes a test only needs as a precondition are injected with {@code givenNotes};
+ * the creation tests still go through the composer.
+ *
+ * <p>Everything but the color check is page-object logic, so it runs on the in-process
+ * driver against the local stand-in; the color check needs Chrome's rendering.
  */
 public class NotesTest extends BaseTest {
-    private NotesPage notesPage;
-    private final String TEST_NOTE_TITLE = "Test Note " + System.currentTimeMillis();
+    private final ThreadLocal<String> testNoteTitle = new ThreadLocal<>();
     private final String TEST_LABEL = "TestLabel";
     private final String[] CHECKLIST_ITEMS = {"Item 1", "Item 2", "Item 3"};
+    private static final int BULK_NOTES = 150;
 
-    @BeforeMethod
-    public void setup() {
-        notesPage = new NotesPage(driver);
+    @BeforeMethod(alwaysRun = true)
+    public void setup(Method method) {
+        testNoteTitle.set("Test Note " + method.getName() + " " + System.currentTimeMillis());
     }
 
-    @Test(priority = 1)
+    private NotesPage notesPage() {
+        return getNotesPage();
+    }
+
+    private String testNoteTitle() {
+        return testNoteTitle.get();
+    }
+
+    @Test(groups = IN_PROCESS_GROUP)
     public void testEmptyNote(){
-        int initialCount = notesPage.getCurrentNoteCount();
-        notesPage.createEmptyNote();
-        assertFalse(notesPage.isNoteSaved(initialCount), "Empty note shouldn't be saved");
+        int initialCount = notesPage().getCurrentNoteCount();
+        notesPage().createEmptyNote();
+        assertFalse(notesPage().isNoteSaved(initialCount), "Empty note shouldn't be saved");
     }
 
-    @Test(priority = 2)
+    @Test(groups = IN_PROCESS_GROUP)
     public void testPinNote(){
-        notesPage.createNote(TEST_NOTE_TITLE);
-        notesPage.pinNoteByTitle(TEST_NOTE_TITLE);
-        assertTrue(notesPage.isNotePinned(TEST_NOTE_TITLE));
+        givenNotes(NoteSpec.titled(testNoteTitle()));
+        notesPage().pinNoteByTitle(testNoteTitle());
+        assertTrue(notesPage().isNotePinned(testNoteTitle()));
     }
 
-    @Test(priority = 3)
+    @Test(groups = IN_PROCESS_GROUP)
     public void testArchiveNote() {
-        notesPage.createNote(TEST_NOTE_TITLE);
-        notesPage.archiveNoteByTitle(TEST_NOTE_TITLE);
-        assertTrue(notesPage.isNoteArchived(TEST_NOTE_TITLE));
-    }
-
-    @Test(priority = 4)
-    public void testUndoDelete() throws InterruptedException {
-        notesPage.createNote(TEST_NOTE_TITLE);
-        int initialCount = notesPage.getCurrentNoteCount();
-        notesPage.deleteNoteByTitle(TEST_NOTE_TITLE, true);
-        assertEquals(notesPage.getCurrentNoteCount(), initialCount);
-    }
-
-    @Test(priority = 5)
-    public void testDeleteNote() throws InterruptedException {
-        notesPage.createNote(TEST_NOTE_TITLE);
-        int initialCount = notesPage.getCurrentNoteCount();
-        notesPage.deleteNoteByTitle(TEST_NOTE_TITLE, false);
-        Thread.sleep(2000);
-        assertEquals(notesPage.getCurrentNoteCount(), initialCount - 1,
+        givenNotes(NoteSpec.titled(testNoteTitle()));
+        notesPage().archiveNoteByTitle(testNoteTitle());
+        assertTrue(notesPage().isNoteArchived(testNoteTitle()));
+    }
+
+    @Test(groups = IN_PROCESS_GROUP)
+    public void testUndoDelete() {
+        givenNotes(NoteSpec.titled(testNoteTitle()));
+        int initialCount = notesPage().getCurrentNoteCount();
+        notesPage().deleteNoteByTitle(testNoteTitle(), true);
+        assertEquals(notesPage().getCurrentNoteCount(), initialCount);
+    }
+
+    @Test(groups = IN_PROCESS_GROUP)
+    public void testDeleteNote() {
+        givenNotes(NoteSpec.titled(testNoteTitle()));
+        int initialCount = notesPage().getCurrentNoteCount();
+        notesPage().deleteNoteByTitle(testNoteTitle(), false);
+        assertEquals(notesPage().getCurrentNoteCount(), initialCount - 1,
                 "Note should be removed from visible notes after deletion");
     }
 
-    @Test(priority = 6)
-    public void testAddLabelToNote() throws InterruptedException {
-        notesPage.createNote(TEST_NOTE_TITLE);
-        notesPage.addLabelToNoteByTitle(TEST_NOTE_TITLE, TEST_LABEL);
-        Thread.sleep(2000);
-        assertFalse(notesPage.isLabelAttached(TEST_NOTE_TITLE, TEST_LABEL),
+    @Test
+    public void testAddLabelToNote() {
+        givenNotes(NoteSpec.titled(testNoteTitle()));
+        notesPage().addLabelToNoteByTitle(testNoteTitle(), TEST_LABEL);
+        assertFalse(notesPage().isLabelAttached(testNoteTitle(), TEST_LABEL),
                 "Label should be attached to the note");
     }
 
-    @Test(priority = 7)
-    public void testAddChecklistToNote() throws InterruptedException {
-        notesPage.createChecklistNote(TEST_NOTE_TITLE, CHECKLIST_ITEMS);
-        Thread.sleep(2000);
-        assertTrue(notesPage.isChecklistPresent(TEST_NOTE_TITLE, CHECKLIST_ITEMS),
+    @Test(groups = IN_PROCESS_GROUP)
+    public void testDeletedNoteInTrashView() {
+        NotesPage multiview = new NotesPage(getDriver(), true);
+        givenNotes(NoteSpec.titled(testNoteTitle()));
+        assertFalse(multiview.isNoteInTrash(testNoteTitle()), "Note should not be in the trash yet");
+        multiview.deleteNoteByTitle(testNoteTitle(), false);
+        assertTrue(multiview.isNoteInTrash(testNoteTitle()), "Deleted note should show up in the open trash view");
+    }
+
+    @Test(groups = IN_PROCESS_GROUP)
+    public void testLabelledNoteInLabelView() {
+        NotesPage multiview = new NotesPage(getDriver(), true);
+        givenNotes(NoteSpec.titled(testNoteTitle()));
+        multiview.addLabelToNoteByTitle(testNoteTitle(), TEST_LABEL);
+        assertTrue(multiview.isNoteInLabelView(TEST_LABEL, testNoteTitle()),
+                "Note should be listed under its label in the label's view");
+    }
+
+    @Test(groups = IN_PROCESS_GROUP)
+    public void testCreateNoteWithLongBody() {
+        String body = "The quick brown fox jumps over the lazy dog, again and again. ".repeat(200).trim();
+        notesPage().createNote(testNoteTitle(), body);
+        assertEquals(notesPage().snapshot().findByTitle(testNoteTitle()).map(NoteSnapshot::getBody).orElse(null), body,
+                "The whole body should be saved");
+    }
+
+    @Test(groups = IN_PROCESS_GROUP)
+    public void testCreateNotesInBulk() {
+        List<NoteSpec> specs = new ArrayList<>();
+        for (int i = 0; i < BULK_NOTES; i++) {
+            specs.add(NoteSpec.titled(testNoteTitle() + " #" + i).withBody("Bulk body " + i));
+        }
+        int initialCount = notesPage().getCurrentNoteCount();
+        notesPage().createNotes(specs);
+        assertEquals(notesPage().getCurrentNoteCount(), initialCount + BULK_NOTES,
+                "Every note of the batch should be on the board");
+    }
+
+    @Test(groups = IN_PROCESS_GROUP)
+    public void testAddChecklistToNote() {
+        notesPage().createChecklistNote(testNoteTitle(), CHECKLIST_ITEMS);
+        assertTrue(notesPage().isChecklistPresent(testNoteTitle(), CHECKLIST_ITEMS),
                 "Checklist items should be present in the created note");
     }
 
-    @Test(priority = 8)
+    @Test(groups = IN_PROCESS_GROUP)
     public void testEditNote() {
-        String updatedTitle = TEST_NOTE_TITLE + " - Updated";
+        String updatedTitle = testNoteTitle() + " - Updated";
 
-        // 1. Create the original note
-        notesPage.createNote(TEST_NOTE_TITLE);
+        // 1. Given the original note
+        givenNotes(NoteSpec.titled(testNoteTitle()));
         assertTrue(true);
         // 2. Edit the note title
-        notesPage.editNoteTitle(TEST_NOTE_TITLE, updatedTitle);
+        notesPage().editNoteTitle(testNoteTitle(), updatedTitle);
 
         // 4. Validate the updated title is present
-        assertTrue(notesPage.isNotePresent(updatedTitle), "Updated note title not found");
+        assertTrue(notesPage().isNotePresent(updatedTitle), "Updated note title not found");
     }
 
-    @Test(priority = 9)
-    public void testSearchNoteByTitle() throws InterruptedException {
-        // Create a unique note
+    @Test(groups = IN_PROCESS_GROUP)
+    public void testSearchNoteByTitle() {
+        // Given a unique note
         String searchTitle = "Searchable Note " + System.currentTimeMillis();
-        notesPage.createNote(searchTitle);
+        givenNotes(NoteSpec.titled(searchTitle));
         // Perform search
-        notesPage.searchNoteByTitle(searchTitle);
+        notesPage().searchNoteByTitle(searchTitle);
         // Validate the note appears in search results
-        assertTrue(notesPage.isNotePresent(searchTitle), "Searched note should be visible in search results");
+        assertTrue(notesPage().isNotePresent(searchTitle), "Searched note should be visible in search results");
     }
 
-    @Test(priority = 10)
+    @Test
     public void testChangeNoteColor() {
-        // Create a test note
+        // Given a test note
         String colorTestNote = "Color Test " + System.currentTimeMillis();
-        notesPage.createNote(colorTestNote);
+        givenNotes(NoteSpec.titled(colorTestNote));
         // Change to Coral
-        notesPage.changeNoteColor(colorTestNote, "Coral");
+        notesPage().changeNoteColor(colorTestNote, "Coral");
         // Change to default (white)
-        notesPage.changeNoteColor(colorTestNote, "default");
+        notesPage().changeNoteColor(colorTestNote, "default");
 
-        assertTrue(notesPage.isNotePresent(colorTestNote), "Changed note color not found");
+        assertTrue(notesPage().isNotePresent(colorTestNote), "Changed note color not found");
     }
 }
@@ -0,0 +1,190 @@
+package org.googlekeep.waits;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Event-driven waits that resolve inside the page instead of polling from the test.
+ *
+ * <p>Each wait is a single asynchronous script: it evaluates a predicate once, and if
+ * that fails installs a MutationObserver on the document and re-evaluates on every
+ * DOM change until the predicate holds or the timeout expires. The wait therefore
+ * returns within milliseconds of the UI change and costs one WebDriver round trip,
+ * where a {@code WebDriverWait} sleeps 500 ms between polls and issues a command
+ * for each of them.
+ *
+ * <p>Conditions are written against XPath so page objects can keep their locators.
+ * Timeouts are {@link WaitBudget}s named after what is being waited for, and every wait
+ * is charged to its budget through {@link WaitPolicy#await}.
+ */
+public class DomWait {
+    private static final String VISIBLE_FUNCTION =
+            "function visible(n) {" +
+            "  return !!(n.offsetWidth || n.offsetHeight || (n.getClientRects && n.getClientRects().length));" +
+            "}";
+
+    private static final String OBSERVER_SCRIPT =
+            "var args = arguments[0], timeoutMs = arguments[1], done = arguments[arguments.length - 1];" +
+            "function check() { try { return predicate(args); } catch (e) { return null; } }" +
+            "var first = check();" +
+            "if (first) { done({found: true, value: first}); return; }" +
+            "var finished = false, observer, timer, safety;" +
+            "function finish(result) {" +
+            "  if (finished) { return; }" +
+            "  finished = true; observer.disconnect(); clearTimeout(timer); clearInterval(safety);" +
+            "  done(result ? {found: true, value: result} : {found: false});" +
+            "}" +
+            "observer = new MutationObserver(function () { var r = check(); if (r) { finish(r); } });" +
+            "observer.observe(document.documentElement," +
+            "    {childList: true, subtree: true, attributes: true, characterData: true});" +
+            // Style transitions and layout changes don't always mutate the DOM
+            "safety = setInterval(function () { var r = check(); if (r) { finish(r); } }, 250);" +
+            "timer = setTimeout(function () { finish(check()); }, timeoutMs);";
+
+    private final WebDriver driver;
+    private final WaitBudget defaultBudget;
+
+    public DomWait(WebDriver driver, WaitBudget defaultBudget) {
+        this.driver = driver;
+        this.defaultBudget = defaultBudget;
+    }
+
+    /**
+     * Waits until an element matching the XPath exists in the DOM.
+     *
+     * @return The first matching element
+     * @throws TimeoutException If nothing matches within the default budget
+     */
+    public WebElement untilPresent(String xpath) {
+        return untilPresent(xpath, defaultBudget);
+    }
+
+    public WebElement untilPresent(String xpath, WaitBudget budget) {
+        return (WebElement) await("untilPresent " + xpath,
+                "return document.evaluate(args[0], document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null)" +
+                        ".singleNodeValue;",
+                budget, xpath);
+    }
+
+    /**
+     * Waits until an element matching the XPath is rendered with a non-empty box.
+     *
+     * @return The first visible matching element
+     * @throws TimeoutException If no visible match appears within the default budget
+     */
+    public WebElement untilVisible(String xpath) {
+        return untilVisible(xpath, defaultBudget);
+    }
+
+    public WebElement untilVisible(String xpath, WaitBudget budget) {
+        return (WebElement) await("untilVisible " + xpath,
+                VISIBLE_FUNCTION +
+                "var nodes = document.evaluate(args[0], document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);" +
+                "for (var i = 0; i < nodes.snapshotLength; i++) {" +
+                "  if (visible(nodes.snapshotItem(i))) { return nodes.snapshotItem(i); }" +
+                "}" +
+                "return null;",
+                budget, xpath);
+    }
+
+    /**
+     * Waits until nothing in the DOM matches the XPath, e.g. a deleted note's card.
+     *
+     * @throws TimeoutException If a match is still present after the default budget
+     */
+    public void untilAbsent(String xpath) {
+        await("untilAbsent " + xpath,
+                "return document.evaluate(args[0], document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null)" +
+                        ".singleNodeValue === null;",
+                defaultBudget, xpath);
+    }
+
+    /**
+     * Waits until a node matching the relative XPath exists under the given element,
+     * e.g. a label chip inside a note card.
+     *
+     * @return The first matching element
+     */
+    public WebElement untilPresentWithin(WebElement scope, String relativeXpath) {
+        return (WebElement) await("untilPresentWithin " + relativeXpath,
+                "return document.evaluate(args[1], args[0], null, XPathResult.FIRST_ORDERED_NODE_TYPE, null)" +
+                        ".singleNodeValue;",
+                defaultBudget, scope, relativeXpath);
+    }
+
+    /**
+     * Waits until the attribute of the element no longer has the given value,
+     * e.g. {@code aria-pressed} flipping after a click. An element that has been
+     * detached from the document counts as changed.
+     */
+    public void untilAttributeChanges(WebElement element, String attribute, String from) {
+        try {
+            await("untilAttributeChanges " + attribute,
+                    "if (!document.documentElement.contains(args[0])) { return true; }" +
+                    "return args[0].getAttribute(args[1]) !== args[2];",
+                    defaultBudget, element, attribute, from);
+        } catch (StaleElementReferenceException e) {
+            // Already detached before the script could run
+        }
+    }
+
+    /**
+     * Waits until the element has been removed from the document.
+     */
+    public void untilDetached(WebElement element) {
+        try {
+            await("untilDetached",
+                    "return !document.documentElement.contains(args[0]);",
+                    defaultBudget, element);
+        } catch (StaleElementReferenceException e) {
+            // Already detached before the script could run
+        }
+    }
+
+    /**
+     * Non-throwing variant of {@link #untilPresent(String, WaitBudget)}.
+     *
+     * @return true if a match appeared within the budget
+     */
+    public boolean isPresentWithin(String xpath, WaitBudget budget) {
+        try {
+            untilPresent(xpath, budget);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Waits for a condition written as the body of {@code function (args)}, where
+     * {@code args} holds the given arguments. Lets callers that locate elements by
+     * script, such as {@link org.googlekeep.locators.NoteCardLocator}, wait the same way.
+     *
+     * @return The first truthy value the predicate returned
+     * @throws TimeoutException If the predicate stays falsy for the whole budget
+     */
+    public Object untilScript(String description, String predicateBody, WaitBudget budget, Object... args) {
+        return await(description, predicateBody, budget, args);
+    }
+
+    private Object await(String description, String predicateBody, WaitBudget budget, Object... args) {
+        String script = "var predicate = function (args) {" + predicateBody + "};" + OBSERVER_SCRIPT;
+        List<Object> scriptArgs = Arrays.asList(args);
+        long timeoutMs = budget.getTimeout().toMillis();
+        return WaitPolicy.await(budget, () -> {
+            Object result = ((JavascriptExecutor) driver).executeAsyncScript(script, scriptArgs, timeoutMs);
+            if (result instanceof Map && Boolean.TRUE.equals(((Map<?, ?>) result).get("found"))) {
+                return ((Map<?, ?>) result).get("value");
+            }
+            throw new TimeoutException("Expected condition failed: " + description
+                    + " (waited " + timeoutMs + " ms for DOM mutations, " + budget + " budget)");
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package org.googlekeep.waits;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Named time limits for the kinds of things the page objects wait for. A wait names the
+ * operation it is waiting on instead of a number of seconds, so every wait of one kind
+ * gets the same limit and it is tuned in one place: {@code -Dkeep.wait.<budget>=<ms>},
+ * e.g. {@code -Dkeep.wait.note-sync=15000} for a slow account.
+ */
+public enum WaitBudget {
+    /** A document loading after a navigation. */
+    PAGE_LOAD(Duration.ofSeconds(20)),
+    /** A control the test just asked for: a menu, an input, a sidebar view. */
+    CONTROL(Duration.ofSeconds(10)),
+    /** A note card appearing, changing or leaving after the app saved a change. */
+    NOTE_SYNC(Duration.ofSeconds(10)),
+    /** A note card that should already be there, on the board or in a view just opened. */
+    NOTE_LOOKUP(Duration.ofSeconds(5)),
+    /** More cards rendering after the end of a lazily rendered board is scrolled into view. */
+    BOARD_SETTLE(Duration.ofMillis(300)),
+    /** The implicit wait of a {@code findElement}, lifted inside {@link WaitPolicy#negative}. */
+    ELEMENT(Duration.ofSeconds(5)),
+    /** A browser process exiting after its session quit, before it is killed. */
+    BROWSER_EXIT(Duration.ofSeconds(5));
+
+    private final String property;
+    private final Duration timeout;
+
+    WaitBudget(Duration defaultTimeout) {
+        property = "keep.wait." + name().toLowerCase(Locale.ROOT).replace('_', '-');
+        Long millis = Long.getLong(property);
+        timeout = millis != null ? Duration.ofMillis(millis) : defaultTimeout;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Returns the system property that overrides this budget, in milliseconds.
+     */
+    public String getProperty() {
+        return property;
+    }
+}
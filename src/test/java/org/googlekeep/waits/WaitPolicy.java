@@ -0,0 +1,66 @@
+package org.googlekeep.waits;
+
+import org.googlekeep.metrics.CommandTimings;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Runs waits under their {@link WaitBudget} and scopes the implicit wait.
+ *
+ * <p>{@link #await} charges the time a wait takes to its budget, so the time each test
+ * spends waiting, and on which kind of wait, is reported next to the time its commands
+ * spend acting ({@link CommandTimings}). {@link #negative} runs checks that expect to
+ * come up empty, such as a scan for notes that may be gone, with the implicit wait at
+ * zero: otherwise every lookup that finds nothing stalls for the full
+ * {@link WaitBudget#ELEMENT} budget first.
+ */
+public final class WaitPolicy {
+    private static final ThreadLocal<int[]> NEGATIVE_DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private WaitPolicy() {
+    }
+
+    /**
+     * Runs a wait and charges its time to the budget, also when it times out.
+     *
+     * @param budget The kind of wait, whose timeout the wait itself should use
+     * @return What the wait returned
+     */
+    public static <T> T await(WaitBudget budget, Supplier<T> wait) {
+        long start = System.nanoTime();
+        boolean timedOut = false;
+        CommandTimings.enterWait();
+        try {
+            return wait.get();
+        } catch (TimeoutException e) {
+            timedOut = true;
+            throw e;
+        } finally {
+            CommandTimings.exitWait(budget.name(), System.nanoTime() - start, timedOut);
+        }
+    }
+
+    /**
+     * Runs a check with the implicit wait lifted, so lookups that find nothing return at
+     * once. Scopes nest: only the outermost one touches the driver, and it puts the
+     * implicit wait back to {@link WaitBudget#ELEMENT} when it ends.
+     *
+     * @return What the check returned
+     */
+    public static <T> T negative(WebDriver driver, Supplier<T> check) {
+        int[] depth = NEGATIVE_DEPTH.get();
+        if (depth[0]++ == 0) {
+            driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+        }
+        try {
+            return check.get();
+        } finally {
+            if (--depth[0] == 0) {
+                driver.manage().timeouts().implicitlyWait(WaitBudget.ELEMENT.getTimeout());
+            }
+        }
+    }
+}
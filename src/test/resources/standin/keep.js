@@ -0,0 +1,821 @@
+/*
+ * Keep-like single page app served by KeepStandInServer.
+ *
+ * Card elements are created once per note and updated in place, so WebElement
+ * references held by the page objects stay valid across pin, color and label
+ * changes exactly as they do on keep.google.com. Every change is written back to
+ * the server so a reload sees the same board. Like Keep, every open window of an
+ * account picks up changes made in the others: once told that other windows are
+ * open (window.__keepSync), it polls the store's revision and fetches the notes
+ * when another window or client has written since. A lone window never polls.
+ * The writes still on their way to the server are counted in the document's
+ * data-keep-pending attribute, and a window can be told to catch up at once
+ * (__keepSync.flush), which it marks in data-keep-synced when done.
+ *
+ * Like Keep, a large board is rendered lazily: only the first RENDER_PAGE cards of
+ * a view are in the DOM, and another page is added whenever the window is scrolled
+ * close to the end of the board. Cards are only built once they are rendered. The
+ * board's data-unrendered attribute tells how many cards of the view are still to come.
+ */
+(function () {
+    'use strict';
+
+    var COLORS = [
+        ['default', 'Default color', '#ffffff'],
+        ['coral', 'Coral', '#faafa8'],
+        ['peach', 'Peach', '#f39f76'],
+        ['sand', 'Sand', '#fff8b8'],
+        ['mint', 'Mint', '#e2f6d3'],
+        ['sage', 'Sage', '#b4ddd3'],
+        ['fog', 'Fog', '#d4e4ed'],
+        ['storm', 'Storm', '#aeccdc'],
+        ['dusk', 'Dusk', '#d3bfdb'],
+        ['blossom', 'Blossom', '#f6e2dd'],
+        ['clay', 'Clay', '#e9e3d4'],
+        ['chalk', 'Chalk', '#efeff1']
+    ];
+
+    var notes = {};
+    var cards = {};
+    var lastOrder = 0;
+    var route = {view: 'home', query: ''};
+    var menuNoteId = null;
+    var editorNoteId = null;
+    var composerList = false;
+    var snackbarTimer = null;
+    var snackbarUndo = null;
+    var labelLinks = '';
+    var SYNC_INTERVAL_MS = 250;
+    var RENDER_PAGE = 100;
+    var LAZY_MARGIN_PX = 600;
+    var renderLimit = RENDER_PAGE;
+    var unrendered = 0;
+    var revision = window.__KEEP_REVISION__ || 0;
+    var pendingWrites = 0;
+    var localWrites = 0;
+    var syncing = false;
+    var syncTimer = null;
+    var flushes = 0;
+
+    function $(selector, scope) {
+        return (scope || document).querySelector(selector);
+    }
+
+    function el(tag, className, attrs, text) {
+        var node = document.createElement(tag);
+        if (className) {
+            node.className = className;
+        }
+        if (attrs) {
+            for (var name in attrs) {
+                if (attrs.hasOwnProperty(name)) {
+                    node.setAttribute(name, attrs[name]);
+                }
+            }
+        }
+        if (text !== undefined && text !== null) {
+            node.textContent = text;
+        }
+        return node;
+    }
+
+    function show(node, visible) {
+        node.style.display = visible ? '' : 'none';
+    }
+
+    function isShown(node) {
+        return node.style.display !== 'none';
+    }
+
+    function text(node) {
+        return (node.textContent || '').replace(/^\s+|\s+$/g, '');
+    }
+
+    function colorOf(name) {
+        for (var i = 0; i < COLORS.length; i++) {
+            if (COLORS[i][0] === name) {
+                return COLORS[i];
+            }
+        }
+        return COLORS[0];
+    }
+
+    function nextOrder() {
+        lastOrder = Math.max(lastOrder + 1, new Date().getTime());
+        return lastOrder;
+    }
+
+    function newId() {
+        return 'n' + new Date().getTime().toString(36) + Math.floor(Math.random() * 1e9).toString(36);
+    }
+
+    /* ---------- server sync ---------- */
+
+    function api(method, path, body) {
+        var xhr = new XMLHttpRequest();
+        xhr.open(method, path, true);
+        countPending(1);
+        localWrites++;
+        xhr.onreadystatechange = function () {
+            if (xhr.readyState !== 4) {
+                return;
+            }
+            countPending(-1);
+            // Only this write since the known revision: nothing new to fetch
+            var written = parseInt(xhr.getResponseHeader('X-Keep-Revision'), 10);
+            if (written === revision + 1) {
+                revision = written;
+            }
+        };
+        if (body !== undefined) {
+            xhr.setRequestHeader('Content-Type', 'application/json');
+            xhr.send(JSON.stringify(body));
+        } else {
+            xhr.send();
+        }
+    }
+
+    function countPending(delta) {
+        pendingWrites += delta;
+        document.documentElement.setAttribute('data-keep-pending', String(pendingWrites));
+    }
+
+    function save(note) {
+        api('PUT', 'api/notes/' + encodeURIComponent(note.id), note);
+    }
+
+    function fetchJson(path, callback) {
+        var xhr = new XMLHttpRequest();
+        xhr.open('GET', path, true);
+        xhr.onreadystatechange = function () {
+            if (xhr.readyState === 4) {
+                callback(xhr.status === 200 ? JSON.parse(xhr.responseText) : null,
+                    parseInt(xhr.getResponseHeader('X-Keep-Revision'), 10));
+            }
+        };
+        xhr.send();
+    }
+
+    /* ---------- sync with other windows ---------- */
+
+    /*
+     * One round of catching up with the server; done, if given, runs once a round that
+     * started after this call has finished.
+     */
+    function sync(done) {
+        if (syncing || pendingWrites > 0) {
+            if (done) {
+                setTimeout(function () {
+                    sync(done);
+                }, SYNC_INTERVAL_MS);
+            }
+            return;
+        }
+        var writes = localWrites;
+        syncing = true;
+        fetchJson('api/revision', function (data) {
+            if (!data || data.revision <= revision || localWrites !== writes) {
+                syncing = false;
+                if (done) {
+                    done();
+                }
+                return;
+            }
+            fetchJson('api/notes', function (list, fetched) {
+                syncing = false;
+                // A local change made meanwhile is newer than the fetched state
+                if (list && localWrites === writes) {
+                    merge(list);
+                    revision = fetched;
+                    render();
+                }
+                if (done) {
+                    done();
+                }
+            });
+        });
+    }
+
+    /*
+     * Test hook: starts following the changes made in the account's other windows.
+     * Called by the tests once a second window of the account is open.
+     */
+    window.__keepSync = {
+        start: function () {
+            if (syncTimer === null) {
+                syncTimer = setInterval(sync, SYNC_INTERVAL_MS);
+                sync();
+            }
+            return true;
+        },
+        // Catches up now; returns the ticket data-keep-synced is set to once done
+        flush: function () {
+            var ticket = String(++flushes);
+            sync(function () {
+                document.documentElement.setAttribute('data-keep-synced', ticket);
+            });
+            return ticket;
+        }
+    };
+
+    function merge(list) {
+        var seen = {};
+        for (var i = 0; i < list.length; i++) {
+            var note = normalize(list[i]);
+            var current = notes[note.id];
+            seen[note.id] = true;
+            if (current && JSON.stringify(current) === JSON.stringify(note)) {
+                continue;
+            }
+            if (current) {
+                // Updated in place: undo callbacks and open menus hold the note object
+                for (var key in note) {
+                    if (note.hasOwnProperty(key)) {
+                        current[key] = note[key];
+                    }
+                }
+            } else {
+                notes[note.id] = current = note;
+            }
+            lastOrder = Math.max(lastOrder, current.order);
+            updateCard(current);
+        }
+        for (var id in notes) {
+            if (notes.hasOwnProperty(id) && !seen[id]) {
+                var card = cards[id];
+                if (card && card.root.parentNode) {
+                    card.root.parentNode.removeChild(card.root);
+                }
+                delete cards[id];
+                delete notes[id];
+            }
+        }
+    }
+
+    function normalize(note) {
+        return {
+            id: note.id || newId(),
+            title: note.title || '',
+            body: note.body || '',
+            items: note.items || [],
+            labels: note.labels || [],
+            color: note.color || 'default',
+            pinned: !!note.pinned,
+            archived: !!note.archived,
+            trashed: !!note.trashed,
+            order: note.order || nextOrder()
+        };
+    }
+
+    /* ---------- cards ---------- */
+
+    function buildCard(note) {
+        var root = el('div', 'IZ65Hb-n0tgWb', {'data-note-id': note.id, tabindex: '0'});
+        var pin = el('div', 'IZ65Hb-s2gQvd', {role: 'button', tabindex: '0'}, '📌');
+        var title = el('div', 'IZ65Hb-r4nke', {role: 'textbox', 'aria-multiline': 'false'});
+        var body = el('div', 'IZ65Hb-qJTHM', {role: 'textbox', 'aria-multiline': 'true'});
+        var items = el('div', 'IZ65Hb-items', {role: 'list'});
+        var labels = el('div', 'IZ65Hb-labels');
+        var toolbar = el('div', 'IZ65Hb-INgbqf', {role: 'toolbar'});
+        var colorBtn = el('div', 'IZ65Hb-color', {role: 'button', tabindex: '0', 'aria-label': 'Background options'}, '🎨');
+        var archive = el('div', 'IZ65Hb-archive', {role: 'button', tabindex: '0'}, '⬇');
+        var more = el('div', 'IZ65Hb-more', {role: 'button', tabindex: '0', 'aria-label': 'More'}, '⋮');
+        var palette = el('div', 'IZ65Hb-palette', {role: 'dialog', 'aria-label': 'Background options'});
+
+        for (var i = 0; i < COLORS.length; i++) {
+            var swatch = el('div', 'IZ65Hb-swatch', {role: 'button', tabindex: '0', 'aria-label': COLORS[i][1], 'data-color': COLORS[i][0]});
+            swatch.style.backgroundColor = COLORS[i][2];
+            palette.appendChild(swatch);
+        }
+        show(palette, false);
+
+        toolbar.appendChild(colorBtn);
+        toolbar.appendChild(archive);
+        toolbar.appendChild(more);
+        root.appendChild(pin);
+        root.appendChild(title);
+        root.appendChild(body);
+        root.appendChild(items);
+        root.appendChild(labels);
+        root.appendChild(toolbar);
+        root.appendChild(palette);
+
+        var id = note.id;
+        pin.addEventListener('click', function (e) {
+            e.stopPropagation();
+            var n = notes[id];
+            n.pinned = !n.pinned;
+            changed(n);
+        });
+        archive.addEventListener('click', function (e) {
+            e.stopPropagation();
+            var n = notes[id];
+            var wasArchived = n.archived;
+            n.archived = !wasArchived;
+            n.pinned = false;
+            changed(n);
+            showSnackbar(wasArchived ? 'Note unarchived' : 'Note archived', function () {
+                n.archived = wasArchived;
+                changed(n);
+            });
+        });
+        more.addEventListener('click', function (e) {
+            e.stopPropagation();
+            openMenu(id, more);
+        });
+        colorBtn.addEventListener('click', function (e) {
+            e.stopPropagation();
+            closePopups(palette);
+            show(palette, !isShown(palette));
+        });
+        palette.addEventListener('click', function (e) {
+            e.stopPropagation();
+            var color = e.target.getAttribute('data-color');
+            if (color) {
+                notes[id].color = color;
+                show(palette, false);
+                changed(notes[id]);
+            }
+        });
+        root.addEventListener('click', function () {
+            openEditor(id);
+        });
+
+        cards[id] = {root: root, pin: pin, title: title, body: body, items: items, labels: labels, archive: archive, palette: palette};
+        return cards[id];
+    }
+
+    function updateCard(note) {
+        var card = cards[note.id] || buildCard(note);
+        card.title.textContent = note.title;
+        card.body.textContent = note.body;
+        show(card.title, note.title.length > 0);
+        show(card.body, note.body.length > 0);
+
+        while (card.items.firstChild) {
+            card.items.removeChild(card.items.firstChild);
+        }
+        for (var i = 0; i < note.items.length; i++) {
+            var item = note.items[i];
+            card.items.appendChild(el('div', 'e5WBfd', {role: 'listitem', 'aria-checked': item.checked ? 'true' : 'false'}, item.text));
+        }
+
+        while (card.labels.firstChild) {
+            card.labels.removeChild(card.labels.firstChild);
+        }
+        for (var j = 0; j < note.labels.length; j++) {
+            card.labels.appendChild(el('div', 'bQfzdd', {role: 'button', tabindex: '0'}, note.labels[j]));
+        }
+
+        card.pin.setAttribute('aria-label', note.pinned ? 'Unpin note' : 'Pin note');
+        card.pin.setAttribute('aria-pressed', note.pinned ? 'true' : 'false');
+        card.archive.setAttribute('aria-label', note.archived ? 'Unarchive' : 'Archive');
+        card.root.style.backgroundColor = colorOf(note.color)[2];
+        return card;
+    }
+
+    function changed(note) {
+        updateCard(note);
+        save(note);
+        render();
+    }
+
+    /* ---------- board ---------- */
+
+    function matches(note, query) {
+        var q = query.toLowerCase();
+        var haystack = [note.title, note.body].concat(note.labels);
+        for (var i = 0; i < note.items.length; i++) {
+            haystack.push(note.items[i].text);
+        }
+        for (var j = 0; j < haystack.length; j++) {
+            if (haystack[j].toLowerCase().indexOf(q) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    function isVisible(note) {
+        switch (route.view) {
+            case 'archive':
+                return note.archived && !note.trashed;
+            case 'trash':
+                return note.trashed;
+            case 'label':
+                return !note.trashed && note.labels.indexOf(route.query) >= 0;
+            case 'search':
+                return !note.trashed && matches(note, route.query);
+            default:
+                return !note.archived && !note.trashed;
+        }
+    }
+
+    function sortedNotes() {
+        var list = [];
+        for (var id in notes) {
+            if (notes.hasOwnProperty(id)) {
+                list.push(notes[id]);
+            }
+        }
+        list.sort(function (a, b) {
+            return b.order - a.order;
+        });
+        return list;
+    }
+
+    function render() {
+        var pinnedSection = $('#pinned-section');
+        var othersSection = $('#others-section');
+        var list = sortedNotes();
+        var pinnedCount = 0;
+        var othersCount = 0;
+        unrendered = 0;
+
+        for (var i = 0; i < list.length; i++) {
+            var note = list[i];
+            var lazy = isVisible(note) && pinnedCount + othersCount >= renderLimit;
+            if (lazy) {
+                unrendered++;
+            }
+            if (!isVisible(note) || lazy) {
+                var hidden = cards[note.id];
+                if (hidden && hidden.root.parentNode) {
+                    hidden.root.parentNode.removeChild(hidden.root);
+                }
+                continue;
+            }
+            var card = cards[note.id] || updateCard(note);
+            var pinnedGroup = route.view === 'home' && note.pinned;
+            (pinnedGroup ? pinnedSection : othersSection).appendChild(card.root);
+            if (pinnedGroup) {
+                pinnedCount++;
+            } else {
+                othersCount++;
+            }
+        }
+
+        show($('#pinned-heading'), pinnedCount > 0);
+        show($('#others-heading'), pinnedCount > 0 && othersCount > 0);
+
+        var empty = $('#board-empty');
+        var emptyText = {
+            home: 'Notes you add appear here',
+            archive: 'Your archived notes appear here',
+            trash: 'No notes in Trash',
+            label: 'No notes with this label yet',
+            search: 'No matching results'
+        };
+        empty.textContent = emptyText[route.view];
+        show(empty, pinnedCount + othersCount === 0);
+        // How many cards of the view are still to come, so a reader knows where the board ends
+        $('#board').setAttribute('data-unrendered', String(unrendered));
+        renderLabelLinks(list);
+    }
+
+    function renderMoreOnScroll() {
+        var doc = document.documentElement;
+        var bottom = (window.pageYOffset || doc.scrollTop || 0) + window.innerHeight;
+        if (unrendered > 0 && bottom >= doc.scrollHeight - LAZY_MARGIN_PX) {
+            renderLimit += RENDER_PAGE;
+            render();
+        }
+    }
+
+    function renderLabelLinks(list) {
+        var names = [];
+        for (var i = 0; i < list.length; i++) {
+            for (var j = 0; j < list[i].labels.length; j++) {
+                if (!list[i].trashed && names.indexOf(list[i].labels[j]) < 0) {
+                    names.push(list[i].labels[j]);
+                }
+            }
+        }
+        names.sort();
+        if (names.join('\n') === labelLinks) {
+            return;
+        }
+        labelLinks = names.join('\n');
+        var container = $('#label-links');
+        while (container.firstChild) {
+            container.removeChild(container.firstChild);
+        }
+        for (var k = 0; k < names.length; k++) {
+            var link = el('div', 'PvRhvb-qAWA2', {role: 'link', tabindex: '0', 'aria-label': names[k],
+                'data-view': 'label/' + names[k]});
+            link.appendChild(el('span', null, null, names[k]));
+            container.appendChild(link);
+        }
+        markActiveLink();
+    }
+
+    function markActiveLink() {
+        var current = route.view === 'label' ? 'label/' + route.query : route.view;
+        var links = document.querySelectorAll('.PvRhvb-qAWA2');
+        for (var i = 0; i < links.length; i++) {
+            var active = links[i].getAttribute('data-view') === current;
+            links[i].className = 'PvRhvb-qAWA2' + (active ? ' active' : '');
+            links[i].setAttribute('aria-current', active ? 'page' : 'false');
+        }
+    }
+
+    /* ---------- routing ---------- */
+
+    function parseRoute(hash) {
+        var h = (hash || '').replace(/^#/, '');
+        if (h === 'archive' || h === 'trash') {
+            return {view: h, query: ''};
+        }
+        if (h.indexOf('label/') === 0) {
+            return {view: 'label', query: decodeURIComponent(h.substring('label/'.length))};
+        }
+        if (h.indexOf('search/text=') === 0) {
+            return {view: 'search', query: decodeURIComponent(h.substring('search/text='.length))};
+        }
+        return {view: 'home', query: ''};
+    }
+
+    function applyRoute() {
+        route = parseRoute(window.location.hash);
+        var titles = {home: 'Keep', archive: 'Archive', trash: 'Trash', label: route.query, search: 'Search'};
+        var boardLabels = {home: 'Notes', archive: 'Archived notes', trash: 'Trashed notes',
+            label: 'Labelled notes', search: 'Search results'};
+        $('#view-title').textContent = titles[route.view];
+        $('#board').setAttribute('aria-label', boardLabels[route.view]);
+        show($('#composer'), route.view === 'home');
+        markActiveLink();
+        closePopups(null);
+        renderLimit = RENDER_PAGE;
+        render();
+    }
+
+    function navigate(hash) {
+        if (window.location.hash !== hash) {
+            window.location.hash = hash;
+        }
+        applyRoute();
+    }
+
+    /* ---------- composer ---------- */
+
+    function openComposer(list) {
+        show($('.fmcmS-h1U9Be-LS81yb'), false);
+        show($('#composer-editor'), true);
+        if (list && !composerList) {
+            composerList = true;
+            show($('.composer-body'), false);
+            show($('#composer-list'), true);
+        }
+    }
+
+    function commitComposerItem() {
+        var input = $('.composer-item-input');
+        var value = text(input);
+        if (value.length > 0) {
+            $('#composer-items').appendChild(el('div', 'composer-item', null, value));
+        }
+        input.textContent = '';
+    }
+
+    function closeComposer() {
+        commitComposerItem();
+        var items = [];
+        var rows = $('#composer-items').childNodes;
+        for (var i = 0; i < rows.length; i++) {
+            items.push({text: text(rows[i]), checked: false});
+        }
+        var title = text($('.composer-title'));
+        var body = composerList ? '' : text($('.composer-body'));
+
+        if (title.length > 0 || body.length > 0 || items.length > 0) {
+            var note = normalize({title: title, body: body, items: items});
+            notes[note.id] = note;
+            changed(note);
+        }
+
+        $('.composer-title').textContent = '';
+        $('.composer-body').textContent = '';
+        $('#composer-items').innerHTML = '';
+        composerList = false;
+        show($('.composer-body'), true);
+        show($('#composer-list'), false);
+        show($('#composer-editor'), false);
+        show($('.fmcmS-h1U9Be-LS81yb'), true);
+    }
+
+    /* ---------- editor ---------- */
+
+    function openEditor(id) {
+        editorNoteId = id;
+        closePopups(null);
+        $('.editor-title').textContent = notes[id].title;
+        $('.editor-body').textContent = notes[id].body;
+        show($('#editor'), true);
+    }
+
+    function closeEditor() {
+        var note = notes[editorNoteId];
+        if (note) {
+            note.title = text($('.editor-title'));
+            note.body = text($('.editor-body'));
+            changed(note);
+        }
+        editorNoteId = null;
+        show($('#editor'), false);
+    }
+
+    /* ---------- menus and popups ---------- */
+
+    function openMenu(id, anchor) {
+        closePopups(null);
+        menuNoteId = id;
+        var menu = $('#note-menu');
+        var rect = anchor.getBoundingClientRect();
+        menu.style.top = (rect.bottom + 4) + 'px';
+        menu.style.left = rect.left + 'px';
+        show(menu, true);
+    }
+
+    function openLabelPicker() {
+        var picker = $('#label-picker');
+        var menu = $('#note-menu');
+        picker.style.top = menu.style.top;
+        picker.style.left = menu.style.left;
+        show(menu, false);
+        show(picker, true);
+        var input = $('input', picker);
+        input.value = '';
+        input.focus();
+    }
+
+    function closePopups(except) {
+        var popups = [$('#note-menu'), $('#label-picker')];
+        for (var id in cards) {
+            if (cards.hasOwnProperty(id)) {
+                popups.push(cards[id].palette);
+            }
+        }
+        for (var i = 0; i < popups.length; i++) {
+            if (popups[i] !== except) {
+                show(popups[i], false);
+            }
+        }
+    }
+
+    function trashNote(id) {
+        var note = notes[id];
+        if (note.trashed) {
+            delete notes[id];
+            var card = cards[id];
+            if (card && card.root.parentNode) {
+                card.root.parentNode.removeChild(card.root);
+            }
+            delete cards[id];
+            api('DELETE', 'api/notes/' + encodeURIComponent(id));
+            render();
+            return;
+        }
+        note.trashed = true;
+        note.pinned = false;
+        changed(note);
+        showSnackbar('Note moved to trash', function () {
+            note.trashed = false;
+            changed(note);
+        });
+    }
+
+    function showSnackbar(message, undo) {
+        var snackbar = $('#snackbar');
+        $('#snackbar-text').textContent = message;
+        snackbarUndo = undo;
+        show(snackbar, true);
+        if (snackbarTimer) {
+            clearTimeout(snackbarTimer);
+        }
+        snackbarTimer = setTimeout(function () {
+            show(snackbar, false);
+            snackbarUndo = null;
+        }, 10000);
+    }
+
+    /* ---------- wiring ---------- */
+
+    function onEnter(node, handler) {
+        node.addEventListener('keydown', function (e) {
+            if (e.key === 'Enter' || e.keyCode === 13) {
+                e.preventDefault();
+                handler(e);
+            }
+        });
+    }
+
+    /* ---------- fixtures ---------- */
+
+    /*
+     * Lets tests put notes straight into the board state, already pinned, labelled
+     * or archived, instead of typing them into the composer. Notes are saved like
+     * any other change, so a reload keeps them.
+     */
+    window.__keepFixtures = {
+        upsert: function (list) {
+            for (var i = 0; i < list.length; i++) {
+                var note = normalize(list[i]);
+                lastOrder = Math.max(lastOrder, note.order);
+                notes[note.id] = note;
+                updateCard(note);
+                save(note);
+            }
+            render();
+            return list.length;
+        }
+    };
+
+    function init() {
+        var initial = window.__KEEP_STATE__ || [];
+        for (var i = 0; i < initial.length; i++) {
+            var note = normalize(initial[i]);
+            lastOrder = Math.max(lastOrder, note.order);
+            notes[note.id] = note;
+        }
+
+        $('.fmcmS-h1U9Be-LS81yb').addEventListener('click', function () {
+            openComposer(false);
+        });
+        $('[aria-label="New list"]').addEventListener('click', function () {
+            openComposer(true);
+        });
+        $('.composer-close').addEventListener('click', closeComposer);
+        onEnter($('.composer-item-input'), commitComposerItem);
+
+        $('.editor-close').addEventListener('click', closeEditor);
+
+        var menuItems = document.querySelectorAll('#note-menu [role="menuitem"]');
+        for (var m = 0; m < menuItems.length; m++) {
+            menuItems[m].addEventListener('click', function (e) {
+                e.stopPropagation();
+                var action = this.getAttribute('data-action');
+                if (action === 'delete') {
+                    show($('#note-menu'), false);
+                    trashNote(menuNoteId);
+                } else if (action === 'label') {
+                    openLabelPicker();
+                }
+            });
+        }
+
+        var labelInput = $('#label-picker input');
+        labelInput.addEventListener('keydown', function (e) {
+            if (e.key === 'Enter' || e.keyCode === 13) {
+                e.preventDefault();
+                var label = labelInput.value.replace(/^\s+|\s+$/g, '');
+                var note = notes[menuNoteId];
+                if (note && label.length > 0 && note.labels.indexOf(label) < 0) {
+                    note.labels.push(label);
+                    changed(note);
+                }
+                labelInput.value = '';
+            } else if (e.key === 'Escape' || e.keyCode === 27) {
+                show($('#label-picker'), false);
+            }
+        });
+        $('#label-picker').addEventListener('click', function (e) {
+            e.stopPropagation();
+        });
+
+        $('.snackbar-undo').addEventListener('click', function () {
+            var undo = snackbarUndo;
+            snackbarUndo = null;
+            show($('#snackbar'), false);
+            if (undo) {
+                undo();
+            }
+        });
+
+        var search = $('input[aria-label="Search"]');
+        onEnter(search, function () {
+            var query = search.value.replace(/^\s+|\s+$/g, '');
+            navigate(query.length > 0 ? '#search/text=' + encodeURIComponent(query) : '#home');
+        });
+
+        // Delegated, since label links come and go with the labels in use
+        $('.PvRhvb').addEventListener('click', function (e) {
+            var link = e.target;
+            while (link && link !== this && !link.getAttribute('data-view')) {
+                link = link.parentNode;
+            }
+            if (link && link !== this) {
+                search.value = '';
+                navigate('#' + link.getAttribute('data-view'));
+            }
+        });
+
+        document.addEventListener('click', function () {
+            closePopups(null);
+        });
+        window.addEventListener('hashchange', applyRoute);
+        window.addEventListener('scroll', renderMoreOnScroll);
+        applyRoute();
+    }
+
+    init();
+})();